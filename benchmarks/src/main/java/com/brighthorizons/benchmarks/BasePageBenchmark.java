@@ -0,0 +1,97 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.pages.BasePage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the BasePage click, sendKeys and getText chains: the happy path
+ * (failure=none), every action recovering on its first retry (stale), and
+ * every action running out of retries and taking its JavaScript fallback
+ * (intercepted). The fork has no backoff and an unlimited run budget, so
+ * the failing paths time the framework's own work rather than the sleep.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dretry.backoff.initial.ms=0", "-Dretry.backoff.max.ms=0",
+        "-Dretry.budget.run.count=2000000000" })
+@State(Scope.Thread)
+public class BasePageBenchmark {
+
+    @Param({ "none", "stale", "intercepted" })
+    public String failure;
+
+    private BenchmarkSession session;
+    private ExposedBasePage page;
+    private Supplier<WebElement> title;
+    private Supplier<WebElement> searchField;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        session = BenchmarkSession.open(6, StubWebDriver.Failure.valueOf(failure.toUpperCase(Locale.ROOT)));
+        page = new ExposedBasePage(session.driver());
+        // Looked up by every attempt, as the page objects do
+        title = () -> session.driver().findElement(By.xpath("//footer//h2"));
+        searchField = () -> session.driver().findElement(By.id("search-field"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public void click(CommandCounters counters) {
+        long before = session.commandCount();
+        page.click(title);
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void sendKeys(CommandCounters counters) {
+        long before = session.commandCount();
+        page.sendKeys(searchField, "Employee Education");
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void getText(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(page.text(title));
+        counters.record(session.commandCount() - before);
+    }
+
+    // Makes the protected BasePage helpers reachable from the benchmark
+    static final class ExposedBasePage extends BasePage {
+
+        ExposedBasePage(WebDriver driver) {
+            super(driver);
+        }
+
+        String text(Supplier<WebElement> element) {
+            return getText(element);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.utils.CommandMetrics;
+import com.brighthorizons.utils.DriverManager;
+import com.brighthorizons.utils.FrameworkConfig;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+/**
+ * WebDriver used by a benchmark, chosen with -Dbench.driver: stub (the
+ * default) for a {@link StubWebDriver}, browser for the browser configured
+ * in config.properties (e.g. -Dbrowser=chrome), launched by DriverManager
+ * and pointed at the static fixture page served in-process.
+ */
+final class BenchmarkSession {
+
+    private static final String FIXTURE = "/fixtures/home.html";
+
+    private final WebDriver driver;
+    private final StubWebDriver stub;
+    private final HttpServer server;
+
+    private BenchmarkSession(WebDriver driver, StubWebDriver stub, HttpServer server) {
+        this.driver = driver;
+        this.stub = stub;
+        this.server = server;
+    }
+
+    static BenchmarkSession open(int elementCount) throws IOException {
+        return open(elementCount, StubWebDriver.Failure.NONE);
+    }
+
+    /**
+     * @param failure How the stub's element actions fail; only the stub can fail on purpose
+     */
+    static BenchmarkSession open(int elementCount, StubWebDriver.Failure failure) throws IOException {
+        String mode = System.getProperty("bench.driver", "stub");
+        if ("stub".equalsIgnoreCase(mode)) {
+            StubWebDriver stub = StubWebDriver.create(elementCount).failing(failure);
+            return new BenchmarkSession(stub.driver(), stub, null);
+        }
+        if (!"browser".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("bench.driver=" + mode
+                    + " (expected stub or browser; choose the browser with -Dbrowser=chrome, firefox or edge)");
+        }
+        if (failure != StubWebDriver.Failure.NONE) {
+            throw new UnsupportedOperationException("Failure " + failure
+                    + " needs the stub driver, run browser benchmarks with -p failure=none");
+        }
+        if (!FrameworkConfig.get().getBoolean("instrumentation.enabled", true)) {
+            System.out.println("instrumentation.enabled=false: command counts stay 0 with bench.driver=browser");
+        }
+
+        HttpServer server = startFixtureServer();
+        WebDriver driver = DriverManager.getDriver();
+        driver.get(fixtureUrl(server));
+        return new BenchmarkSession(driver, null, server);
+    }
+
+    WebDriver driver() {
+        return driver;
+    }
+
+    // Commands sent so far: counted by the stub, or by DriverManager's instrumentation on this thread
+    long commandCount() {
+        return stub != null ? stub.commandCount() : CommandMetrics.commandCount();
+    }
+
+    void close() {
+        if (server != null) {
+            DriverManager.quitDriver();
+            server.stop(0);
+        }
+    }
+
+    static String fixtureUrl(HttpServer server) {
+        return "http://localhost:" + server.getAddress().getPort() + FIXTURE;
+    }
+
+    // Serves the fixture page from the classpath on an ephemeral port
+    static HttpServer startFixtureServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/fixtures/", exchange -> {
+            try (InputStream page = BenchmarkSession.class.getResourceAsStream(exchange.getRequestURI().getPath())) {
+                if (page == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                byte[] body = page.readAllBytes();
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        return server;
+    }
+}
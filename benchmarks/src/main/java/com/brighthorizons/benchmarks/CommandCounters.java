@@ -0,0 +1,30 @@
+package com.brighthorizons.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extra JMH result columns: WebDriver commands issued and operations run.
+ * commands / operations gives the command count per operation.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class CommandCounters {
+
+    public long commands;
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        commands = 0;
+        operations = 0;
+    }
+
+    void record(long commandDelta) {
+        commands += commandDelta;
+        operations++;
+    }
+}
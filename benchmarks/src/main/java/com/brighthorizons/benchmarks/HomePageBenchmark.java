@@ -0,0 +1,64 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.pages.HomePage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of reading the footer titles as the number of footer sections grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HomePageBenchmark {
+
+    // Only used by the stub driver, the fixture page has a fixed footer
+    @Param({ "6", "24" })
+    public int footerSections;
+
+    private BenchmarkSession session;
+    private HomePage homePage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        session = BenchmarkSession.open(footerSections);
+        homePage = new HomePage(session.driver());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public void getFooterSectionTitles(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(homePage.getFooterSectionTitles());
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void areAllFooterTitlesValid(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(homePage.areAllFooterTitlesValid(15));
+        counters.record(session.commandCount() - before);
+    }
+}
@@ -0,0 +1,116 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.utils.DriverManager;
+import com.brighthorizons.utils.LaunchProfile;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cold-start time and memory of each launch profile. Every iteration
+ * launches a new browser, loads the fixture page and sums the resident set
+ * size of the driver and browser processes it started (Linux only).
+ *
+ * Not a JMH benchmark: a launch is a single shot that takes seconds, so
+ * it is measured directly.
+ *
+ * Run: java -cp benchmarks/target/benchmarks.jar com.brighthorizons.benchmarks.LaunchBenchmark
+ *      -Dbench.launch.profiles=fast-headless,ci selects profiles (default all),
+ *      -Dbench.launch.iterations=5 sets launches per profile
+ */
+public final class LaunchBenchmark {
+
+    private LaunchBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = Integer.getInteger("bench.launch.iterations", 5);
+        List<LaunchProfile> profiles = new ArrayList<>();
+        String selected = System.getProperty("bench.launch.profiles");
+        if (selected == null) {
+            Collections.addAll(profiles, LaunchProfile.values());
+        } else {
+            for (String name : selected.split(",")) {
+                profiles.add(LaunchProfile.fromName(name));
+            }
+        }
+
+        HttpServer server = BenchmarkSession.startFixtureServer();
+        String fixtureUrl = BenchmarkSession.fixtureUrl(server);
+        try {
+            System.out.println(String.format("%-14s %18s %18s %18s", "profile", "launch ms", "first page ms",
+                    "rss MB"));
+            for (LaunchProfile profile : profiles) {
+                List<Long> launchMillis = new ArrayList<>();
+                List<Long> firstPageMillis = new ArrayList<>();
+                List<Long> rssMegabytes = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    Set<Long> before = descendants();
+                    long start = System.nanoTime();
+                    WebDriver driver = DriverManager.launchDriver(profile);
+                    long launched = System.nanoTime();
+                    try {
+                        driver.get(fixtureUrl);
+                        firstPageMillis.add((System.nanoTime() - launched) / 1_000_000);
+                        launchMillis.add((launched - start) / 1_000_000);
+                        long rss = residentKilobytes(descendants().stream()
+                                .filter(pid -> !before.contains(pid))
+                                .collect(Collectors.toSet()));
+                        if (rss >= 0) {
+                            rssMegabytes.add(rss / 1024);
+                        }
+                    } finally {
+                        driver.quit();
+                    }
+                }
+                System.out.println(String.format("%-14s %18s %18s %18s", profile, summary(launchMillis),
+                        summary(firstPageMillis), rssMegabytes.isEmpty() ? "n/a" : summary(rssMegabytes)));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    // Processes started by this JVM, directly or through the driver binary
+    private static Set<Long> descendants() {
+        return ProcessHandle.current().descendants().map(ProcessHandle::pid).collect(Collectors.toSet());
+    }
+
+    // Summed VmRSS of the processes, or -1 where /proc is not available
+    private static long residentKilobytes(Set<Long> pids) {
+        if (!Files.isDirectory(Paths.get("/proc"))) {
+            return -1;
+        }
+        long total = 0;
+        for (long pid : pids) {
+            Path status = Paths.get("/proc", Long.toString(pid), "status");
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("VmRSS:")) {
+                        total += Long.parseLong(line.replaceAll("[^0-9]", ""));
+                    }
+                }
+            } catch (IOException e) {
+                // The process exited in between
+            }
+        }
+        return total;
+    }
+
+    // Median with the range, e.g. "812 (790-901)"
+    private static String summary(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return String.format("%d (%d-%d)", sorted.get(sorted.size() / 2), sorted.get(0),
+                sorted.get(sorted.size() - 1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.utils.DriverPool;
+import com.brighthorizons.utils.VirtualThreadScheduler;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scenario throughput of the platform-thread runners against the virtual
+ * thread scheduler when scenarios are I/O bound. A scenario first blocks on
+ * setup that needs no browser (test data, API calls), then checks out a
+ * session from a {@link DriverPool} of stub drivers and sends commands that
+ * each block for a simulated WebDriver round trip.
+ *
+ * - platform-sessions: one platform thread per browser session, like ParallelRunner
+ * - platform-wide:     as many platform threads as scenarios allowed in flight
+ * - virtual:           VirtualThreadScheduler with the same cap
+ *
+ * Only scheduling is measured, Cucumber itself is not involved. In a real
+ * run VirtualThreadRunner adds the runner setup (a glue classpath scan),
+ * which its RunnerPool keeps to once per scenario in flight.
+ *
+ * Not a JMH benchmark: each run blocks for seconds by design, so it is
+ * measured directly.
+ *
+ * Run: java -cp benchmarks/target/benchmarks.jar com.brighthorizons.benchmarks.SchedulerBenchmark
+ *      -Dbench.scheduler.scenarios=400 scenarios per run, -Dbench.scheduler.sessions=8 browser sessions,
+ *      -Dbench.scheduler.inflight=64 scenarios in flight, -Dbench.scheduler.setup.ms=200 setup per scenario,
+ *      -Dbench.scheduler.commands=20 and -Dbench.scheduler.latency.ms=10 WebDriver commands and round trip
+ */
+public final class SchedulerBenchmark {
+
+    private static final int SCENARIOS = Integer.getInteger("bench.scheduler.scenarios", 400);
+    private static final int SESSIONS = Integer.getInteger("bench.scheduler.sessions", 8);
+    private static final int IN_FLIGHT = Integer.getInteger("bench.scheduler.inflight", 64);
+    private static final long SETUP_MILLIS = Long.getLong("bench.scheduler.setup.ms", 200);
+    private static final int COMMANDS = Integer.getInteger("bench.scheduler.commands", 20);
+    private static final long LATENCY_MILLIS = Long.getLong("bench.scheduler.latency.ms", 10);
+
+    private SchedulerBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println(String.format("%d scenarios: %d ms setup, %d commands x %d ms, %d sessions, %d in flight",
+                SCENARIOS, SETUP_MILLIS, COMMANDS, LATENCY_MILLIS, SESSIONS, IN_FLIGHT));
+        System.out.println(String.format("%-18s %12s %14s %16s %12s", "scheduler", "wall ms", "scenarios/s",
+                "peak threads", "heap MB"));
+        // Warm-up so class loading does not count against the first scheduler
+        run(Executors.newFixedThreadPool(SESSIONS), Math.min(SCENARIOS, SESSIONS * 2));
+
+        report("platform-sessions", Executors.newFixedThreadPool(SESSIONS));
+        report("platform-wide", Executors.newFixedThreadPool(IN_FLIGHT));
+        report("virtual", new VirtualThreadScheduler(IN_FLIGHT));
+    }
+
+    private static void report(String name, ExecutorService scheduler) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        threads.resetPeakThreadCount();
+
+        long wallMillis = run(scheduler, SCENARIOS);
+
+        long heapMegabytes = Math.max(0, memory.getHeapMemoryUsage().getUsed() - heapBefore) / (1024 * 1024);
+        System.out.println(String.format("%-18s %12d %14.1f %16d %12d", name, wallMillis,
+                SCENARIOS * 1000.0 / Math.max(1, wallMillis), threads.getPeakThreadCount(), heapMegabytes));
+    }
+
+    // Runs the scenarios to completion and shuts the scheduler down, returns the wall time
+    private static long run(ExecutorService scheduler, int scenarios) throws InterruptedException {
+        DriverPool pool = new DriverPool(() -> StubWebDriver.create(5, LATENCY_MILLIS).driver(), driver -> {
+        }, SESSIONS, Integer.MAX_VALUE, TimeUnit.MINUTES.toMillis(10));
+        long start = System.nanoTime();
+        for (int i = 0; i < scenarios; i++) {
+            scheduler.execute(() -> scenario(pool));
+        }
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Scenarios did not finish in 10 minutes");
+        }
+        long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        pool.shutdown();
+        return wallMillis;
+    }
+
+    private static void scenario(DriverPool pool) {
+        try {
+            Thread.sleep(SETUP_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        WebDriver driver = pool.checkout();
+        try {
+            for (int i = 0; i < COMMANDS; i++) {
+                ((JavascriptExecutor) driver).executeScript("return document.readyState");
+            }
+        } finally {
+            pool.release(driver);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.brighthorizons.benchmarks;
+
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory WebDriver that answers every command instantly and counts how
+ * many commands a real driver would have sent. Benchmarks built on it
+ * measure the framework's own overhead with no browser or network involved.
+ * A per-command latency stands in for the HTTP round trip to a real driver
+ * when the benchmark is about blocking rather than CPU, and a
+ * {@link Failure} makes element actions throw to exercise the retry and
+ * fallback paths.
+ */
+public final class StubWebDriver implements InvocationHandler {
+
+    // 1x1 transparent PNG
+    private static final String PIXEL_PNG =
+            "iVBORw0KGgoAAAANSUhEUgAAAAEAAAABCAQAAAC1HAwCAAAAC0lEQVR42mNkYAAAAAYAAjCB0C8AAAAASUVORK5CYII=";
+
+    // Calls that only return a local facade and never reach the browser
+    private static final Set<String> LOCAL_CALLS = Set.of("manage", "timeouts", "window", "navigate", "switchTo");
+
+    // Element commands a Failure applies to
+    private static final Set<String> ACTIONS = Set.of("click", "sendKeys", "getText");
+
+    /**
+     * What the element's click, sendKeys and getText commands do
+     */
+    public enum Failure {
+        // Answer normally
+        NONE,
+        // Every other one throws StaleElementReferenceException, so each action recovers on its first retry
+        STALE,
+        // Every one throws ElementClickInterceptedException, so each action runs out of retries and falls back
+        INTERCEPTED
+    }
+
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong actions = new AtomicLong();
+    private volatile Failure failure = Failure.NONE;
+    private final int elementCount;
+    private final long latencyMillis;
+    private final WebDriver driver;
+    private final WebElement element;
+
+    private StubWebDriver(int elementCount, long latencyMillis) {
+        this.elementCount = elementCount;
+        this.latencyMillis = latencyMillis;
+        this.driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { WebDriver.class, JavascriptExecutor.class, TakesScreenshot.class }, this);
+        this.element = (WebElement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { WebElement.class }, new ElementHandler());
+    }
+
+    /**
+     * @param elementCount Number of elements returned by findElements, e.g. footer titles
+     */
+    public static StubWebDriver create(int elementCount) {
+        return new StubWebDriver(elementCount, 0);
+    }
+
+    /**
+     * @param elementCount  Number of elements returned by findElements
+     * @param latencyMillis Time every command blocks before it answers
+     */
+    public static StubWebDriver create(int elementCount, long latencyMillis) {
+        return new StubWebDriver(elementCount, latencyMillis);
+    }
+
+    public WebDriver driver() {
+        return driver;
+    }
+
+    // Makes the element's actions fail from now on, see Failure
+    public StubWebDriver failing(Failure failure) {
+        this.failure = failure;
+        return this;
+    }
+
+    // Commands issued so far
+    public long commandCount() {
+        return commands.get();
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        if (method.getDeclaringClass() == Object.class) {
+            return objectMethod(proxy, method, args);
+        }
+        String name = method.getName();
+        if (LOCAL_CALLS.contains(name)) {
+            return facade(method.getReturnType());
+        }
+
+        roundTrip();
+        switch (name) {
+            case "findElement":
+                return element;
+            case "findElements":
+                return elements();
+            case "executeScript":
+                return scriptResult((String) args[0]);
+            case "executeAsyncScript":
+                return asyncScriptResult((Object[]) args[1]);
+            case "getScreenshotAs":
+                return ((OutputType<?>) args[0]).convertFromBase64Png(PIXEL_PNG);
+            case "getWindowHandle":
+                return "stub-window";
+            case "getTitle":
+                return "Bright Horizons";
+            case "getCurrentUrl":
+                return "http://localhost/";
+            default:
+                return defaultValue(method.getReturnType());
+        }
+    }
+
+    // Count the command and block for as long as the simulated round trip takes
+    private void roundTrip() {
+        commands.incrementAndGet();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void failAction(String command) {
+        if (failure == Failure.NONE || !ACTIONS.contains(command)) {
+            return;
+        }
+        if (failure == Failure.INTERCEPTED) {
+            throw new ElementClickInterceptedException("Stub: element is covered by another element");
+        }
+        if (actions.getAndIncrement() % 2 == 0) {
+            throw new StaleElementReferenceException("Stub: element is no longer attached to the DOM");
+        }
+    }
+
+    private List<WebElement> elements() {
+        return new ArrayList<>(Collections.nCopies(elementCount, element));
+    }
+
+    private Object scriptResult(String script) {
+        if (script.contains("document.readyState")) {
+            return "complete";
+        }
+        if (script.contains("jQuery.active")) {
+            return Boolean.TRUE;
+        }
+        if (script.contains("getElementsByTagName('*').length")) {
+            return 100L;
+        }
+        if (script.contains("innerText")) {
+            // BasePage.extractElements
+            List<Map<String, Object>> snapshots = new ArrayList<>();
+            for (int i = 0; i < elementCount; i++) {
+                Map<String, Object> snapshot = new HashMap<>();
+                snapshot.put("text", "Footer section title for benchmarks");
+                snapshot.put("visible", Boolean.TRUE);
+                snapshot.put("x", 0L);
+                snapshot.put("y", 40L * i);
+                snapshot.put("width", 200L);
+                snapshot.put("height", 20L);
+                snapshots.add(snapshot);
+            }
+            return snapshots;
+        }
+        return null;
+    }
+
+    // Mirrors EventDrivenWait: the first argument is the condition kind
+    private Object asyncScriptResult(Object[] scriptArgs) {
+        String kind = scriptArgs.length > 0 ? String.valueOf(scriptArgs[0]) : "";
+        switch (kind) {
+            case "allVisible":
+                return elements();
+            case "pageLoad":
+            case "domReady":
+            case "domQuiet":
+            case "gates":
+                return Boolean.TRUE;
+            case "race":
+                // LocatorChain: first candidate wins on the stub page, no unique selector to learn
+                return List.of(0L, element, "/", List.of(0.1), Map.of("tag", "div"));
+            default:
+                return element;
+        }
+    }
+
+    // Nested objects such as manage().timeouts() share this handler so their commands are counted too
+    private Object facade(Class<?> type) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type }, this);
+    }
+
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "StubWebDriver";
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == Set.class) {
+            return Collections.emptySet();
+        }
+        if (type == List.class) {
+            return Collections.emptyList();
+        }
+        return null;
+    }
+
+    private final class ElementHandler implements InvocationHandler {
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+                return objectMethod(proxy, method, args);
+            }
+
+            roundTrip();
+            failAction(method.getName());
+            switch (method.getName()) {
+                case "isDisplayed":
+                case "isEnabled":
+                    return Boolean.TRUE;
+                case "isSelected":
+                    return Boolean.FALSE;
+                case "getText":
+                    return "Footer section title for benchmarks";
+                case "getAttribute":
+                case "getDomAttribute":
+                case "getDomProperty":
+                case "getCssValue":
+                    return "";
+                case "getTagName":
+                    return "h2";
+                case "getRect":
+                    return new Rectangle(0, 0, 20, 200);
+                case "getLocation":
+                    return new Point(0, 0);
+                case "findElement":
+                    return element;
+                case "findElements":
+                    return elements();
+                case "getScreenshotAs":
+                    return ((OutputType<?>) args[0]).convertFromBase64Png(PIXEL_PNG);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        }
+    }
+}
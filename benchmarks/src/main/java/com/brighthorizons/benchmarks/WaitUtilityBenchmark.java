@@ -0,0 +1,86 @@
+package com.brighthorizons.benchmarks;
+
+import com.brighthorizons.utils.WaitUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the WaitUtility conditions when the condition already holds,
+ * i.e. the framework overhead on top of the browser.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WaitUtilityBenchmark {
+
+    private final By footerTitle = By.xpath("//footer//h2");
+    private final By footerTitles = By.xpath("//footer//h2 | //footer//h3");
+
+    private BenchmarkSession session;
+    private WebElement element;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        session = BenchmarkSession.open(6);
+        element = session.driver().findElement(footerTitle);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.close();
+    }
+
+    @Benchmark
+    public void visibleByLocator(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(WaitUtility.waitForElementVisible(session.driver(), footerTitle));
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void visibleByElement(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(WaitUtility.waitForElementVisible(session.driver(), element));
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void clickableByLocator(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(WaitUtility.waitForElementClickable(session.driver(), footerTitle));
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void allVisible(CommandCounters counters, Blackhole blackhole) {
+        long before = session.commandCount();
+        blackhole.consume(WaitUtility.waitForElementsVisible(session.driver(), footerTitles));
+        counters.record(session.commandCount() - before);
+    }
+
+    @Benchmark
+    public void pageLoad(CommandCounters counters) {
+        long before = session.commandCount();
+        WaitUtility.waitForPageLoad(session.driver());
+        counters.record(session.commandCount() - before);
+    }
+}
@@ -0,0 +1,71 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.FrameworkConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs of the test classpath in child JVMs, used where one JVM cannot do
+ * the job: the browser matrix (one browser per JVM) and shards. Children
+ * get this JVM's -D overrides plus their own settings, and write their
+ * console output to a log file.
+ */
+final class ForkedRuns {
+
+    private final long start = System.nanoTime();
+    private final Map<String, Process> processes = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<Long>> finished = new LinkedHashMap<>();
+
+    /**
+     * Starts java -cp &lt;this classpath&gt; -D&lt;overrides&gt; mainClass args
+     *
+     * @param settings -D settings of this run, replacing the parent's value of the same key
+     */
+    void start(String name, String mainClass, List<String> args, Map<String, String> settings, Path log)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        Map<String, String> properties = new LinkedHashMap<>(FrameworkConfig.get().getSystemOverrides());
+        properties.putAll(settings);
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            command.add("-D" + property.getKey() + "=" + property.getValue());
+        }
+        command.add(mainClass);
+        command.addAll(args);
+
+        Files.createDirectories(log.toAbsolutePath().getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        processes.put(name, process);
+        // Each run's wall time ends when its JVM exits, not when we get round to waiting for it
+        finished.put(name, process.onExit().thenApply(exited -> (System.nanoTime() - start) / 1_000_000));
+    }
+
+    /**
+     * Waits for every run, filling in wall times and exit codes in start order
+     *
+     * @return 0 when every run exited with 0, otherwise the first non-zero exit code
+     */
+    int awaitAll(Map<String, Long> wallMillis, Map<String, Integer> exitCodes) throws InterruptedException {
+        int status = 0;
+        for (Map.Entry<String, Process> entry : processes.entrySet()) {
+            int exitCode = entry.getValue().waitFor();
+            exitCodes.put(entry.getKey(), exitCode);
+            wallMillis.put(entry.getKey(), finished.get(entry.getKey()).join());
+            status = status != 0 ? status : exitCode;
+        }
+        return status;
+    }
+}
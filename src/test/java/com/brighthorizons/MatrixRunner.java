@@ -0,0 +1,77 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import com.brighthorizons.utils.FrameworkConfig;
+import com.brighthorizons.utils.ReportMerger;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the feature set on every browser in {@code matrix.browsers} at the
+ * same time. DriverManager picks one browser per JVM, so each browser gets
+ * its own JVM running the {@link ParallelRunner} arguments with:
+ *
+ * - {@code matrix.<browser>.threads} scenario threads (default
+ *   {@code matrix.threads}) and a driver pool of the same size
+ * - its reports in target/cucumber-reports/matrix/&lt;browser&gt;, console
+ *   output in console.log there
+ *
+ * When all browsers are done the reports are merged into
+ * target/cucumber-reports/matrix, tagged by browser, with per-browser
+ * timings in matrix-summary.json.
+ *
+ * Run with: mvn clean test -Pmatrix
+ */
+public class MatrixRunner {
+
+    private static final String MATRIX_DIR = ParallelRunner.DEFAULT_REPORT_DIR + "/matrix";
+
+    @Test
+    public void runFeaturesOnAllBrowsers() throws Exception {
+        Assert.assertEquals("Some browsers had failures, see " + MATRIX_DIR, 0, run());
+    }
+
+    /**
+     * Starts one run per browser and waits for all of them
+     *
+     * @return 0 when every browser passed, otherwise the first non-zero exit code
+     */
+    static int run() throws IOException, InterruptedException {
+        ForkedRuns runs = new ForkedRuns();
+        for (String browser : FrameworkConfig.get().getList("matrix.browsers")) {
+            String dir = MATRIX_DIR + "/" + browser;
+            int threads = Math.max(1, ConfigReader.getIntProperty("matrix." + browser + ".threads",
+                    ConfigReader.getIntProperty("matrix.threads", 2)));
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put("browser", browser);
+            settings.put("report.dir", dir);
+            settings.put("parallel.threads", String.valueOf(threads));
+            settings.put("driver.pool.max.size", String.valueOf(threads));
+
+            Path log = Paths.get(dir, "console.log");
+            System.out.println("Starting " + browser + " with " + threads + " threads, output in " + log);
+            runs.start(browser, "io.cucumber.core.cli.Main",
+                    Arrays.asList(ParallelRunner.buildArguments(dir, threads)), settings, log);
+        }
+
+        Map<String, Long> wallMillis = new LinkedHashMap<>();
+        Map<String, Integer> exitCodes = new LinkedHashMap<>();
+        int status = runs.awaitAll(wallMillis, exitCodes);
+        ReportMerger.mergeBrowsers(Paths.get(MATRIX_DIR), wallMillis, exitCodes);
+        return status;
+    }
+
+    /**
+     * Main method to run the matrix directly
+     */
+    public static void main(String[] args) throws Exception {
+        System.exit(run());
+    }
+}
@@ -0,0 +1,89 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import io.cucumber.junit.CucumberOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the same features, glue and reports as {@link TestRunner}, but
+ * executes scenarios concurrently on the number of threads configured by
+ * {@code parallel.threads}. Each thread gets its own WebDriver through
+ * DriverManager, and Cucumber merges all events into the single report set
+ * under target/cucumber-reports. Failed scenarios are rerun up to
+ * {@code retry.scenario.count} times (see {@link Reruns}).
+ *
+ * Run with: mvn clean test -Pparallel
+ */
+public class ParallelRunner {
+
+    // Where TestRunner's plugins write their reports
+    static final String DEFAULT_REPORT_DIR = "target/cucumber-reports";
+
+    @Test
+    public void runScenariosInParallel() {
+        Assert.assertEquals("Some scenarios failed, see target/cucumber-reports", 0, run());
+    }
+
+    // Failed scenarios are rerun up to retry.scenario.count times before the run counts as failed
+    static byte run() {
+        return Reruns.run(DEFAULT_REPORT_DIR, ConfigReader.getIntProperty("parallel.threads", 4),
+                Arrays.asList(TestRunner.class.getAnnotation(CucumberOptions.class).features()),
+                ConfigReader.getIntProperty("retry.scenario.count", 0));
+    }
+
+    /**
+     * Builds Cucumber CLI arguments from TestRunner's @CucumberOptions so
+     * both runners always share one configuration
+     */
+    static String[] buildArguments() {
+        return buildArguments(DEFAULT_REPORT_DIR, ConfigReader.getIntProperty("parallel.threads", 4));
+    }
+
+    /**
+     * Same arguments with the report plugins writing to reportDir instead,
+     * e.g. one directory per browser in a matrix run
+     */
+    static String[] buildArguments(String reportDir, int threads) {
+        return buildArguments(reportDir, threads,
+                Arrays.asList(TestRunner.class.getAnnotation(CucumberOptions.class).features()));
+    }
+
+    /**
+     * Same arguments running only the given features, e.g. a shard's
+     * path:line list
+     */
+    static String[] buildArguments(String reportDir, int threads, List<String> features) {
+        CucumberOptions options = TestRunner.class.getAnnotation(CucumberOptions.class);
+        List<String> args = new ArrayList<>();
+
+        for (String glue : options.glue()) {
+            args.add("--glue");
+            args.add(glue);
+        }
+        for (String plugin : options.plugin()) {
+            args.add("--plugin");
+            args.add(plugin.replace(DEFAULT_REPORT_DIR, reportDir));
+        }
+        if (options.monochrome()) {
+            args.add("--monochrome");
+        }
+
+        args.add("--threads");
+        args.add(String.valueOf(Math.max(1, threads)));
+
+        args.addAll(features);
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * Main method to run the scenarios in parallel directly
+     */
+    public static void main(String[] args) {
+        System.exit(run());
+    }
+}
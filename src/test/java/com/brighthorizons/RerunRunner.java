@@ -0,0 +1,37 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Reruns only the scenarios that failed in the last run, as listed in the
+ * rerun.txt of its report directory, with the glue and reports of
+ * {@link TestRunner}. Runs up to {@code retry.scenario.count} rounds (at
+ * least one), each with its reports in rerun-N under that directory.
+ *
+ * Run with: mvn test -Prerun (without clean, the last run's rerun.txt is in target)
+ */
+public class RerunRunner {
+
+    @Test
+    public void rerunFailedScenarios() {
+        Assert.assertEquals("Some scenarios failed again, see " + reportDir() + "/rerun-*", 0, run());
+    }
+
+    static byte run() {
+        return Reruns.retryFailed(reportDir(), ConfigReader.getIntProperty("parallel.threads", 4), (byte) 1,
+                Math.max(1, ConfigReader.getIntProperty("retry.scenario.count", 1)));
+    }
+
+    private static String reportDir() {
+        return ConfigReader.getProperty("report.dir", ParallelRunner.DEFAULT_REPORT_DIR);
+    }
+
+    /**
+     * Main method to rerun the failed scenarios directly
+     */
+    public static void main(String[] args) {
+        System.exit(run());
+    }
+}
@@ -0,0 +1,111 @@
+package com.brighthorizons;
+
+import io.cucumber.core.cli.Main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs a feature set and then only its failed scenarios again, read from
+ * the rerun.txt that Cucumber's rerun plugin leaves in the report
+ * directory. Every round writes its reports, and the rerun.txt of what
+ * still failed, to rerun-N under the first run's report directory.
+ * Scenarios that passed in a later round are listed in flaky.txt.
+ */
+final class Reruns {
+
+    static final String RERUN_FILE = "rerun.txt";
+
+    // path:9:21, the lines of the failed scenarios in one feature file
+    private static final Pattern FEATURE_LINES = Pattern.compile("(.*?)((?::\\d+)+)");
+
+    // Private constructor prevents creating instances
+    private Reruns() {
+    }
+
+    /**
+     * Runs the features, then the failed scenarios at most rounds more times
+     *
+     * @return the exit status of the last round
+     */
+    static byte run(String reportDir, int threads, List<String> features, int rounds) {
+        byte status = Main.run(ParallelRunner.buildArguments(reportDir, threads, features),
+                Thread.currentThread().getContextClassLoader());
+        return retryFailed(reportDir, threads, status, rounds);
+    }
+
+    /**
+     * Reruns what failed in the run that wrote reportDir, round after round
+     * until everything passed or the rounds are used up
+     *
+     * @param status exit status of that run, nothing is rerun when it is 0
+     */
+    static byte retryFailed(String reportDir, int threads, byte status, int rounds) {
+        Path failed = Paths.get(reportDir, RERUN_FILE);
+        List<String> flaky = new ArrayList<>();
+        for (int round = 1; round <= rounds && status != 0; round++) {
+            List<String> retried = scenarios(failed);
+            if (retried.isEmpty()) {
+                // Failed outside any scenario, e.g. in a hook or the glue, a rerun would not help
+                break;
+            }
+            String roundDir = reportDir + "/rerun-" + round;
+            System.out.println("Rerunning " + retried.size() + " failed scenarios (round " + round + " of " + rounds
+                    + "), reports in " + roundDir);
+            status = Main.run(ParallelRunner.buildArguments(roundDir, threads,
+                    Collections.singletonList("@" + failed)), Thread.currentThread().getContextClassLoader());
+
+            failed = Paths.get(roundDir, RERUN_FILE);
+            Set<String> stillFailing = new HashSet<>(scenarios(failed));
+            for (String scenario : retried) {
+                if (!stillFailing.contains(scenario)) {
+                    flaky.add(scenario);
+                }
+            }
+        }
+
+        if (!flaky.isEmpty()) {
+            Path report = Paths.get(reportDir, "flaky.txt");
+            try {
+                Files.write(report, flaky, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write " + report, e);
+            }
+            System.out.println(flaky.size() + " scenarios passed on a rerun, listed in " + report);
+        }
+        return status;
+    }
+
+    // The scenarios of a rerun file as path:line, empty when there is no file
+    static List<String> scenarios(Path rerunFile) {
+        List<String> scenarios = new ArrayList<>();
+        if (!Files.exists(rerunFile)) {
+            return scenarios;
+        }
+        try {
+            for (String entry : new String(Files.readAllBytes(rerunFile), StandardCharsets.UTF_8).split("\\s+")) {
+                Matcher matcher = FEATURE_LINES.matcher(entry);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                for (String line : matcher.group(2).substring(1).split(":")) {
+                    scenarios.add(matcher.group(1) + ":" + line);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + rerunFile, e);
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,63 @@
+package com.brighthorizons;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class RerunsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void oneScenarioPerLine() throws IOException {
+        Path rerun = rerunFile("src/test/resources/features/a.feature:3:9 src/test/resources/features/b.feature:12\n");
+
+        assertEquals(Arrays.asList("src/test/resources/features/a.feature:3", "src/test/resources/features/a.feature:9",
+                "src/test/resources/features/b.feature:12"), Reruns.scenarios(rerun));
+    }
+
+    @Test
+    public void anyWhitespaceSeparatesFiles() throws IOException {
+        Path rerun = rerunFile("a.feature:1\n\nb.feature:2\r\n\tc.feature:3:4  ");
+
+        assertEquals(Arrays.asList("a.feature:1", "b.feature:2", "c.feature:3", "c.feature:4"),
+                Reruns.scenarios(rerun));
+    }
+
+    @Test
+    public void keepsDriveLettersAndUriSchemes() throws IOException {
+        Path rerun = rerunFile("C:/build/features/a.feature:7 file:/ci/features/b.feature:8:11");
+
+        assertEquals(Arrays.asList("C:/build/features/a.feature:7", "file:/ci/features/b.feature:8",
+                "file:/ci/features/b.feature:11"), Reruns.scenarios(rerun));
+    }
+
+    @Test
+    public void skipsEntriesWithoutLines() throws IOException {
+        Path rerun = rerunFile("features/whole.feature features/a.feature:5");
+
+        assertEquals(Collections.singletonList("features/a.feature:5"), Reruns.scenarios(rerun));
+    }
+
+    @Test
+    public void noFileOrAnEmptyOneMeansNothingFailed() throws IOException {
+        assertEquals(Collections.emptyList(), Reruns.scenarios(folder.getRoot().toPath().resolve("missing.txt")));
+        assertEquals(Collections.emptyList(), Reruns.scenarios(rerunFile("")));
+    }
+
+    private Path rerunFile(String content) throws IOException {
+        Path rerun = folder.newFile(Reruns.RERUN_FILE).toPath();
+        Files.write(rerun, content.getBytes(StandardCharsets.UTF_8));
+        return rerun;
+    }
+}
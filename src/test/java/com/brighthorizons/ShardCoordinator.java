@@ -0,0 +1,109 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import com.brighthorizons.utils.ReportMerger;
+import com.brighthorizons.utils.ShardPlanner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Runs all {@code shard.count} shards on this machine, each in its own JVM
+ * with {@code shard.threads} scenario threads and its reports in
+ * target/cucumber-reports/shard-N, then merges them into
+ * target/cucumber-reports. The merged CucumberTestReport.json is copied to
+ * {@code shard.history.file}, where the next run's plan takes its
+ * durations from.
+ *
+ * Shards run on other machines are merged by copying their report
+ * directories into target/cucumber-reports/shard-N and running this class
+ * with the argument "merge".
+ *
+ * Run with: mvn clean test -Pshards -Dshard.count=4
+ */
+public class ShardCoordinator {
+
+    @Test
+    public void runAllShards() throws Exception {
+        Assert.assertEquals("Some shards had failures, see " + reportDir(), 0, run());
+    }
+
+    static int run() throws IOException, InterruptedException {
+        int count = Math.max(1, ConfigReader.getIntProperty("shard.count", 1));
+        int threads = Math.max(1, ConfigReader.getIntProperty("shard.threads", 1));
+        for (ShardPlanner.Shard shard : ShardRunner.plan(count)) {
+            System.out.println("Planned " + shard);
+        }
+
+        ForkedRuns runs = new ForkedRuns();
+        for (int index = 0; index < count; index++) {
+            String name = "shard-" + index;
+            String dir = reportDir() + "/" + name;
+            Map<String, String> settings = new LinkedHashMap<>();
+            settings.put("shard.index", String.valueOf(index));
+            settings.put("shard.count", String.valueOf(count));
+            settings.put("report.dir", dir);
+            settings.put("driver.pool.max.size", String.valueOf(threads));
+            runs.start(name, ShardRunner.class.getName(), Collections.emptyList(), settings,
+                    Paths.get(dir, "console.log"));
+        }
+
+        Map<String, Long> wallMillis = new LinkedHashMap<>();
+        Map<String, Integer> exitCodes = new LinkedHashMap<>();
+        int status = runs.awaitAll(wallMillis, exitCodes);
+        ReportMerger.mergeShards(Paths.get(reportDir()), wallMillis, exitCodes);
+        keepHistory();
+        return status;
+    }
+
+    // Merges shard-N directories that were run elsewhere; their wall times are unknown here
+    static void mergeOnly() throws IOException {
+        Map<String, Long> wallMillis = new LinkedHashMap<>();
+        Map<String, Integer> exitCodes = new LinkedHashMap<>();
+        try (Stream<Path> dirs = Files.list(Paths.get(reportDir()))) {
+            dirs.filter(dir -> Files.isDirectory(dir) && dir.getFileName().toString().startsWith("shard-"))
+                    .sorted()
+                    .forEach(dir -> {
+                        wallMillis.put(dir.getFileName().toString(), 0L);
+                        exitCodes.put(dir.getFileName().toString(), null);
+                    });
+        }
+        ReportMerger.mergeShards(Paths.get(reportDir()), wallMillis, exitCodes);
+        keepHistory();
+    }
+
+    // The merged report becomes the next plan's history, out of reach of mvn clean
+    private static void keepHistory() throws IOException {
+        Path history = ShardRunner.historyFile();
+        if (history.getParent() != null) {
+            Files.createDirectories(history.getParent());
+        }
+        Files.copy(Paths.get(reportDir(), ReportMerger.JSON_REPORT), history, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Shard history written to " + history);
+    }
+
+    private static String reportDir() {
+        return ConfigReader.getProperty("report.dir", ParallelRunner.DEFAULT_REPORT_DIR);
+    }
+
+    /**
+     * Main method to run all shards directly, or to merge copied shard
+     * directories with the argument "merge"
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "merge".equals(args[0])) {
+            mergeOnly();
+            return;
+        }
+        System.exit(run());
+    }
+}
@@ -0,0 +1,87 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import com.brighthorizons.utils.ReportMerger;
+import com.brighthorizons.utils.ShardPlanner;
+import io.cucumber.junit.CucumberOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs one shard of the feature set: the scenarios that
+ * {@link ShardPlanner} assigns to {@code shard.index} out of
+ * {@code shard.count}, balanced by the durations in
+ * {@code shard.history.file}. Every shard computes the same plan, so shards
+ * can run on separate machines as long as they share the feature files and
+ * the history file.
+ *
+ * Run with: mvn clean test -Pshard -Dshard.index=0 -Dshard.count=4
+ */
+public class ShardRunner {
+
+    @Test
+    public void runShard() {
+        Assert.assertEquals("Some scenarios failed, see " + reportDir(), 0, run());
+    }
+
+    static byte run() {
+        int count = Math.max(1, ConfigReader.getIntProperty("shard.count", 1));
+        int index = ConfigReader.getIntProperty("shard.index", 0);
+        if (index >= count) {
+            throw new IllegalStateException("shard.index " + index + " is not below shard.count " + count);
+        }
+
+        ShardPlanner.Shard shard = plan(count).get(index);
+        System.out.println("Running " + shard);
+        if (shard.getScenarios().isEmpty()) {
+            return 0;
+        }
+        return Reruns.run(reportDir(), ConfigReader.getIntProperty("shard.threads", 1),
+                featureArguments(shard.getScenarios()), ConfigReader.getIntProperty("retry.scenario.count", 0));
+    }
+
+    // The plan over TestRunner's features, the same in every shard
+    static List<ShardPlanner.Shard> plan(int count) {
+        return ShardPlanner.plan(Arrays.asList(TestRunner.class.getAnnotation(CucumberOptions.class).features()),
+                count, historyFile());
+    }
+
+    // Durations the plan is balanced by, kept outside target/ so mvn clean leaves them
+    static Path historyFile() {
+        return Paths.get(ConfigReader.getProperty("shard.history.file", ".shards/" + ReportMerger.JSON_REPORT));
+    }
+
+    private static String reportDir() {
+        return ConfigReader.getProperty("report.dir", ParallelRunner.DEFAULT_REPORT_DIR);
+    }
+
+    // path:9, path:21 -> path:9:21, one argument per feature file
+    private static List<String> featureArguments(List<String> scenarios) {
+        Map<String, StringBuilder> byFile = new LinkedHashMap<>();
+        for (String scenario : scenarios) {
+            int colon = scenario.lastIndexOf(':');
+            byFile.computeIfAbsent(scenario.substring(0, colon), file -> new StringBuilder(file))
+                    .append(scenario.substring(colon));
+        }
+        List<String> features = new ArrayList<>();
+        for (StringBuilder feature : byFile.values()) {
+            features.add(feature.toString());
+        }
+        return features;
+    }
+
+    /**
+     * Main method to run a shard directly
+     */
+    public static void main(String[] args) {
+        System.exit(run());
+    }
+}
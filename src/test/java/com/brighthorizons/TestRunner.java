@@ -10,8 +10,10 @@ import org.junit.runner.notification.Failure;
 @RunWith(Cucumber.class)
 @CucumberOptions(features = "src/test/resources/features", glue = { "com.brighthorizons.stepdefinitions" }, plugin = {
         "pretty",
-        "html:target/cucumber-reports/cucumber-pretty.html",
-        "json:target/cucumber-reports/CucumberTestReport.json"
+        "com.brighthorizons.utils.StreamingReportPlugin:target/cucumber-reports",
+        "com.brighthorizons.utils.CommandTimingPlugin",
+        "com.brighthorizons.utils.LogContextPlugin",
+        "rerun:target/cucumber-reports/rerun.txt"
 }, monochrome = true)
 public class TestRunner {
     /**
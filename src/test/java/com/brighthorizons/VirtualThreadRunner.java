@@ -0,0 +1,173 @@
+package com.brighthorizons;
+
+import com.brighthorizons.utils.ConfigReader;
+import com.brighthorizons.utils.RunnerPool;
+import com.brighthorizons.utils.VirtualThreadScheduler;
+import io.cucumber.core.eventbus.EventBus;
+import io.cucumber.core.eventbus.RandomUuidGenerator;
+import io.cucumber.core.eventbus.UuidGenerator;
+import io.cucumber.core.feature.FeatureParser;
+import io.cucumber.core.filter.Filters;
+import io.cucumber.core.gherkin.Feature;
+import io.cucumber.core.gherkin.Pickle;
+import io.cucumber.core.options.CommandlineOptionsParser;
+import io.cucumber.core.options.RuntimeOptions;
+import io.cucumber.core.plugin.PluginFactory;
+import io.cucumber.core.plugin.Plugins;
+import io.cucumber.core.runner.Runner;
+import io.cucumber.core.runtime.CucumberExecutionContext;
+import io.cucumber.core.runtime.ExitStatus;
+import io.cucumber.core.runtime.FeaturePathFeatureSupplier;
+import io.cucumber.core.runtime.SynchronizedEventBus;
+import io.cucumber.core.runtime.TimeServiceEventBus;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestRunFinished;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the same features, glue and reports as {@link TestRunner} with every
+ * scenario on its own virtual thread (see {@link VirtualThreadScheduler}).
+ * Browser sessions are capped by driver.pool.max.size and scenarios in
+ * flight by scheduler.max.scenarios.
+ *
+ * Cucumber's Runtime always runs scenarios on its own fixed thread pool
+ * with a runner per thread, so the run is assembled here from the same
+ * cucumber-core parts the Runtime builder uses, with the scheduler as the
+ * executor and a {@link RunnerPool} instead of per-thread runners. Those
+ * parts are cucumber-core internals: the pom pins cucumber.version, and the
+ * run refuses to start on a cucumber-core it was not written against.
+ *
+ * Run with: mvn clean test -Pvirtual
+ */
+public class VirtualThreadRunner {
+
+    // cucumber-core release whose runtime internals this runner mirrors
+    static final String SUPPORTED_CUCUMBER = "7.14";
+
+    @Test
+    public void runScenariosOnVirtualThreads() throws Exception {
+        Assert.assertEquals("Some scenarios failed, see target/cucumber-reports", 0, run());
+    }
+
+    static byte run() {
+        int maxScenarios = Math.max(1, ConfigReader.getIntProperty("scheduler.max.scenarios", 64));
+        // Scenarios always run concurrently here, so --threads is at least 2 and the run is multi-threaded
+        return run(ParallelRunner.buildArguments(ParallelRunner.DEFAULT_REPORT_DIR, Math.max(2, maxScenarios)),
+                maxScenarios);
+    }
+
+    // Runs the scenarios selected by Cucumber command line arguments
+    static byte run(String[] args, int maxScenarios) {
+        checkCucumberVersion();
+        RuntimeOptions options = new CommandlineOptionsParser(System.out)
+                .parse(args)
+                .addDefaultSummaryPrinterIfNotDisabled()
+                .build();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        Supplier<ClassLoader> classLoader = () -> loader;
+
+        EventBus bus = SynchronizedEventBus.synchronize(
+                new TimeServiceEventBus(Clock.systemUTC(), uuidGenerator(options)::generateId));
+        Plugins plugins = new Plugins(new PluginFactory(), options);
+        ExitStatus exitStatus = new ExitStatus(options);
+        plugins.addPlugin(exitStatus);
+        // As in Runtime.Builder: plain EventListener plugins (json, junit, ...) get each test case's events
+        // together and in order, only ConcurrentEventListener plugins see them interleaved
+        if (options.isMultiThreaded()) {
+            plugins.setSerialEventBusOnEventListenerPlugins(bus);
+        } else {
+            plugins.setEventBusOnEventListenerPlugins(bus);
+        }
+        // ExitStatus keeps its verdict package-private, the same rule is applied here
+        AtomicBoolean failed = new AtomicBoolean();
+        bus.registerHandlerFor(TestCaseFinished.class, event -> {
+            if (!event.getResult().getStatus().isOk()) {
+                failed.set(true);
+            }
+        });
+        bus.registerHandlerFor(TestRunFinished.class, event -> {
+            if (event.getResult().getError() != null) {
+                failed.set(true);
+            }
+        });
+
+        RunnerPool runners = new RunnerPool(options, bus, classLoader);
+        CucumberExecutionContext context = new CucumberExecutionContext(bus, exitStatus, runners);
+        List<Feature> features = new FeaturePathFeatureSupplier(classLoader, options,
+                new FeatureParser(bus::generateId)).get();
+        Filters filters = new Filters(options);
+        VirtualThreadScheduler scheduler = new VirtualThreadScheduler(maxScenarios);
+
+        context.runFeatures(() -> {
+            features.forEach(context::beforeFeature);
+            List<Pickle> pickles = options.getPickleOrder().orderPickles(features.stream()
+                    .flatMap(feature -> feature.getPickles().stream())
+                    .filter(filters)
+                    .collect(Collectors.toList()));
+            if (options.getLimitCount() > 0 && pickles.size() > options.getLimitCount()) {
+                pickles = pickles.subList(0, options.getLimitCount());
+            }
+            List<Future<?>> scenarios = new ArrayList<>();
+            for (Pickle pickle : pickles) {
+                scenarios.add(scheduler.submit(() -> runners.withRunner(
+                        () -> context.runTestCase(runner -> runner.runPickle(pickle)))));
+            }
+            scheduler.shutdown();
+            try {
+                for (Future<?> scenario : scenarios) {
+                    scenario.get();
+                }
+            } catch (ExecutionException e) {
+                // Failed scenarios are reported through events, this is the framework itself failing
+                throw e.getCause();
+            } catch (InterruptedException e) {
+                scheduler.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        });
+        System.out.println("Virtual thread scheduler: peak scenarios in flight=" + scheduler.getPeakScenarios()
+                + ", Cucumber runners built=" + runners.getRunnersBuilt());
+        return (byte) (failed.get() ? 1 : 0);
+    }
+
+    // --uuid-generator when given, otherwise Cucumber's default
+    private static UuidGenerator uuidGenerator(RuntimeOptions options) {
+        Class<? extends UuidGenerator> configured = options.getUuidGeneratorClass();
+        if (configured == null) {
+            return new RandomUuidGenerator();
+        }
+        try {
+            return configured.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create UUID generator " + configured.getName(), e);
+        }
+    }
+
+    // Fails before anything runs when cucumber-core is not the release this runner was written against
+    static void checkCucumberVersion() {
+        String version = Runner.class.getPackage().getImplementationVersion();
+        if (version != null && !version.equals(SUPPORTED_CUCUMBER) && !version.startsWith(SUPPORTED_CUCUMBER + ".")) {
+            throw new IllegalStateException("VirtualThreadRunner builds on cucumber-core " + SUPPORTED_CUCUMBER
+                    + " internals but found cucumber-core " + version + "; check it against the new release and "
+                    + "update SUPPORTED_CUCUMBER, or run with -Pparallel");
+        }
+    }
+
+    /**
+     * Main method to run the scenarios on virtual threads directly
+     */
+    public static void main(String[] args) throws Exception {
+        System.exit(run());
+    }
+}
@@ -1,76 +1,141 @@
 package com.brighthorizons.pages;
 
+import com.brighthorizons.utils.PageCache;
+import com.brighthorizons.utils.ReadinessGate;
+import com.brighthorizons.utils.RetryPolicy;
+import com.brighthorizons.utils.ScriptLocator;
+import com.brighthorizons.utils.WaitRegistry;
 import com.brighthorizons.utils.WaitUtility;
 import org.openqa.selenium.*;
-import org.openqa.selenium.support.PageFactory;
-import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class BasePage {
+    // arguments: using, value; returns text, visibility and document rect of every match
+    private static final String EXTRACT_SCRIPT =
+            "var using = arguments[0], value = arguments[1];"
+            + ScriptLocator.FIND_FUNCTION
+            + ScriptLocator.VISIBLE_FUNCTION
+            + "return find(using, value).map(function (el) {"
+            + "  var visible = isVisible(el);"
+            + "  var rect = el.getBoundingClientRect();"
+            + "  return {"
+            + "    text: ((visible ? el.innerText : el.textContent) || '').trim(),"
+            + "    visible: visible,"
+            + "    x: rect.left + window.pageXOffset, y: rect.top + window.pageYOffset,"
+            + "    width: rect.width, height: rect.height"
+            + "  };"
+            + "});";
+
+    private static final String TEXT_CONTENT_SCRIPT = "return arguments[0].textContent;";
+
+    static {
+        PageCache.registerReadOnlyScript(EXTRACT_SCRIPT);
+        PageCache.registerReadOnlyScript(TEXT_CONTENT_SCRIPT);
+    }
+
+    private static final int DEFAULT_TIMEOUT = WaitRegistry.Tier.DEFAULT.getSeconds();
+
     protected WebDriver driver;
-    protected WebDriverWait wait;
-    private final int DEFAULT_TIMEOUT = 20;
+    // Named after the concrete page, e.g. HomePage
+    protected final Logger log = LoggerFactory.getLogger(getClass());
 
     public BasePage(WebDriver driver) {
         this.driver = driver;
-        this.wait = new WebDriverWait(driver, Duration.ofSeconds(DEFAULT_TIMEOUT));
-        PageFactory.initElements(driver, this);
     }
 
-    public void click(WebElement element) {
+    /**
+     * Clicks once the element is clickable, retried per retry.policies. The
+     * element is looked up for every attempt, so a retry after a stale
+     * reference works on a fresh one. An element that never takes a native
+     * click, e.g. one under an overlay, gets a JavaScript click as a last
+     * resort.
+     *
+     * @param element Looks the element up, may return null when it is not there
+     */
+    public void click(Supplier<WebElement> element) {
+        AtomicReference<WebElement> found = new AtomicReference<>();
         try {
-            WaitUtility.waitForElementClickable(driver, element).click();
-        } catch (ElementClickInterceptedException e) {
-            // Try with JavaScript click if normal click is intercepted
-            try {
-                JavascriptExecutor js = (JavascriptExecutor) driver;
-                js.executeScript("arguments[0].click();", element);
-            } catch (Exception ex) {
-                System.out.println("Failed to click element using JavaScript");
-            }
-        } catch (Exception e) {
-            // Retry after a short wait
-            try {
-                WaitUtility.waitForElementClickable(driver, element, 1);
-                JavascriptExecutor js = (JavascriptExecutor) driver;
-                js.executeScript("arguments[0].click();", element);
-            } catch (Exception ex) {
-                System.out.println("Failed to click element after retry");
-            }
+            RetryPolicy.run("click", () -> clickable(locate(element, found)).click());
+        } catch (WebDriverException e) {
+            fallBack(e, found, target -> ((JavascriptExecutor) driver).executeScript("arguments[0].click();", target));
         }
     }
 
-    public void sendKeys(WebElement element, String text) {
+    public void sendKeys(Supplier<WebElement> element, String text) {
+        AtomicReference<WebElement> found = new AtomicReference<>();
         try {
-            WaitUtility.waitForElementVisible(driver, element);
-            element.clear();
-            element.sendKeys(text);
-        } catch (Exception e) {
-            try {
-                // Try with JavaScript if normal sendKeys fails
-                JavascriptExecutor js = (JavascriptExecutor) driver;
-                js.executeScript("arguments[0].value='" + text + "';", element);
-            } catch (Exception ex) {
-                System.out.println("Failed to send keys to element using JavaScript");
-            }
+            RetryPolicy.run("sendKeys", () -> {
+                WebElement input = visible(locate(element, found));
+                input.clear();
+                input.sendKeys(text);
+            });
+        } catch (WebDriverException e) {
+            // Set the value directly if typing keeps failing
+            fallBack(e, found, target -> ((JavascriptExecutor) driver)
+                    .executeScript("arguments[0].value = arguments[1];", target, text));
         }
     }
 
-    protected String getText(WebElement element) {
+    protected String getText(Supplier<WebElement> element) {
+        AtomicReference<WebElement> found = new AtomicReference<>();
         try {
-            return WaitUtility.waitForElementVisible(driver, element).getText();
-        } catch (Exception e) {
-            try {
-                // Try with JavaScript if normal getText fails
-                JavascriptExecutor js = (JavascriptExecutor) driver;
-                return (String) js.executeScript("return arguments[0].textContent;", element);
-            } catch (Exception ex) {
-                System.out.println("Failed to get text from element using JavaScript");
-                return "";
-            }
+            return RetryPolicy.call("getText", () -> visible(locate(element, found)).getText());
+        } catch (WebDriverException e) {
+            // Hidden text is still readable through textContent
+            Object text = fallBack(e, found,
+                    target -> ((JavascriptExecutor) driver).executeScript(TEXT_CONTENT_SCRIPT, target));
+            return text != null ? text.toString() : "";
+        }
+    }
+
+    // Looks the element up for this attempt and keeps it for the fallback
+    private static WebElement locate(Supplier<WebElement> element, AtomicReference<WebElement> found) {
+        WebElement located = element.get();
+        if (located == null) {
+            throw new NoSuchElementException("Element to act on was not found");
+        }
+        found.set(located);
+        return located;
+    }
+
+    // The waits return null when they time out, which has to reach the fallbacks as a WebDriverException
+    private WebElement clickable(WebElement element) {
+        WebElement clickable = WaitUtility.waitForElementClickable(driver, element);
+        if (clickable == null) {
+            throw new TimeoutException("Element did not become clickable: " + element);
+        }
+        return clickable;
+    }
+
+    private WebElement visible(WebElement element) {
+        WebElement visible = WaitUtility.waitForElementVisible(driver, element);
+        if (visible == null) {
+            throw new TimeoutException("Element did not become visible: " + element);
+        }
+        return visible;
+    }
+
+    // Runs the JavaScript fallback on the element the last attempt found; if there is none or the fallback fails
+    // too, the action's own failure is thrown
+    private static <T> T fallBack(WebDriverException failure, AtomicReference<WebElement> found,
+            Function<WebElement, T> fallback) {
+        if (found.get() == null) {
+            throw failure;
+        }
+        try {
+            return fallback.apply(found.get());
+        } catch (WebDriverException e) {
+            failure.addSuppressed(e);
+            throw failure;
         }
     }
 
@@ -78,6 +143,76 @@ public class BasePage {
         return WaitUtility.waitForElementsVisible(driver, locator);
     }
 
+    /**
+     * Reads text, visibility and bounding box of every element matching the
+     * locator in a single script call. Repeated reads of an unchanged page
+     * are served from the page cache.
+     *
+     * @param locator The locator of the elements, xpath and css selectors are read in one call
+     * @return One snapshot per match, in document order
+     */
+    protected List<ElementSnapshot> extractElements(By locator) {
+        return cached("extractElements " + locator, () -> readElements(locator));
+    }
+
+    /**
+     * Same as extractElements, waiting for all matches to be visible first
+     * when they are not already
+     */
+    protected List<ElementSnapshot> extractVisibleElements(By locator) {
+        List<ElementSnapshot> snapshots = extractElements(locator);
+        if (!snapshots.isEmpty() && snapshots.stream().allMatch(ElementSnapshot::isVisible)) {
+            return snapshots;
+        }
+        waitForElementsVisible(locator);
+        // The page changed while waiting, the earlier snapshot is stale
+        invalidateCache();
+        return extractElements(locator);
+    }
+
+    /**
+     * Result of the query for the page as it is now, reused until the page
+     * changes. Null and empty results are never cached.
+     *
+     * @param key Identifies the query, shared by every page object on the same session
+     */
+    protected <T> T cached(String key, Supplier<T> query) {
+        PageCache cache = PageCache.forDriver(driver);
+        return cache != null ? cache.get(driver, key, query) : query.get();
+    }
+
+    // Forget everything cached for the current page
+    protected void invalidateCache() {
+        PageCache cache = PageCache.forDriver(driver);
+        if (cache != null) {
+            cache.invalidate();
+        }
+    }
+
+    private List<ElementSnapshot> readElements(By locator) {
+        List<ElementSnapshot> snapshots = new ArrayList<>();
+        if (!ScriptLocator.supports(locator)) {
+            // Other locator types are read element by element
+            for (WebElement element : driver.findElements(locator)) {
+                boolean visible = isElementDisplayed(element);
+                String text = visible ? element.getText().trim()
+                        : String.valueOf(((JavascriptExecutor) driver)
+                                .executeScript(TEXT_CONTENT_SCRIPT, element)).trim();
+                snapshots.add(new ElementSnapshot(text, visible, element.getRect()));
+            }
+            return Collections.unmodifiableList(snapshots);
+        }
+
+        Object result = ((JavascriptExecutor) driver).executeScript(EXTRACT_SCRIPT,
+                ScriptLocator.using(locator), ScriptLocator.value(locator));
+        if (result instanceof List) {
+            for (Object entry : (List<?>) result) {
+                snapshots.add(ElementSnapshot.fromScriptResult((Map<?, ?>) entry));
+            }
+        }
+        return Collections.unmodifiableList(snapshots);
+    }
+
     /**
      * Scrolls to a specific element
      * 
@@ -90,7 +225,7 @@ public class BasePage {
             // Add a small wait after scrolling
             WaitUtility.waitForElementVisible(driver, element, 1);
         } catch (Exception e) {
-            System.out.println("Failed to scroll to element: " + e.getMessage());
+            log.debug("Failed to scroll to {}: {}", locator, e.getMessage());
         }
     }
 
@@ -100,7 +235,7 @@ public class BasePage {
             // Add a wait after scrolling to bottom
             WaitUtility.waitForPageLoad(driver, 2);
         } catch (Exception e) {
-            System.out.println("Failed to scroll to bottom");
+            log.debug("Failed to scroll to bottom: {}", e.getMessage());
         }
     }
 
@@ -112,8 +247,22 @@ public class BasePage {
         }
     }
 
+    /**
+     * Conditions this page needs before it can be used. They replace the
+     * full page load wait when the browser runs with the EAGER or NONE page
+     * load strategy; pages without gates wait for the parsed DOM instead.
+     */
+    protected List<ReadinessGate> readinessGates() {
+        return Collections.emptyList();
+    }
+
     protected void waitForPageLoad() {
-        WaitUtility.waitForPageLoad(driver);
+        List<ReadinessGate> gates = readinessGates();
+        if (gates.isEmpty() || WaitUtility.waitsForFullLoad()) {
+            WaitUtility.waitForPageLoad(driver);
+        } else {
+            WaitUtility.waitForReadiness(driver, gates, DEFAULT_TIMEOUT);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.brighthorizons.pages;
+
+import org.openqa.selenium.Rectangle;
+
+import java.util.Map;
+
+/**
+ * Text, visibility and bounding box of one element, read together with
+ * every other match of a locator by {@link BasePage#extractElements}.
+ */
+public class ElementSnapshot {
+
+    private final String text;
+    private final boolean visible;
+    private final Rectangle rect;
+
+    public ElementSnapshot(String text, boolean visible, Rectangle rect) {
+        this.text = text;
+        this.visible = visible;
+        this.rect = rect;
+    }
+
+    // Build from one entry of the extraction script result
+    static ElementSnapshot fromScriptResult(Map<?, ?> entry) {
+        return new ElementSnapshot(
+                entry.get("text") != null ? entry.get("text").toString() : "",
+                Boolean.TRUE.equals(entry.get("visible")),
+                new Rectangle(toInt(entry.get("x")), toInt(entry.get("y")),
+                        toInt(entry.get("height")), toInt(entry.get("width"))));
+    }
+
+    private static int toInt(Object value) {
+        return value instanceof Number ? (int) Math.round(((Number) value).doubleValue()) : 0;
+    }
+
+    // Trimmed rendered text, or textContent for hidden elements
+    public String getText() {
+        return text;
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    // Position in document coordinates, like WebElement.getRect()
+    public Rectangle getRect() {
+        return rect;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("\"%s\" visible=%s rect=%dx%d@%d,%d", text, visible,
+                rect.getWidth(), rect.getHeight(), rect.getX(), rect.getY());
+    }
+}
@@ -3,18 +3,23 @@ package com.brighthorizons.pages;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.Keys;
+import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.FindBy;
+import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-//import com.brighthorizons.utils.ConfigReader;
+import com.brighthorizons.utils.CommandMetrics;
+import com.brighthorizons.utils.ConfigReader;
 import com.brighthorizons.utils.DriverManager;
+import com.brighthorizons.utils.LocatorChain;
+import com.brighthorizons.utils.ReadinessGate;
 import com.brighthorizons.utils.WaitUtility;
 
 /**
@@ -22,15 +27,17 @@ import com.brighthorizons.utils.WaitUtility;
  */
 public class HomePage extends BasePage {
 
-    // Search elements with more reliable locators
-    @FindBy(xpath = "//a[@id='search-toggle'] | //a[contains(@class, 'search')] | //button[contains(@class, 'search')]")
-    private WebElement searchIcon;
+    // Search elements, candidates in order of preference are raced in one poll
+    private static final LocatorChain searchIcon = new LocatorChain("HomePage.searchIcon",
+            By.xpath("//a[@id='search-toggle']"),
+            By.xpath("//a[contains(@class, 'search')] | //button[contains(@class, 'search')]"));
 
-    @FindBy(xpath = "//input[@id='search-field'][1]")
-    private WebElement searchInput;
+    private static final LocatorChain searchInput = new LocatorChain("HomePage.searchInput",
+            By.xpath("//input[@id='search-field'][1]"),
+            By.xpath("//input[@type='search'] | //input[@name='q'] | //input[contains(@placeholder, 'search')]"));
 
-    @FindBy(xpath = "//button[@type='submit']")
-    private WebElement searchSubmitButton;
+    private static final LocatorChain searchSubmitButton = new LocatorChain("HomePage.searchSubmitButton",
+            By.xpath("//button[@type='submit']"));
 
     // Footer titles
     private final By footerTitles = By.xpath("//footer//h2 | //footer//h3 | //div[contains(@class, 'footer')]//h2");
@@ -43,6 +50,12 @@ public class HomePage extends BasePage {
         this.driverManager = DriverManager.getInstance();
     }
 
+    // Usable once search can be opened and the footer has been parsed
+    @Override
+    protected List<ReadinessGate> readinessGates() {
+        return Arrays.asList(ReadinessGate.interactive(searchIcon), ReadinessGate.present(footerTitles));
+    }
+
     /**
      * Navigate to homepage and handle cookies
      */
@@ -53,9 +66,9 @@ public class HomePage extends BasePage {
 
         // Accept cookies if present
         try {
-            WebElement acceptCookies = driver.findElement(By.xpath("//button[contains(@class, 'cookie')]"));
-            if (acceptCookies.isDisplayed()) {
-                click(acceptCookies);
+            By acceptCookies = By.xpath("//button[contains(@class, 'cookie')]");
+            if (driver.findElement(acceptCookies).isDisplayed()) {
+                click(() -> driver.findElement(acceptCookies));
             }
         } catch (Exception ignored) {
             // Continue if no cookie banner
@@ -66,18 +79,12 @@ public class HomePage extends BasePage {
      * Click search icon with explicit wait
      */
     public void clickSearchIcon() {
+        // Ensure page is ready before clicking
+        waitForPageLoad();
         try {
-            // Ensure page is ready before clicking
-            waitForPageLoad();
-            WaitUtility.waitForElementClickable(driver, searchIcon);
-            click(searchIcon);
-        } catch (Exception e) {
-            // Fallback with explicit wait
-            WebElement element = WaitUtility.waitForElementClickable(
-                    driver,
-                    By.xpath("//a[contains(@class, 'search')] | //button[contains(@class, 'search')]"),
-                    10);
-            click(element);
+            click(() -> searchIcon.waitForClickable(driver, 20));
+        } catch (NoSuchElementException e) {
+            log.warn("Failed to find search icon: {}", searchIcon);
         }
     }
 
@@ -85,42 +92,68 @@ public class HomePage extends BasePage {
      * Enter search text with JavaScript fallback
      */
     public void enterSearchText(String searchText) {
+        int commandsBefore = CommandMetrics.commandCount();
         try {
             // Wait for search input to be visible and clear it first
-            WebElement input = WaitUtility.waitForElementVisible(driver, searchInput, 10);
+            WebElement input = searchInput.waitForVisible(driver, 10);
+            if (input == null) {
+                throw new NoSuchElementException("Search input not found: " + searchInput);
+            }
             input.clear();
 
-            // Type with brief pauses
-            for (char c : searchText.toCharArray()) {
-                input.sendKeys(String.valueOf(c));
-                WaitUtility.setImplicitWait(driver, 0); // temporarily disable implicit wait
-                try {
-                    // Use a minimal delay between keypresses for stability
-                    WaitUtility.waitForPageLoad(driver, 1);
-                } finally {
-                    WaitUtility.resetImplicitWait(driver); // restore default implicit wait
-                }
+            String strategy = ConfigReader.getProperty("search.input.strategy", "bulk").trim().toLowerCase();
+            typeSearchText(input, searchText, strategy);
+
+            // Let autocomplete settle once instead of pausing after every key
+            WaitUtility.waitForDomQuiet(driver, ConfigReader.getIntProperty("search.input.settle.ms", 300), 5);
+
+            // Counted by the instrumented driver, waits and the locator race included
+            if (ConfigReader.getBooleanProperty("instrumentation.enabled", true)) {
+                log.debug("Search input strategy '{}' issued {} WebDriver commands for {} characters", strategy,
+                        CommandMetrics.commandCount() - commandsBefore, searchText.length());
             }
         } catch (Exception e) {
+            // JavaScript fallback as last resort
             try {
-                // First fallback - try alternative locator
-                WebElement input = WaitUtility.waitForElementVisible(
-                        driver,
-                        By.xpath(
-                                "//input[@type='search'] | //input[@name='q'] | //input[contains(@placeholder, 'search')]"),
-                        10);
-                input.clear();
-                input.sendKeys(searchText);
-            } catch (Exception e2) {
-                // JavaScript fallback as last resort
-                try {
-                    WebElement input = driver.findElement(By.xpath(
-                            "//input[@type='search'] | //input[@name='q'] | //input[contains(@placeholder, 'search')]"));
-                    ((JavascriptExecutor) driver).executeScript("arguments[0].value = arguments[1]", input, searchText);
-                } catch (Exception e3) {
-                    System.out.println("Failed to enter search text: " + e3.getMessage());
+                WebElement input = driver.findElement(By.xpath(
+                        "//input[@type='search'] | //input[@name='q'] | //input[contains(@placeholder, 'search')]"));
+                ((JavascriptExecutor) driver).executeScript("arguments[0].value = arguments[1]", input, searchText);
+            } catch (Exception e3) {
+                log.warn("Failed to enter search text: {}", e3.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Types text using the configured input strategy
+     */
+    private void typeSearchText(WebElement input, String text, String strategy) {
+        switch (strategy) {
+            case "typed": {
+                // All keys and pauses go to the browser as one actions command
+                Duration delay = Duration.ofMillis(ConfigReader.getIntProperty("search.input.key.delay.ms", 30));
+                Actions actions = new Actions(driver);
+                for (int i = 0; i < text.length(); i++) {
+                    String key = String.valueOf(text.charAt(i));
+                    if (i == 0) {
+                        actions.sendKeys(input, key);
+                    } else {
+                        actions.pause(delay).sendKeys(key);
+                    }
                 }
+                actions.perform();
+                break;
             }
+            case "chunked": {
+                int chunkSize = Math.max(1, ConfigReader.getIntProperty("search.input.chunk.size", 8));
+                for (int start = 0; start < text.length(); start += chunkSize) {
+                    input.sendKeys(text.substring(start, Math.min(text.length(), start + chunkSize)));
+                }
+                break;
+            }
+            default:
+                input.sendKeys(text);
+                break;
         }
     }
 
@@ -129,25 +162,17 @@ public class HomePage extends BasePage {
      */
     public void clickSearchButton() {
         try {
-            WaitUtility.waitForElementClickable(driver, searchSubmitButton);
-            click(searchSubmitButton);
+            click(() -> searchSubmitButton.waitForClickable(driver, 20));
+            return;
+        } catch (NoSuchElementException e) {
+            log.debug("No search button, submitting with Enter: {}", searchSubmitButton);
+        }
+        try {
+            // Send Enter key as fallback
+            WebElement input = driver.findElement(By.xpath("//input[@type='search'] | //input[@name='q']"));
+            input.sendKeys(Keys.ENTER);
         } catch (Exception e) {
-            try {
-                // Try alternative button
-                WebElement button = WaitUtility.waitForElementClickable(
-                        driver,
-                        By.xpath("//button[@type='submit']"),
-                        10);
-                click(button);
-            } catch (Exception e2) {
-                try {
-                    // Send Enter key as fallback
-                    WebElement input = driver.findElement(By.xpath("//input[@type='search'] | //input[@name='q']"));
-                    input.sendKeys(Keys.ENTER);
-                } catch (Exception e3) {
-                    System.out.println("Failed to submit search: " + e3.getMessage());
-                }
-            }
+            log.warn("Failed to submit search: {}", e.getMessage());
         }
     }
 
@@ -163,13 +188,13 @@ public class HomePage extends BasePage {
             WebElement input = driver.findElement(By.xpath("//input[@type='search'] | //input[@name='q']"));
             String enteredText = input.getAttribute("value");
             if (enteredText == null || !enteredText.equals(searchText)) {
-                System.out.println("Search text not entered correctly. Trying again...");
+                log.debug("Search text not entered correctly ({}), setting it with JavaScript", enteredText);
                 input.clear();
                 // Try JavaScript as a more reliable input method
                 ((JavascriptExecutor) driver).executeScript("arguments[0].value = arguments[1]", input, searchText);
             }
         } catch (Exception e) {
-            System.out.println("Could not verify search text: " + e.getMessage());
+            log.debug("Could not verify search text: {}", e.getMessage());
         }
 
         // Now submit the search
@@ -191,24 +216,16 @@ public class HomePage extends BasePage {
      * Get footer titles
      */
     public List<String> getFooterSectionTitles() {
-        List<WebElement> titleElements;
+        List<ElementSnapshot> titleElements;
 
         try {
-            titleElements = waitForElementsVisible(footerTitles);
+            titleElements = extractVisibleElements(footerTitles);
         } catch (Exception e) {
             // Fallback
-            titleElements = driver.findElements(By.xpath("//footer//h2 | //footer//h3"));
+            titleElements = extractElements(By.xpath("//footer//h2 | //footer//h3"));
         }
 
-        List<String> titles = new ArrayList<>();
-        for (WebElement element : titleElements) {
-            String title = getText(element).trim();
-            if (!title.isEmpty()) {
-                titles.add(title);
-            }
-        }
-
-        return titles;
+        return nonEmptyTexts(titleElements);
     }
 
     /**
@@ -219,17 +236,15 @@ public class HomePage extends BasePage {
 
         // If no titles found, try broader approach
         if (titles.isEmpty()) {
-            List<WebElement> footerElements = driver.findElements(By.xpath("//footer//*[text()]"));
-            for (WebElement element : footerElements) {
-                String text = getText(element).trim();
-                if (!text.isEmpty() && text.length() >= minLength) {
+            for (String text : nonEmptyTexts(extractElements(By.xpath("//footer//*[text()]")))) {
+                if (text.length() >= minLength) {
                     titles.add(text);
                 }
             }
         }
 
         // Log found titles
-        System.out.println("Found " + titles.size() + " footer titles");
+        log.debug("Found {} footer titles", titles.size());
 
         // Validation fails if no titles
         if (titles.isEmpty()) {
@@ -263,4 +278,15 @@ public class HomePage extends BasePage {
 
         return titleDetails;
     }
+
+    // Texts of the snapshots, skipping empty ones
+    private static List<String> nonEmptyTexts(List<ElementSnapshot> snapshots) {
+        List<String> texts = new ArrayList<>();
+        for (ElementSnapshot snapshot : snapshots) {
+            if (!snapshot.getText().isEmpty()) {
+                texts.add(snapshot.getText());
+            }
+        }
+        return texts;
+    }
 }
\ No newline at end of file
@@ -2,13 +2,15 @@ package com.brighthorizons.pages;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
-import org.openqa.selenium.support.FindBy;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import com.brighthorizons.utils.LocatorChain;
+import com.brighthorizons.utils.ReadinessGate;
 import com.brighthorizons.utils.WaitUtility;
 
 /**
@@ -19,11 +21,10 @@ import com.brighthorizons.utils.WaitUtility;
  */
 public class SearchResultsPage extends BasePage {
 
-    // Core locators for search results
-    private final By resourceResults = By
-            .xpath("/html[1]/body[1]/main[1]/section[2]/div[2]/a[1]/div[1]/h3[1]");
-    private final By employeeEducationTitle = By.xpath(
-            "//h3[contains(text(),'Employee Education in 2018: Strategies to Watch')]");
+    // First search result: the title under the RESOURCE label, or the expected title itself
+    private static final LocatorChain firstResult = new LocatorChain("SearchResultsPage.firstResult",
+            By.xpath("/html[1]/body[1]/main[1]/section[2]/div[2]/a[1]/div[1]/h3[1]"),
+            By.xpath("//h3[contains(text(),'Employee Education in 2018: Strategies to Watch')]"));
 
     // Footer titles for footer-related tests
     private final By footerSectionTitles = By
@@ -46,29 +47,26 @@ public class SearchResultsPage extends BasePage {
      * @return The text of the first search result, or empty string if not found
      */
     public String getFirstSearchResultText() {
-        WaitUtility.waitForPageLoad(driver);
+        // Reused until the page changes; a missing (empty) result is looked up again every time
+        return cached("SearchResultsPage.firstSearchResultText", this::readFirstSearchResultText);
+    }
 
-        // Primary approach - look for text under RESOURCE label
-        try {
-            WebElement firstResult = WaitUtility.waitForElementVisible(driver, resourceResults);
-            if (firstResult != null) {
-                return getText(firstResult).trim();
-            }
-        } catch (Exception e) {
-            System.out.println("Could not find result with primary locator: " + e.getMessage());
-        }
+    // Usable once the result list and the footer after it have been parsed
+    @Override
+    protected List<ReadinessGate> readinessGates() {
+        return Collections.singletonList(ReadinessGate.present(footerSectionTitles));
+    }
+
+    private String readFirstSearchResultText() {
+        waitForPageLoad();
 
-        // Fallback - direct search for the expected title
+        // Both locators are checked in the same poll, so a stale primary costs no extra timeout
         try {
-            WebElement element = WaitUtility.waitForElementVisible(driver, employeeEducationTitle);
-            if (element != null) {
-                return getText(element).trim();
-            }
-        } catch (Exception e) {
-            System.out.println("Could not find result with expected title: " + e.getMessage());
+            return getText(() -> firstResult.waitForVisible(driver, 20)).trim();
+        } catch (NoSuchElementException e) {
+            log.warn("Could not find the first search result: {}", firstResult);
+            return "";
         }
-
-        return "";
     }
 
     /**
@@ -79,7 +77,7 @@ public class SearchResultsPage extends BasePage {
      */
     public boolean isFirstSearchResultMatch(String expectedText) {
         String actualText = getFirstSearchResultText();
-        System.out.println("Comparing search result: [" + actualText + "] with expected: [" + expectedText + "]");
+        log.debug("Comparing search result: [{}] with expected: [{}]", actualText, expectedText);
 
         if (actualText.isEmpty()) {
             return false;
@@ -3,19 +3,23 @@ import com.brighthorizons.pages.BasePage;
 import com.brighthorizons.pages.HomePage;
 import com.brighthorizons.pages.SearchResultsPage;
 import com.brighthorizons.utils.DriverManager;
+import com.brighthorizons.utils.FixtureServer;
+import com.brighthorizons.utils.RetryPolicy;
+import com.brighthorizons.utils.ScreenshotService;
+import com.brighthorizons.utils.WaitBudget;
 import com.brighthorizons.utils.WaitUtility;
 import io.cucumber.java.After;
+import io.cucumber.java.AfterAll;
+import io.cucumber.java.AfterStep;
 import io.cucumber.java.Before;
+import io.cucumber.java.BeforeStep;
 import io.cucumber.java.Scenario;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import org.junit.Assert;
 import org.openqa.selenium.By;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
 import org.openqa.selenium.WebDriver;
-import org.openqa.selenium.WebElement;
 
 /**
  * Step definitions for Bright Horizons search functionality tests
@@ -32,6 +36,7 @@ public class BrightHorizonSearchFunctionality {
     public void setup(Scenario scenario) {
         // Initialize test context and page objects
         this.scenario = scenario;
+        ScreenshotService.startScenario(scenario);
         driver = DriverManager.getDriver();
         homePage = new HomePage(driver);
         searchResultsPage = new SearchResultsPage(driver);
@@ -42,14 +47,30 @@ public class BrightHorizonSearchFunctionality {
     public void tearDown(Scenario scenario) {
         // Capture screenshot on test failure
         if (driver != null && scenario.isFailed()) {
-            try {
-                final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-                scenario.attach(screenshot, "image/png", "Screenshot of failure");
-            } catch (Exception e) {
-                // Unable to take screenshot
-            }
+            ScreenshotService.captureFailure(driver, scenario);
         }
-        DriverManager.quitDriver();
+        ScreenshotService.finishScenario();
+        // Hand the browser back to the pool instead of quitting it
+        DriverManager.releaseDriver();
+    }
+
+    @BeforeStep
+    public void beforeStep() {
+        // Every step gets its own wait and retry budget
+        WaitBudget.startStep();
+        RetryPolicy.startStep();
+    }
+
+    @AfterStep
+    public void afterStep() {
+        WaitBudget.endStep();
+        RetryPolicy.endStep();
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        // Release the local record/replay server once every scenario has run
+        FixtureServer.shutdown();
     }
 
     @Given("I am on the Bright Horizons homepage")
@@ -65,11 +86,7 @@ public class BrightHorizonSearchFunctionality {
         homePage.scrollToFooter();
         scenario.log("Scrolled to footer section");
 
-        try {
-            final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "Footer section");
-        } catch (Exception ignored) {
-        }
+        ScreenshotService.capture(driver, scenario, "Footer section");
     }
 
     @Then("each footer section should contain a title with at least {int} characters")
@@ -86,11 +103,7 @@ public class BrightHorizonSearchFunctionality {
         scenario.log("Verified footer section titles have at least " + minLength + " characters");
         //Take ScreenShots
         WaitUtility.setImplicitWait(driver, 2);
-        try {
-            final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "Footer section");
-        } catch (Exception ignored) {
-        }
+        ScreenshotService.capture(driver, scenario, "Footer section");
     }
 
     @When("I click on the search icon")
@@ -99,11 +112,7 @@ public class BrightHorizonSearchFunctionality {
         homePage.clickSearchIcon();
         scenario.log("Clicked on search icon");
 
-        try {
-            final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "After clicking search icon");
-        } catch (Exception ignored) {
-        }
+        ScreenshotService.capture(driver, scenario, "After clicking search icon");
 
         try {
             By searchFieldLocator = By.xpath("//input[@id='search-field'][1]");
@@ -119,8 +128,7 @@ public class BrightHorizonSearchFunctionality {
         try {
             // Locate and enter text in search field
             By searchInputLocator = By.xpath("//input[@id='search-field'][1]");
-            WebElement searchInput = WaitUtility.waitForElementVisible(driver, searchInputLocator, 10);
-            basePage.sendKeys(searchInput, searchText);
+            basePage.sendKeys(() -> WaitUtility.waitForElementVisible(driver, searchInputLocator, 10), searchText);
             WaitUtility.setImplicitWait(driver, 2);
 
             // Submit search
@@ -132,12 +140,7 @@ public class BrightHorizonSearchFunctionality {
             homePage.searchFor(searchText);
         }
 
-        try {
-            // Capture search results screenshot
-            final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "After search");
-        } catch (Exception ignored) {
-        }
+        ScreenshotService.capture(driver, scenario, "After search");
 
         // Wait for results to load
         WaitUtility.waitForPageLoad(driver, 2);
@@ -145,12 +148,7 @@ public class BrightHorizonSearchFunctionality {
 
     @Then("the first search result should exactly match {string}")
     public void the_first_search_result_should_exactly_match(String expectedText) {
-        try {
-            // Capture search results screenshot
-            final byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            scenario.attach(screenshot, "image/png", "Search results");
-        } catch (Exception ignored) {
-        }
+        ScreenshotService.capture(driver, scenario, "Search results");
 
         // Log comparison details for reporting
         String comparisonResult = searchResultsPage.getComparisonResult(expectedText);
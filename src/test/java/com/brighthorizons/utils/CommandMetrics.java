@@ -0,0 +1,236 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Latency samples for every WebDriver command and every Cucumber step,
+ * recorded by {@link CommandTimingListener} and {@link CommandTimingPlugin}
+ * and exported as JSON or Prometheus text at the end of the run.
+ */
+public final class CommandMetrics {
+
+    private static final int SLOWEST_STEPS = 10;
+
+    // Step running on this thread, and the commands it issued so far
+    private static final ThreadLocal<StepContext> currentStep = ThreadLocal.withInitial(StepContext::new);
+
+    private static final Map<String, Samples> byCommand = new ConcurrentHashMap<>();
+    private static final Map<String, Samples> byCaller = new ConcurrentHashMap<>();
+    private static final Map<String, Samples> commandsPerStep = new ConcurrentHashMap<>();
+    private static final ConcurrentLinkedQueue<StepTiming> steps = new ConcurrentLinkedQueue<>();
+
+    // Private constructor prevents creating instances
+    private CommandMetrics() {
+    }
+
+    // Mark the start of a step on this thread
+    public static void stepStarted(String step) {
+        StepContext context = currentStep.get();
+        context.step = step;
+        context.commands = 0;
+    }
+
+    // Record the end of the step running on this thread
+    public static void stepFinished(String scenario, long durationNanos) {
+        StepContext context = currentStep.get();
+        if (context.step == null) {
+            return;
+        }
+        steps.add(new StepTiming(scenario, context.step, durationNanos, context.commands));
+        commandsPerStep.computeIfAbsent(context.step, k -> new Samples()).add(context.commands);
+        context.step = null;
+        context.commands = 0;
+    }
+
+    /**
+     * Record one WebDriver command
+     *
+     * @param command Command name, e.g. WebDriver.findElement
+     * @param caller  Page object method that issued it, e.g. HomePage.enterSearchText
+     */
+    public static void commandFinished(String command, String caller, long durationNanos) {
+        byCommand.computeIfAbsent(command, k -> new Samples()).add(durationNanos);
+        byCaller.computeIfAbsent(caller, k -> new Samples()).add(durationNanos);
+        currentStep.get().commands++;
+    }
+
+    // Commands recorded on this thread since its step started, take the difference around a call to count its commands
+    public static int commandCount() {
+        return currentStep.get().commands;
+    }
+
+    // Step running on this thread, or null between steps
+    public static String currentStep() {
+        return currentStep.get().step;
+    }
+
+    // Write JSON and Prometheus exports into the given directory
+    public static void export(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            Files.write(directory.resolve("command-metrics.json"),
+                    new Json().toJson(toMap()).getBytes(StandardCharsets.UTF_8));
+            Files.write(directory.resolve("command-metrics.prom"),
+                    toPrometheus().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            System.out.println("Failed to write command metrics: " + e.getMessage());
+        }
+    }
+
+    // Summary: p50/p95/p99 per command type, commands per step and slowest steps
+    public static Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("commands", summarize(byCommand, 1e-6));
+        report.put("callers", summarize(byCaller, 1e-6));
+        report.put("commandsPerStep", summarize(commandsPerStep, 1));
+
+        List<Map<String, Object>> slowest = new ArrayList<>();
+        steps.stream()
+                .sorted(Comparator.comparingLong((StepTiming timing) -> timing.durationNanos).reversed())
+                .limit(SLOWEST_STEPS)
+                .forEach(timing -> {
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("scenario", timing.scenario);
+                    entry.put("step", timing.step);
+                    entry.put("durationMs", round(timing.durationNanos * 1e-6));
+                    entry.put("commands", timing.commands);
+                    slowest.add(entry);
+                });
+        report.put("slowestSteps", slowest);
+        return report;
+    }
+
+    // Prometheus text exposition format, latencies in seconds
+    public static String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        appendSummary(out, "webdriver_command_duration_seconds", "command", byCommand,
+                "Latency of WebDriver commands by command type");
+        appendSummary(out, "webdriver_caller_duration_seconds", "caller", byCaller,
+                "Latency of WebDriver commands by page object method");
+
+        out.append("# HELP cucumber_step_commands WebDriver commands issued per step\n");
+        out.append("# TYPE cucumber_step_commands summary\n");
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(commandsPerStep).entrySet()) {
+            long[] values = entry.getValue().sorted();
+            String label = "step=\"" + escape(entry.getKey()) + "\"";
+            out.append(String.format(Locale.ROOT, "cucumber_step_commands{%s,quantile=\"0.5\"} %d%n",
+                    label, percentile(values, 50)));
+            out.append(String.format(Locale.ROOT, "cucumber_step_commands{%s,quantile=\"0.95\"} %d%n",
+                    label, percentile(values, 95)));
+            out.append(String.format(Locale.ROOT, "cucumber_step_commands_sum{%s} %d%n", label, sum(values)));
+            out.append(String.format(Locale.ROOT, "cucumber_step_commands_count{%s} %d%n", label, values.length));
+        }
+        return out.toString();
+    }
+
+    private static void appendSummary(StringBuilder out, String metric, String labelName,
+            Map<String, Samples> samples, String help) {
+        out.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(metric).append(" summary\n");
+        for (Map.Entry<String, Samples> entry : new TreeMap<>(samples).entrySet()) {
+            long[] values = entry.getValue().sorted();
+            String label = labelName + "=\"" + escape(entry.getKey()) + "\"";
+            for (int quantile : new int[] { 50, 95, 99 }) {
+                out.append(String.format(Locale.ROOT, "%s{%s,quantile=\"0.%s\"} %.6f%n",
+                        metric, label, quantile == 50 ? "5" : String.valueOf(quantile),
+                        percentile(values, quantile) * 1e-9));
+            }
+            out.append(String.format(Locale.ROOT, "%s_sum{%s} %.6f%n", metric, label, sum(values) * 1e-9));
+            out.append(String.format(Locale.ROOT, "%s_count{%s} %d%n", metric, label, values.length));
+        }
+    }
+
+    private static Map<String, Object> summarize(Map<String, Samples> samples, double scale) {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, Samples> entry : samples.entrySet()) {
+            long[] values = entry.getValue().sorted();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("count", values.length);
+            stats.put("p50", round(percentile(values, 50) * scale));
+            stats.put("p95", round(percentile(values, 95) * scale));
+            stats.put("p99", round(percentile(values, 99) * scale));
+            stats.put("max", round((values.length == 0 ? 0 : values[values.length - 1]) * scale));
+            stats.put("total", round(sum(values) * scale));
+            result.put(entry.getKey(), stats);
+        }
+        return result;
+    }
+
+    // Nearest-rank percentile of sorted values
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    // Append-only list of long samples
+    private static final class Samples {
+        private long[] values = new long[64];
+        private int size;
+
+        synchronized void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    private static final class StepContext {
+        private String step;
+        private int commands;
+    }
+
+    private static final class StepTiming {
+        private final String scenario;
+        private final String step;
+        private final long durationNanos;
+        private final int commands;
+
+        private StepTiming(String scenario, String step, long durationNanos, int commands) {
+            this.scenario = scenario;
+            this.step = step;
+            this.durationNanos = durationNanos;
+            this.commands = commands;
+        }
+    }
+}
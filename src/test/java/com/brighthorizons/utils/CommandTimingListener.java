@@ -0,0 +1,88 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Times every WebDriver command that goes through the decorated driver and
+ * hands the sample to {@link CommandMetrics}, tagged with the page object
+ * method that issued it.
+ */
+public class CommandTimingListener implements WebDriverListener {
+
+    // Calls that only return a local facade and never reach the browser
+    private static final Set<String> LOCAL_CALLS = Set.of("manage", "timeouts", "window", "navigate", "switchTo");
+
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    private final ThreadLocal<Deque<Long>> startTimes = ThreadLocal.withInitial(ArrayDeque::new);
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (!LOCAL_CALLS.contains(method.getName())) {
+            startTimes.get().push(System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterAnyCall(Object target, Method method, Object[] args, Object result) {
+        record(target, method);
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        // Failed commands still cost time, e.g. a findElement that waited out the implicit wait
+        record(target, method);
+    }
+
+    private void record(Object target, Method method) {
+        if (LOCAL_CALLS.contains(method.getName()) || startTimes.get().isEmpty()) {
+            return;
+        }
+        long duration = System.nanoTime() - startTimes.get().pop();
+        CommandMetrics.commandFinished(commandName(target, method), caller(), duration);
+    }
+
+    // e.g. WebDriver.findElement, WebElement.click, JavascriptExecutor.executeScript, Timeouts.implicitlyWait
+    private static String commandName(Object target, Method method) {
+        String type;
+        if (target instanceof WebElement) {
+            type = "WebElement";
+        } else if (target instanceof WebDriver && method.getDeclaringClass().isAssignableFrom(WebDriver.class)) {
+            type = "WebDriver";
+        } else {
+            type = method.getDeclaringClass().getSimpleName();
+        }
+        return type + "." + method.getName();
+    }
+
+    // Page object method that issued the command, falling back to the nearest framework frame
+    private static String caller() {
+        return walker.walk(frames -> {
+            String fallback = null;
+            for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                String className = frame.getClassName();
+                if (!className.startsWith("com.brighthorizons.")
+                        || className.startsWith(CommandTimingListener.class.getName())) {
+                    continue;
+                }
+                String simpleName = className.substring(className.lastIndexOf('.') + 1);
+                String name = simpleName + "." + frame.getMethodName();
+                if (className.startsWith("com.brighthorizons.pages.")) {
+                    return name;
+                }
+                if (fallback == null) {
+                    fallback = name;
+                }
+            }
+            return fallback != null ? fallback : "unknown";
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.HookTestStep;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestRunFinished;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+
+import java.nio.file.Paths;
+
+/**
+ * Cucumber plugin that tags WebDriver commands with the step issuing them
+ * and writes the command metrics when the run finishes:
+ * target/cucumber-reports/command-metrics.json and command-metrics.prom
+ */
+public class CommandTimingPlugin implements ConcurrentEventListener {
+
+    private static final String REPORT_DIR = ConfigReader.getProperty("report.dir", "target/cucumber-reports");
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        // Concurrent listeners get events on the thread running the step
+        publisher.registerHandlerFor(TestStepStarted.class,
+                event -> CommandMetrics.stepStarted(stepName(event.getTestStep())));
+        publisher.registerHandlerFor(TestStepFinished.class,
+                event -> CommandMetrics.stepFinished(event.getTestCase().getName(),
+                        event.getResult().getDuration().toNanos()));
+        publisher.registerHandlerFor(TestRunFinished.class, event -> {
+            CommandMetrics.export(Paths.get(REPORT_DIR));
+            System.out.println("Command metrics written to " + REPORT_DIR + "/command-metrics.json");
+        });
+    }
+
+    private static String stepName(TestStep step) {
+        if (step instanceof PickleStepTestStep) {
+            PickleStepTestStep pickleStep = (PickleStepTestStep) step;
+            return pickleStep.getStep().getKeyword() + pickleStep.getStep().getText();
+        }
+        if (step instanceof HookTestStep) {
+            return ((HookTestStep) step).getHookType() + " hook";
+        }
+        return step.getCodeLocation();
+    }
+}
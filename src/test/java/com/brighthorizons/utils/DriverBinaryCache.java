@@ -0,0 +1,195 @@
+package com.brighthorizons.utils;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resolves driver binaries (chromedriver, geckodriver, msedgedriver) once per
+ * JVM instead of once per browser launch. Resolved paths can also be kept in
+ * an on-disk manifest so later runs, including offline runs from a
+ * pre-seeded cache directory, never call WebDriverManager at all.
+ *
+ * Unpinned ("latest") entries are re-resolved after driver.cache.ttl.hours,
+ * so a browser update gets a matching driver; a pinned driver version never
+ * expires. When re-resolving fails, e.g. offline, the cached binary is kept.
+ */
+public final class DriverBinaryCache {
+
+    private static final String MANIFEST_FILE = "driver-manifest.properties";
+    // Manifest key suffix holding when an entry was resolved, epoch millis
+    private static final String RESOLVED_AT = ".resolvedAt";
+    private static final long TTL_MILLIS = ConfigReader.getIntProperty("driver.cache.ttl.hours", 24) * 3_600_000L;
+
+    // Resolved binary path keyed by "browser@version", empty when WebDriverManager found none
+    private static final Map<String, String> resolved = new ConcurrentHashMap<>();
+
+    // Guards manifest rewrites; a lock rather than a monitor so the file I/O does not pin a virtual thread
+    private static final ReentrantLock manifestLock = new ReentrantLock();
+
+    // Private constructor prevents creating instances
+    private DriverBinaryCache() {
+    }
+
+    /**
+     * Makes sure the driver binary for the browser is resolved and registered
+     *
+     * @return nanoseconds spent resolving, or 0 when the binary was already cached
+     */
+    public static long ensureDriver(String browser) {
+        String version = ConfigReader.getProperty(browser + ".driver.version", "").trim();
+        String key = browser + "@" + (version.isEmpty() ? "latest" : version);
+
+        long[] elapsed = new long[1];
+        // computeIfAbsent blocks other threads asking for the same key until it is resolved
+        String path = resolved.computeIfAbsent(key, k -> {
+            long start = System.nanoTime();
+            String binary = resolve(browser, version, k);
+            elapsed[0] = System.nanoTime() - start;
+            return binary;
+        });
+
+        // Without the system property Selenium Manager resolves the driver
+        if (!path.isEmpty()) {
+            System.setProperty(systemPropertyFor(browser), path);
+        }
+        return elapsed[0];
+    }
+
+    // Look the binary up in the manifest first, fall back to WebDriverManager
+    private static String resolve(String browser, String version, String key) {
+        Path cacheDir = cacheDirectory();
+
+        String stale = null;
+        if (cacheDir != null) {
+            Properties manifest = loadManifest(cacheDir);
+            String cached = manifest.getProperty(key);
+            if (cached != null) {
+                Path binary = cacheDir.resolve(cached);
+                if (Files.isExecutable(binary)) {
+                    if (!version.isEmpty() || isFresh(manifest.getProperty(key + RESOLVED_AT))) {
+                        return binary.toAbsolutePath().toString();
+                    }
+                    stale = binary.toAbsolutePath().toString();
+                }
+            }
+        }
+
+        try {
+            return download(browser, version, key, cacheDir);
+        } catch (RuntimeException e) {
+            if (stale == null) {
+                throw e;
+            }
+            System.out.println("Keeping cached " + key + " driver, re-resolving it failed: " + e.getMessage());
+            return stale;
+        }
+    }
+
+    // Entries without a timestamp predate the TTL and count as stale; a TTL of 0 never expires
+    private static boolean isFresh(String resolvedAt) {
+        if (TTL_MILLIS == 0) {
+            return true;
+        }
+        try {
+            return resolvedAt != null && System.currentTimeMillis() - Long.parseLong(resolvedAt) < TTL_MILLIS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String download(String browser, String version, String key, Path cacheDir) {
+        WebDriverManager manager = managerFor(browser);
+        if (!version.isEmpty()) {
+            manager.driverVersion(version);
+        }
+        if (cacheDir != null) {
+            manager.cachePath(cacheDir.toAbsolutePath().toString());
+        }
+        manager.setup();
+
+        String binary = manager.getDownloadedDriverPath();
+        if (binary == null) {
+            System.out.println("WebDriverManager resolved no " + browser + " driver, leaving it to Selenium Manager");
+            return "";
+        }
+        if (cacheDir != null) {
+            storeInManifest(cacheDir, key, binary);
+        }
+        return binary;
+    }
+
+    private static WebDriverManager managerFor(String browser) {
+        switch (browser) {
+            case "firefox":
+                return WebDriverManager.firefoxdriver();
+            case "edge":
+                return WebDriverManager.edgedriver();
+            default:
+                return WebDriverManager.chromedriver();
+        }
+    }
+
+    private static String systemPropertyFor(String browser) {
+        switch (browser) {
+            case "firefox":
+                return "webdriver.gecko.driver";
+            case "edge":
+                return "webdriver.edge.driver";
+            default:
+                return "webdriver.chrome.driver";
+        }
+    }
+
+    // Manifest directory, or null when the on-disk manifest is disabled
+    private static Path cacheDirectory() {
+        if (!ConfigReader.getBooleanProperty("driver.cache.manifest.enabled", false)) {
+            return null;
+        }
+        return Paths.get(ConfigReader.getProperty("driver.cache.dir", ".drivers"));
+    }
+
+    private static Properties loadManifest(Path cacheDir) {
+        Properties manifest = new Properties();
+        Path file = cacheDir.resolve(MANIFEST_FILE);
+        if (Files.exists(file)) {
+            try (InputStream input = Files.newInputStream(file)) {
+                manifest.load(input);
+            } catch (IOException e) {
+                System.out.println("Ignoring unreadable driver manifest: " + e.getMessage());
+            }
+        }
+        return manifest;
+    }
+
+    // Paths inside the cache directory are stored relative so the directory can be copied
+    private static void storeInManifest(Path cacheDir, String key, String binary) {
+        manifestLock.lock();
+        try {
+            Properties manifest = loadManifest(cacheDir);
+            Path binaryPath = Paths.get(binary).toAbsolutePath();
+            Path root = cacheDir.toAbsolutePath();
+            String stored = binaryPath.startsWith(root) ? root.relativize(binaryPath).toString() : binaryPath.toString();
+            manifest.setProperty(key, stored);
+            manifest.setProperty(key + RESOLVED_AT, String.valueOf(System.currentTimeMillis()));
+
+            Files.createDirectories(cacheDir);
+            try (OutputStream output = Files.newOutputStream(cacheDir.resolve(MANIFEST_FILE))) {
+                manifest.store(output, "Resolved WebDriver binaries");
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to write driver manifest: " + e.getMessage());
+        } finally {
+            manifestLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * The browser session of the scenario running on the current thread.
+ *
+ * On the usual runners a thread runs many scenarios, so the session stays
+ * bound until DriverManager releases it. The virtual thread scheduler runs
+ * every scenario in {@link #runScoped(Runnable)} instead: the scenario
+ * starts with an empty context, and whatever it leaves behind is released
+ * and unbound when it ends, even if its After hook never ran.
+ */
+public final class DriverContext {
+
+    private static final ThreadLocal<WebDriver> current = new ThreadLocal<>();
+
+    // Private constructor prevents creating instances
+    private DriverContext() {
+    }
+
+    /**
+     * Runs one scenario with its own context. A session still bound at the
+     * end goes back to the pool, and the thread is left as it was found.
+     */
+    public static void runScoped(Runnable scenario) {
+        WebDriver outer = current.get();
+        current.remove();
+        try {
+            scenario.run();
+        } finally {
+            try {
+                DriverManager.releaseDriver();
+            } finally {
+                if (outer != null) {
+                    current.set(outer);
+                } else {
+                    current.remove();
+                }
+            }
+        }
+    }
+
+    static WebDriver get() {
+        return current.get();
+    }
+
+    static void set(WebDriver driver) {
+        current.set(driver);
+    }
+
+    static void clear() {
+        current.remove();
+    }
+}
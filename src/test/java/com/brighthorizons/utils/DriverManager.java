@@ -1,6 +1,5 @@
 package com.brighthorizons.utils;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
@@ -11,18 +10,50 @@ import org.openqa.selenium.firefox.FirefoxDriver;
 import org.openqa.selenium.firefox.FirefoxOptions;
 import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.edge.EdgeOptions;
+import org.openqa.selenium.support.events.EventFiringDecorator;
+import org.openqa.selenium.support.events.WebDriverListener;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
 
 // Singleton class to manage browser drivers
 public class DriverManager {
 
-    private static final ThreadLocal<WebDriver> driver = new ThreadLocal<>();
     private static volatile DriverManager instance;
+    private static final DriverPool pool;
+    // Caps live sessions when pooling is off, the pool has its own cap
+    private static final Semaphore unpooledSessions;
+
+    // Parsed once from the configuration snapshot
+    private static final FrameworkConfig CONFIG = FrameworkConfig.get();
+    private static final Duration IMPLICIT_WAIT = CONFIG.getSeconds("implicit.wait.seconds", 5);
+    private static final Duration PAGE_LOAD_TIMEOUT = CONFIG.getSeconds("page.load.timeout.seconds", 30);
+    private static final Duration SCRIPT_TIMEOUT = CONFIG.getSeconds("script.timeout.seconds", 15);
 
     static {
-        // Load config when class is loaded
-        ConfigReader.initialize();
+        // Reuse browser sessions across scenarios unless pooling is disabled
+        if (CONFIG.getBoolean("driver.pool.enabled", true)) {
+            pool = new DriverPool(
+                    DriverManager::createDriver,
+                    DriverManager::applyTimeouts,
+                    CONFIG.getInt("driver.pool.max.size", 4),
+                    CONFIG.getInt("driver.pool.max.uses", 20),
+                    CONFIG.getInt("driver.pool.idle.timeout.seconds", 300) * 1000L);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                System.out.println("Driver pool: " + pool.getStats());
+                pool.shutdown();
+            }));
+        } else {
+            pool = null;
+        }
+        unpooledSessions = new Semaphore(Math.max(1, CONFIG.getInt("driver.pool.max.size", 4)), true);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.out.println("Driver startup: " + DriverStartupMetrics.getSummary());
+            System.out.println("Page cache: " + PageCache.getStats());
+        }));
     }
 
     // Private constructor for singleton pattern
@@ -43,16 +74,17 @@ public class DriverManager {
 
     // Get WebDriver - creates new if not exists
     public static WebDriver getDriver() {
-        if (driver.get() == null) {
+        if (DriverContext.get() == null) {
             setupDriver();
         }
-        return driver.get();
+        return DriverContext.get();
     }
 
     // Navigate to home page
     public void navigateToHomePage() {
         WebDriver webDriver = getDriver();
-        webDriver.get(ConfigReader.getProperty("base.url"));
+        // Local record/replay server when fixture.mode is set, otherwise the live site
+        webDriver.get(FixtureServer.getBaseUrl());
         WaitUtility.waitForPageLoad(webDriver);
 
         // Accept cookies if present
@@ -96,94 +128,171 @@ public class DriverManager {
     }
 
 
-    // Create and configure WebDriver
+    // Check out a WebDriver for this thread, from the pool when enabled
     public static void setupDriver() {
-        String browser = ConfigReader.getProperty("browser", "chrome").toLowerCase();
+        if (pool != null) {
+            DriverContext.set(pool.checkout());
+            return;
+        }
+        try {
+            unpooledSessions.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser session", e);
+        }
+        try {
+            DriverContext.set(createDriver());
+        } catch (RuntimeException e) {
+            unpooledSessions.release();
+            throw e;
+        }
+    }
+
+    // Launch and configure a new browser session
+    private static WebDriver createDriver() {
+        return launchDriver(LaunchProfile.current());
+    }
+
+    /**
+     * Launch a new browser session with the given profile, outside the pool
+     * (the launch benchmark compares profiles with this)
+     */
+    public static WebDriver launchDriver(LaunchProfile profile) {
+        String browser = CONFIG.getString("browser", "chrome").toLowerCase();
+        long start = System.nanoTime();
+        long resolution = DriverBinaryCache.ensureDriver(browser);
+        WebDriver webDriver;
 
         switch (browser) {
             case "firefox":
-                setupFirefoxDriver();
+                webDriver = setupFirefoxDriver(profile);
                 break;
             case "edge":
-                setupEdgeDriver();
+                webDriver = setupEdgeDriver(profile);
                 break;
             default:
-                setupChromeDriver();
+                webDriver = setupChromeDriver(profile);
                 break;
         }
 
-        driver.get().manage().window().maximize();
-        driver.get().manage().timeouts().implicitlyWait(
-                Duration.ofSeconds(ConfigReader.getIntProperty("implicit.wait.seconds", 5)));
-        driver.get().manage().timeouts().pageLoadTimeout(
-                Duration.ofSeconds(ConfigReader.getIntProperty("page.load.timeout.seconds", 30)));
-        driver.get().manage().timeouts().scriptTimeout(
-                Duration.ofSeconds(ConfigReader.getIntProperty("script.timeout.seconds", 15)));
+        // Block third-party payloads before the first navigation
+        NetworkShaper.attach(webDriver);
+        profile.applyWindow(webDriver);
+        webDriver.manage().deleteAllCookies();
+
+        WebDriver decorated = decorate(webDriver);
+        // Through the decorated session, whose wait registry then knows the timeouts the browser has
+        applyTimeouts(decorated);
+        DriverStartupMetrics.record(resolution, System.nanoTime() - start);
+        return decorated;
+    }
+
+    // Wrap the session with the command listeners, so pooled sessions are instrumented the same way
+    private static WebDriver decorate(WebDriver webDriver) {
+        List<WebDriverListener> listeners = new ArrayList<>();
+        if (CONFIG.getBoolean("instrumentation.enabled", true)) {
+            listeners.add(new CommandTimingListener());
+        }
+        PageCache pageCache = PageCache.isEnabled() ? new PageCache() : null;
+        if (pageCache != null) {
+            listeners.add(pageCache);
+        }
+        if (listeners.isEmpty()) {
+            return webDriver;
+        }
+
+        WebDriver decorated = new EventFiringDecorator<>(listeners.toArray(new WebDriverListener[0]))
+                .decorate(webDriver);
+        if (pageCache != null) {
+            PageCache.register(decorated, pageCache);
+        }
+        return decorated;
+    }
 
-        driver.get().manage().deleteAllCookies();
+    // Apply configured timeouts, also used when a pooled session is reset; unchanged ones cost no command
+    private static void applyTimeouts(WebDriver webDriver) {
+        WaitRegistry waits = WaitRegistry.forDriver(webDriver);
+        // In wait-budget mode explicit waits do all the waiting
+        waits.implicitlyWait(WaitBudget.isEnabled() ? Duration.ZERO : IMPLICIT_WAIT);
+        waits.pageLoadTimeout(PAGE_LOAD_TIMEOUT);
+        waits.scriptTimeout(SCRIPT_TIMEOUT);
     }
 
     // Setup Chrome browser
-    private static void setupChromeDriver() {
-        WebDriverManager.chromedriver().setup();
+    private static WebDriver setupChromeDriver(LaunchProfile profile) {
         ChromeOptions options = new ChromeOptions();
 
         // Add options from properties file
-        String[] chromeOptions = ConfigReader.getArrayProperty("chrome.options");
-        for (String option : chromeOptions) {
-            if (!option.trim().isEmpty()) {
-                options.addArguments(option.trim());
-            }
-        }
+        options.addArguments(CONFIG.getList("chrome.options"));
 
-        options.setPageLoadStrategy(org.openqa.selenium.PageLoadStrategy.NORMAL);
-        driver.set(new ChromeDriver(options));
+        profile.applyTo(options);
+        return new ChromeDriver(options);
     }
 
     // Setup Firefox browser
-    private static void setupFirefoxDriver() {
-        WebDriverManager.firefoxdriver().setup();
+    private static WebDriver setupFirefoxDriver(LaunchProfile profile) {
         FirefoxOptions options = new FirefoxOptions();
 
         // Add options from properties file
-        String[] firefoxOptions = ConfigReader.getArrayProperty("firefox.options");
-        for (String option : firefoxOptions) {
-            if (!option.trim().isEmpty()) {
-                options.addArguments(option.trim());
-            }
-        }
+        options.addArguments(CONFIG.getList("firefox.options"));
 
-        options.setPageLoadStrategy(org.openqa.selenium.PageLoadStrategy.NORMAL);
-        driver.set(new FirefoxDriver(options));
+        profile.applyTo(options);
+        return new FirefoxDriver(options);
     }
 
     // Setup Edge browser
-    private static void setupEdgeDriver() {
-        WebDriverManager.edgedriver().setup();
+    private static WebDriver setupEdgeDriver(LaunchProfile profile) {
         EdgeOptions options = new EdgeOptions();
 
         // Add options from properties file
-        String[] edgeOptions = ConfigReader.getArrayProperty("edge.options");
-        for (String option : edgeOptions) {
-            if (!option.trim().isEmpty()) {
-                options.addArguments(option.trim());
-            }
-        }
+        options.addArguments(CONFIG.getList("edge.options"));
 
-        options.setPageLoadStrategy(org.openqa.selenium.PageLoadStrategy.NORMAL);
-        driver.set(new EdgeDriver(options));
+        profile.applyTo(options);
+        return new EdgeDriver(options);
+    }
+
+    // Return this thread's browser to the pool, or quit it when pooling is off
+    public static void releaseDriver() {
+        WebDriver webDriver = DriverContext.get();
+        if (webDriver == null) {
+            return;
+        }
+        if (pool == null) {
+            quitDriver();
+            return;
+        }
+        try {
+            pool.release(webDriver);
+        } finally {
+            DriverContext.clear();
+        }
     }
 
     // Close browser and cleanup
     public static void quitDriver() {
-        if (driver.get() != null) {
+        WebDriver webDriver = DriverContext.get();
+        if (webDriver != null) {
             try {
-                driver.get().quit();
+                if (pool != null) {
+                    pool.discard(webDriver);
+                } else {
+                    try {
+                        webDriver.quit();
+                    } finally {
+                        WaitRegistry.forget(webDriver);
+                        unpooledSessions.release();
+                    }
+                }
             } catch (Exception e) {
                 // Ignore exceptions during quit
             } finally {
-                driver.remove();
+                DriverContext.clear();
             }
         }
     }
-}
\ No newline at end of file
+
+    // Pool hit/miss counters for reporting
+    public static String getPoolStats() {
+        return pool != null ? pool.getStats() : "pooling disabled";
+    }
+}
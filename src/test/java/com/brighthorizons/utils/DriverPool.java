@@ -0,0 +1,238 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of browser sessions that are reset and reused between
+ * scenarios instead of being launched and quit every time.
+ */
+public class DriverPool {
+
+    private final Supplier<WebDriver> factory;
+    private final Consumer<WebDriver> resetter;
+    private final int maxUses;
+    private final long idleTimeoutMillis;
+    private final Semaphore permits;
+
+    // Most recently released session sits at the head of the deque
+    private final Deque<PooledSession> idle = new ArrayDeque<>();
+    private final Map<WebDriver, PooledSession> active = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong recycles = new AtomicLong();
+
+    /**
+     * @param factory           Creates and configures a brand new session
+     * @param resetter          Re-applies per-session settings after a reset
+     * @param maxSize           Maximum number of live sessions (idle + checked out)
+     * @param maxUses           Sessions are quit after this many checkouts
+     * @param idleTimeoutMillis Idle sessions older than this are quit
+     */
+    public DriverPool(Supplier<WebDriver> factory, Consumer<WebDriver> resetter,
+            int maxSize, int maxUses, long idleTimeoutMillis) {
+        this.factory = factory;
+        this.resetter = resetter;
+        this.maxUses = Math.max(1, maxUses);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.permits = new Semaphore(Math.max(1, maxSize), true);
+    }
+
+    // Check out a healthy session, reusing an idle one when possible
+    public WebDriver checkout() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a browser session", e);
+        }
+
+        try {
+            PooledSession session;
+            while ((session = pollIdle()) != null) {
+                if (isHealthy(session.driver)) {
+                    hits.incrementAndGet();
+                    session.uses++;
+                    active.put(session.driver, session);
+                    return session.driver;
+                }
+                evictions.incrementAndGet();
+                quitQuietly(session.driver);
+            }
+
+            misses.incrementAndGet();
+            session = new PooledSession(factory.get());
+            session.uses++;
+            active.put(session.driver, session);
+            return session.driver;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Return a session to the pool, resetting it for the next scenario
+    public void release(WebDriver driver) {
+        PooledSession session = active.remove(driver);
+        if (session == null) {
+            quitQuietly(driver);
+            return;
+        }
+
+        try {
+            if (session.uses >= maxUses) {
+                recycles.incrementAndGet();
+                quitQuietly(driver);
+            } else if (reset(driver)) {
+                session.lastReleased = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.push(session);
+                }
+            } else {
+                evictions.incrementAndGet();
+                quitQuietly(driver);
+            }
+        } finally {
+            permits.release();
+        }
+        evictExpired();
+    }
+
+    // Quit a checked out session without returning it to the pool
+    public void discard(WebDriver driver) {
+        PooledSession session = active.remove(driver);
+        quitQuietly(driver);
+        if (session != null) {
+            permits.release();
+        }
+    }
+
+    // Quit every session the pool knows about
+    public void shutdown() {
+        synchronized (idle) {
+            for (PooledSession session : idle) {
+                quitQuietly(session.driver);
+            }
+            idle.clear();
+        }
+        for (WebDriver driver : new ArrayList<>(active.keySet())) {
+            quitQuietly(driver);
+        }
+        active.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String getStats() {
+        return String.format("hits=%d, misses=%d, evictions=%d, recycled=%d, idle=%d, active=%d",
+                hits.get(), misses.get(), evictions.get(), recycles.get(), idleCount(), active.size());
+    }
+
+    private int idleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    // Take the most recently used idle session, dropping expired ones
+    private PooledSession pollIdle() {
+        evictExpired();
+        synchronized (idle) {
+            return idle.poll();
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        Deque<PooledSession> expired = new ArrayDeque<>();
+        synchronized (idle) {
+            Iterator<PooledSession> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledSession session = it.next();
+                if (now - session.lastReleased <= idleTimeoutMillis) {
+                    break;
+                }
+                it.remove();
+                expired.add(session);
+            }
+        }
+        for (PooledSession session : expired) {
+            evictions.incrementAndGet();
+            quitQuietly(session.driver);
+        }
+    }
+
+    // Clear cookies and storage, then park the session on about:blank
+    private boolean reset(WebDriver driver) {
+        try {
+            try {
+                ((JavascriptExecutor) driver).executeScript(
+                        "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+            } catch (Exception ignored) {
+                // Storage is not reachable on every page
+            }
+
+            if (driver instanceof HasCdp) {
+                // Clears cookies for every domain, not just the current one
+                ((HasCdp) driver).executeCdpCommand("Network.clearBrowserCookies", Collections.emptyMap());
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+
+            driver.get("about:blank");
+            resetter.accept(driver);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isHealthy(WebDriver driver) {
+        try {
+            return driver.getWindowHandle() != null;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void quitQuietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (Exception ignored) {
+            // Session may already be gone
+        } finally {
+            WaitRegistry.forget(driver);
+        }
+    }
+
+    private static final class PooledSession {
+        private final WebDriver driver;
+        private int uses;
+        private long lastReleased;
+
+        private PooledSession(WebDriver driver) {
+            this.driver = driver;
+        }
+    }
+}
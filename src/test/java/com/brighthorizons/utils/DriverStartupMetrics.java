@@ -0,0 +1,45 @@
+package com.brighthorizons.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects browser launch times, split into cold launches (driver binary
+ * had to be resolved) and warm launches (binary came from the cache).
+ */
+public final class DriverStartupMetrics {
+
+    private static final AtomicLong coldLaunches = new AtomicLong();
+    private static final AtomicLong coldNanos = new AtomicLong();
+    private static final AtomicLong resolveNanos = new AtomicLong();
+    private static final AtomicLong warmLaunches = new AtomicLong();
+    private static final AtomicLong warmNanos = new AtomicLong();
+
+    // Private constructor prevents creating instances
+    private DriverStartupMetrics() {
+    }
+
+    // Record one browser launch
+    public static void record(long resolutionNanos, long launchNanos) {
+        if (resolutionNanos > 0) {
+            coldLaunches.incrementAndGet();
+            coldNanos.addAndGet(launchNanos);
+            resolveNanos.addAndGet(resolutionNanos);
+        } else {
+            warmLaunches.incrementAndGet();
+            warmNanos.addAndGet(launchNanos);
+        }
+    }
+
+    // One-line summary of average cold vs warm launch time
+    public static String getSummary() {
+        return String.format("cold launches=%d (avg %d ms, of which resolution %d ms), warm launches=%d (avg %d ms)",
+                coldLaunches.get(), averageMillis(coldNanos, coldLaunches),
+                averageMillis(resolveNanos, coldLaunches),
+                warmLaunches.get(), averageMillis(warmNanos, warmLaunches));
+    }
+
+    private static long averageMillis(AtomicLong totalNanos, AtomicLong count) {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n / 1_000_000;
+    }
+}
@@ -0,0 +1,319 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wait engine that resolves a condition inside the page. A single async
+ * script checks the condition, then re-checks it on DOM mutations,
+ * readyState changes and transitions, and calls back the moment it holds.
+ * That is one WebDriver command per wait instead of one per poll.
+ */
+final class EventDrivenWait {
+
+    static final String PAGE_LOAD = "pageLoad";
+    static final String VISIBLE = "visible";
+    static final String CLICKABLE = "clickable";
+    static final String ALL_VISIBLE = "allVisible";
+    static final String DOM_QUIET = "domQuiet";
+    static final String RACE = "race";
+    static final String DOM_READY = "domReady";
+    static final String GATES = "gates";
+
+    // How Chrome, Edge and Firefox report a script cut off by navigation
+    private static final String[] UNLOAD_MESSAGES = {
+        "document unloaded", "document was unloaded", "execution context was destroyed",
+        "cannot find context with specified id", "inspected target navigated or closed"
+    };
+
+    // Result of a locator wait that gave up because nothing can match any more
+    private static final String ABSENT = "absent";
+
+    // arguments: kind, using, value, element, timeoutMillis, absentAfterMillis, options, callback
+    private static final String WAIT_SCRIPT =
+            "var kind = arguments[0], using = arguments[1], value = arguments[2],"
+            + "    target = arguments[3], timeout = arguments[4], absentAfter = arguments[5],"
+            + "    options = arguments[6],"
+            + "    done = arguments[arguments.length - 1];"
+            + ScriptLocator.FIND_FUNCTION
+            + ScriptLocator.VISIBLE_FUNCTION
+            + ScriptLocator.DESCRIBE_FUNCTION
+            + "var lastMutation = Date.now();"
+            + "function loaded() {"
+            + "  return document.readyState === 'complete' && !(window.jQuery && window.jQuery.active > 0);"
+            + "}"
+            + "function check() {"
+            + "  if (kind === 'domQuiet') {"
+            + "    return Date.now() - lastMutation >= value ? true : null;"
+            + "  }"
+            + "  if (kind === 'pageLoad') {"
+            + "    return loaded() ? true : null;"
+            + "  }"
+            + "  if (kind === 'domReady') {"
+            + "    return document.readyState !== 'loading' ? true : null;"
+            + "  }"
+            + "  if (kind === 'race') {"
+            + "    return race();"
+            + "  }"
+            + "  if (kind === 'gates') {"
+            + "    return gates();"
+            + "  }"
+            + "  var els = target ? [target] : find(using, value);"
+            // Nothing matches on a loaded page that has stopped changing, so nothing will
+            + "  if (!target && absentAfter != null && els.length === 0 && loaded()"
+            + "      && Date.now() - lastMutation >= absentAfter) {"
+            + "    return 'absent';"
+            + "  }"
+            + "  if (kind === 'allVisible') {"
+            + "    return els.length > 0 && els.every(isVisible) ? els : null;"
+            + "  }"
+            + "  for (var i = 0; i < els.length; i++) {"
+            + "    if (isVisible(els[i]) && (kind !== 'clickable' || !els[i].disabled)) { return els[i]; }"
+            + "  }"
+            + "  return null;"
+            + "}"
+            // Candidate locators in using/value arrays, the one that won last time on this path first.
+            // Also reports how long each evaluated candidate took and describes the winner.
+            + "function race() {"
+            + "  var preferred = options.preferred[location.pathname], order = [], anyMatch = false,"
+            + "      timings = using.map(function () { return null; });"
+            + "  if (preferred != null && preferred < using.length) { order.push(preferred); }"
+            + "  for (var c = 0; c < using.length; c++) { if (c !== preferred) { order.push(c); } }"
+            + "  for (var o = 0; o < order.length; o++) {"
+            + "    var found = [], started = performance.now();"
+            + "    try { found = find(using[order[o]], value[order[o]]); } catch (e) {}"
+            + "    timings[order[o]] = performance.now() - started;"
+            + "    anyMatch = anyMatch || found.length > 0;"
+            + "    for (var i = 0; i < found.length; i++) {"
+            + "      if (isVisible(found[i]) && (!options.clickable || !found[i].disabled)) {"
+            + "        return [order[o], found[i], location.pathname, timings, describe(found[i])];"
+            + "      }"
+            + "    }"
+            + "  }"
+            + "  if (!anyMatch && absentAfter != null && loaded() && Date.now() - lastMutation >= absentAfter) {"
+            + "    return 'absent';"
+            + "  }"
+            + "  return null;"
+            + "}"
+            // Readiness gates: per gate an array of candidate locators and a state in options.states
+            + "function gates() {"
+            + "  for (var g = 0; g < options.states.length; g++) {"
+            + "    var state = options.states[g], met = false, anyMatch = false;"
+            + "    for (var c = 0; c < using[g].length && !met; c++) {"
+            + "      var found = [];"
+            + "      try { found = find(using[g][c], value[g][c]); } catch (e) {}"
+            + "      anyMatch = anyMatch || found.length > 0;"
+            + "      for (var i = 0; i < found.length && !met; i++) {"
+            + "        met = state === 'PRESENT'"
+            + "            || (isVisible(found[i]) && (state === 'VISIBLE' || !found[i].disabled));"
+            + "      }"
+            + "    }"
+            + "    if (!met) {"
+            + "      return !anyMatch && absentAfter != null && loaded() && Date.now() - lastMutation >= absentAfter"
+            + "          ? 'absent' : null;"
+            + "    }"
+            + "  }"
+            + "  return true;"
+            + "}"
+            + "var initial = check();"
+            + "if (initial) { done(initial); return; }"
+            + "var finished = false, scheduled = false, observer, ticker, timer;"
+            + "function finish(result) {"
+            + "  if (finished) { return; }"
+            + "  finished = true;"
+            + "  observer.disconnect();"
+            + "  clearInterval(ticker);"
+            + "  clearTimeout(timer);"
+            + "  document.removeEventListener('readystatechange', schedule);"
+            + "  window.removeEventListener('load', schedule);"
+            + "  document.removeEventListener('transitionend', schedule, true);"
+            + "  document.removeEventListener('animationend', schedule, true);"
+            + "  done(result);"
+            + "}"
+            // Coalesce bursts of mutations into one check every few milliseconds
+            + "function schedule() {"
+            + "  if (scheduled || finished) { return; }"
+            + "  scheduled = true;"
+            + "  setTimeout(function () {"
+            + "    scheduled = false;"
+            + "    var result = null;"
+            + "    try { result = check(); } catch (e) {}"
+            + "    if (result) { finish(result); }"
+            + "  }, 16);"
+            + "}"
+            + "observer = new MutationObserver(function () { lastMutation = Date.now(); schedule(); });"
+            + "observer.observe(document.documentElement || document,"
+            + "    { childList: true, subtree: true, attributes: true });"
+            + "document.addEventListener('readystatechange', schedule);"
+            + "window.addEventListener('load', schedule);"
+            + "document.addEventListener('transitionend', schedule, true);"
+            + "document.addEventListener('animationend', schedule, true);"
+            // jQuery requests and layout changes do not always mutate the DOM,
+            // and a quiet DOM has to be noticed without any event firing
+            + "ticker = setInterval(schedule, kind === 'domQuiet' ? Math.max(16, value / 4)"
+            + "    : absentAfter != null ? Math.min(250, Math.max(16, absentAfter / 4)) : 250);"
+            + "timer = setTimeout(function () { finish(null); }, timeout);";
+
+    // Leave headroom below the driver's script timeout for the round-trip itself
+    private static final long SCRIPT_TIMEOUT_MARGIN_MILLIS = 1000;
+    private static final long MAX_SLICE_MILLIS = Math.max(1000,
+            FrameworkConfig.get().getSeconds("script.timeout.seconds", 15).toMillis() - SCRIPT_TIMEOUT_MARGIN_MILLIS);
+
+    // Private constructor prevents creating instances
+    private EventDrivenWait() {
+    }
+
+    // Waits until the page and any jQuery requests are done
+    static boolean pageLoad(WebDriver driver, long timeoutMillis) {
+        return await(driver, PAGE_LOAD, null, null, null, null, null, timeoutMillis) != null;
+    }
+
+    // Waits until the document has been parsed, without waiting for subresources
+    static boolean domReady(WebDriver driver, long timeoutMillis) {
+        return await(driver, DOM_READY, null, null, null, null, null, timeoutMillis) != null;
+    }
+
+    // Waits until no DOM mutation has happened for quietMillis
+    static boolean domQuiet(WebDriver driver, long quietMillis, long timeoutMillis) {
+        return await(driver, DOM_QUIET, null, quietMillis, null, null, null, timeoutMillis) != null;
+    }
+
+    /**
+     * Waits for the first element matching the locator to be visible (or clickable)
+     *
+     * @param absentAfterMillis Give up early once the page is loaded and has had no DOM mutation
+     *                          and no match for this long, null to wait out the timeout
+     * @throws NoSuchElementException when giving up early
+     */
+    static WebElement element(WebDriver driver, String kind, By locator, Long absentAfterMillis,
+            long timeoutMillis) {
+        return (WebElement) present(await(driver, kind, ScriptLocator.using(locator),
+                ScriptLocator.value(locator), null, absentAfterMillis, null, timeoutMillis), locator);
+    }
+
+    // Waits for the given element to be visible (or clickable)
+    static WebElement element(WebDriver driver, String kind, WebElement element, long timeoutMillis) {
+        return (WebElement) await(driver, kind, null, null, element, null, null, timeoutMillis);
+    }
+
+    // Waits for every element matching the locator to be visible, see element() for absentAfterMillis
+    @SuppressWarnings("unchecked")
+    static List<WebElement> allVisible(WebDriver driver, By locator, Long absentAfterMillis, long timeoutMillis) {
+        return (List<WebElement>) present(await(driver, ALL_VISIBLE, ScriptLocator.using(locator),
+                ScriptLocator.value(locator), null, absentAfterMillis, null, timeoutMillis), locator);
+    }
+
+    /**
+     * Waits for the first visible (or clickable) element among several
+     * candidate locators, all evaluated in the same poll
+     *
+     * @param preferred Candidate index to try first, keyed by URL path
+     * @return [candidate index, element, URL path, per-candidate find time in ms (null when not
+     *         evaluated), fingerprint of the element], or null when the timeout expires
+     * @throws NoSuchElementException when no candidate can match any more, see element()
+     */
+    @SuppressWarnings("unchecked")
+    static List<Object> race(WebDriver driver, List<By> candidates, boolean clickable, Map<String, Integer> preferred,
+            Long absentAfterMillis, long timeoutMillis) {
+        List<String> using = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        for (By candidate : candidates) {
+            using.add(ScriptLocator.using(candidate));
+            values.add(ScriptLocator.value(candidate));
+        }
+        Map<String, Object> options = new HashMap<>();
+        options.put("clickable", clickable);
+        options.put("preferred", preferred);
+        return (List<Object>) present(await(driver, RACE, using, values, null, absentAfterMillis, options,
+                timeoutMillis), candidates);
+    }
+
+    /**
+     * Waits until every gate is met, all evaluated in the same poll
+     *
+     * @throws NoSuchElementException when a gate can no longer be met, see element()
+     */
+    static boolean gates(WebDriver driver, List<ReadinessGate> gates, Long absentAfterMillis, long timeoutMillis) {
+        List<List<String>> using = new ArrayList<>();
+        List<List<String>> values = new ArrayList<>();
+        List<String> states = new ArrayList<>();
+        for (ReadinessGate gate : gates) {
+            List<String> gateUsing = new ArrayList<>();
+            List<String> gateValues = new ArrayList<>();
+            for (By locator : gate.getLocators()) {
+                gateUsing.add(ScriptLocator.using(locator));
+                gateValues.add(ScriptLocator.value(locator));
+            }
+            using.add(gateUsing);
+            values.add(gateValues);
+            states.add(gate.getState().name());
+        }
+        Map<String, Object> options = new HashMap<>();
+        options.put("states", states);
+        return present(await(driver, GATES, using, values, null, absentAfterMillis, options, timeoutMillis),
+                gates) != null;
+    }
+
+    // Error of a script whose document navigated away or unloaded while it was running
+    private static boolean isUnload(JavascriptException e) {
+        String message = String.valueOf(e.getRawMessage()).toLowerCase(Locale.ROOT);
+        for (String marker : UNLOAD_MESSAGES) {
+            if (message.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object present(Object result, Object locator) {
+        if (ABSENT.equals(result)) {
+            throw new NoSuchElementException("Nothing matches " + locator + " on the loaded page");
+        }
+        return result;
+    }
+
+    /**
+     * Runs the wait script in slices that fit inside the driver's script
+     * timeout. A slice can end early when the page navigates and unloads
+     * the script, so the next slice starts on the new document.
+     *
+     * @return the script result, or null when the timeout expires
+     * @throws JavascriptException right away for script errors other than an unloaded document
+     */
+    private static Object await(WebDriver driver, String kind, Object using, Object value, WebElement element,
+            Long absentAfterMillis, Map<String, Object> options, long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        do {
+            long slice = Math.min(MAX_SLICE_MILLIS, Math.max(0, deadline - System.currentTimeMillis()));
+            try {
+                Object result = ((JavascriptExecutor) driver).executeAsyncScript(
+                        WAIT_SCRIPT, kind, using, value, element, slice, absentAfterMillis, options);
+                if (result != null) {
+                    return result;
+                }
+            } catch (ScriptTimeoutException e) {
+                // Slice ran out, try again
+            } catch (JavascriptException e) {
+                // The document was replaced, try again on the current page; anything else, e.g. an invalid
+                // selector, fails the same way every time
+                if (!isUnload(e)) {
+                    throw e;
+                }
+            }
+        } while (System.currentTimeMillis() < deadline);
+
+        return null;
+    }
+}
@@ -0,0 +1,280 @@
+package com.brighthorizons.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded HTTP server that records the site under test into a local
+ * archive and replays it later with no network latency.
+ *
+ * fixture.mode=record proxies every request to base.url and stores the
+ * response; fixture.mode=replay serves only from the archive. In both modes
+ * the browser is sent to the local server instead of base.url, so scenario
+ * timings measure the framework rather than the live site.
+ */
+public final class FixtureServer {
+
+    private static final Logger log = LoggerFactory.getLogger(FixtureServer.class);
+
+    private static FixtureServer instance;
+    // A lock rather than a monitor, starting the server blocks and must not pin a virtual thread
+    private static final ReentrantLock lifecycle = new ReentrantLock();
+
+    private final String mode;
+    private final URI origin;
+    private final Path archiveDir;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicInteger missing = new AtomicInteger();
+
+    private FixtureServer(String mode, URI origin, Path archiveDir, int port) throws IOException {
+        this.mode = mode;
+        this.origin = origin;
+        this.archiveDir = archiveDir;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fixture-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * Base URL the browser should open: base.url itself when fixtures are off,
+     * otherwise the local server, started on first use
+     */
+    public static String getBaseUrl() {
+        String liveUrl = ConfigReader.getProperty("base.url");
+        String mode = ConfigReader.getProperty("fixture.mode", "off").trim().toLowerCase();
+        if (!"record".equals(mode) && !"replay".equals(mode)) {
+            return liveUrl;
+        }
+
+        lifecycle.lock();
+        try {
+            if (instance == null) {
+                try {
+                    instance = new FixtureServer(mode, URI.create(liveUrl),
+                            Paths.get(ConfigReader.getProperty("fixture.archive.dir", "src/test/fixtures/brighthorizons")),
+                            ConfigReader.getIntProperty("fixture.port", 0));
+                    instance.server.start();
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to start fixture server", e);
+                }
+            }
+            return "http://localhost:" + instance.server.getAddress().getPort() + "/";
+        } finally {
+            lifecycle.unlock();
+        }
+    }
+
+    // Stop the server, it keeps a non-daemon dispatcher thread alive until then
+    public static void shutdown() {
+        lifecycle.lock();
+        try {
+            if (instance != null) {
+                instance.server.stop(0);
+                instance.executor.shutdownNow();
+                System.out.println(String.format("Fixture server (%s): served=%d, recorded=%d, missing=%d",
+                        instance.mode, instance.served.get(), instance.recorded.get(), instance.missing.get()));
+                instance = null;
+            }
+        } finally {
+            lifecycle.unlock();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String pathAndQuery = exchange.getRequestURI().getRawPath()
+                    + (exchange.getRequestURI().getRawQuery() != null ? "?" + exchange.getRequestURI().getRawQuery() : "");
+            String key = method + " " + pathAndQuery;
+
+            Entry entry = load(key);
+            if (entry == null && "record".equals(mode)) {
+                entry = fetch(method, pathAndQuery, exchange);
+                if (entry != null && ("GET".equals(method) || "HEAD".equals(method))) {
+                    store(key, entry);
+                    recorded.incrementAndGet();
+                }
+            }
+
+            if (entry == null) {
+                missing.incrementAndGet();
+                log.warn("Fixture not archived: {}", key);
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            served.incrementAndGet();
+            if (entry.contentType != null) {
+                exchange.getResponseHeaders().add("Content-Type", entry.contentType);
+            }
+            if (entry.location != null) {
+                exchange.getResponseHeaders().add("Location", entry.location);
+            }
+            if ("HEAD".equals(method) || entry.body.length == 0) {
+                exchange.sendResponseHeaders(entry.status, -1);
+            } else {
+                exchange.sendResponseHeaders(entry.status, entry.body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(entry.body);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Fixture server failed to handle request: {}", e.getMessage());
+            try {
+                exchange.sendResponseHeaders(502, -1);
+            } catch (IOException ignored) {
+                // Headers were already sent
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Forward the request to the live site
+    private Entry fetch(String method, String pathAndQuery, HttpExchange exchange) throws IOException {
+        byte[] requestBody;
+        try (InputStream in = exchange.getRequestBody()) {
+            requestBody = in.readAllBytes();
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(origin.resolve(pathAndQuery))
+                .timeout(Duration.ofSeconds(60))
+                .header("Accept-Encoding", "identity")
+                .method(method, requestBody.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(requestBody)
+                        : HttpRequest.BodyPublishers.noBody());
+        for (String header : new String[] { "User-Agent", "Accept", "Accept-Language", "Content-Type" }) {
+            String value = exchange.getRequestHeaders().getFirst(header);
+            if (value != null) {
+                request.header(header, value);
+            }
+        }
+
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        Entry entry = new Entry();
+        entry.status = response.statusCode();
+        entry.contentType = response.headers().firstValue("Content-Type").orElse(null);
+        entry.location = response.headers().firstValue("Location").map(this::localize).orElse(null);
+        entry.body = isText(entry.contentType)
+                ? localize(new String(response.body(), StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8)
+                : response.body();
+        return entry;
+    }
+
+    // Point absolute links to the live origin at the local server instead
+    private String localize(String text) {
+        String host = origin.getHost();
+        return text.replace("https://" + host, "")
+                .replace("http://" + host, "")
+                .replace("//" + host, "");
+    }
+
+    private static boolean isText(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("javascript") || type.contains("json") || type.contains("xml");
+    }
+
+    private Entry load(String key) throws IOException {
+        String id = idFor(key);
+        Path meta = archiveDir.resolve(id + ".properties");
+        if (!Files.exists(meta)) {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            properties.load(in);
+        }
+        Entry entry = new Entry();
+        entry.status = Integer.parseInt(properties.getProperty("status", "200"));
+        entry.contentType = properties.getProperty("content-type");
+        entry.location = properties.getProperty("location");
+        entry.body = Files.readAllBytes(archiveDir.resolve(id + ".body"));
+        return entry;
+    }
+
+    private void store(String key, Entry entry) throws IOException {
+        String id = idFor(key);
+        Files.createDirectories(archiveDir);
+        Files.write(archiveDir.resolve(id + ".body"), entry.body);
+
+        Properties properties = new Properties();
+        properties.setProperty("request", key);
+        properties.setProperty("status", String.valueOf(entry.status));
+        if (entry.contentType != null) {
+            properties.setProperty("content-type", entry.contentType);
+        }
+        if (entry.location != null) {
+            properties.setProperty("location", entry.location);
+        }
+        try (OutputStream out = Files.newOutputStream(archiveDir.resolve(id + ".properties"))) {
+            properties.store(out, null);
+        }
+    }
+
+    private static String idFor(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private int status;
+        private String contentType;
+        private String location;
+        private byte[] body;
+    }
+}
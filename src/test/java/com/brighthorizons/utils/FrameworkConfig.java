@@ -0,0 +1,247 @@
+package com.brighthorizons.utils;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the framework configuration, parsed and validated
+ * once when first used. Values are layered, later layers winning:
+ * config.properties, then environment variables named BH_ plus the key in
+ * upper case with dots as underscores (BH_WAIT_BUDGET_SECONDS for
+ * wait.budget.seconds), then -D system properties.
+ *
+ * Every value is trimmed, split into a list and parsed as a number up
+ * front, and the snapshot is published through class initialization, so
+ * lookups from any thread are plain reads of immutable maps. Known keys are
+ * checked against their type or allowed values, and all problems are
+ * reported together in one exception before any browser starts.
+ */
+public final class FrameworkConfig {
+
+    private static final String ENV_PREFIX = "BH_";
+
+    // Allowed values of the enumerated settings
+    private static final Map<String, List<String>> CHOICES = new HashMap<>();
+
+    static {
+        CHOICES.put("browser", Arrays.asList("chrome", "firefox", "edge"));
+        CHOICES.put("launch.profile", Arrays.asList("fast-headless", "debug-headed", "ci"));
+        CHOICES.put("page.load.strategy", Arrays.asList("profile", "normal", "eager", "none"));
+        CHOICES.put("wait.mode", Arrays.asList("event", "polling"));
+        CHOICES.put("page.cache.mode", Arrays.asList("epoch", "mutations", "off"));
+        CHOICES.put("network.block.mode", Arrays.asList("block", "observe", "off"));
+        CHOICES.put("fixture.mode", Arrays.asList("off", "record", "replay"));
+        CHOICES.put("search.input.strategy", Arrays.asList("bulk", "chunked", "typed"));
+        CHOICES.put("screenshot.policy", Arrays.asList("always", "on-failure", "sampled"));
+        CHOICES.put("screenshot.format", Arrays.asList("png", "jpeg", "webp"));
+        CHOICES.put("log.level", Arrays.asList("trace", "debug", "info", "warn", "error"));
+        CHOICES.put("log.console.level", Arrays.asList("trace", "debug", "info", "warn", "error"));
+    }
+
+    // Switches whose names do not end in .enabled
+    private static final List<String> BOOLEANS = Arrays.asList("report.stream.inline.attachments");
+
+    // Suffixes of settings that must be whole numbers >= 0
+    private static final List<String> INT_SUFFIXES = Arrays.asList(
+            ".seconds", ".ms", ".size", ".uses", ".port", ".threads", ".kbps", ".timeout", ".rate", ".width",
+            ".count", ".index", ".hours");
+
+    // System properties under these prefixes belong to the JVM or the build tool, not the framework
+    private static final List<String> JVM_PREFIXES = Arrays.asList(
+            "java.", "javax.", "jdk.", "sun.", "os.", "user.", "file.", "line.", "path.", "native.", "stdout.",
+            "stderr.", "maven.", "surefire.", "idea.", "awt.", "socksNonProxyHosts", "http.", "https.", "ftp.");
+
+    private final Map<String, String> values;
+    private final Map<String, String> systemOverrides;
+    private final Map<String, Integer> ints;
+    private final Map<String, List<String>> lists;
+
+    // Initialization-on-demand holder: the JVM publishes the snapshot safely to every thread
+    private static final class Holder {
+        private static final FrameworkConfig INSTANCE = load();
+    }
+
+    private FrameworkConfig(Map<String, String> values, Map<String, String> systemOverrides) {
+        Map<String, Integer> parsedInts = new HashMap<>();
+        Map<String, List<String>> parsedLists = new HashMap<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            List<String> items = new ArrayList<>();
+            for (String item : entry.getValue().split(",")) {
+                if (!item.trim().isEmpty()) {
+                    items.add(item.trim());
+                }
+            }
+            parsedLists.put(entry.getKey(), Collections.unmodifiableList(items));
+            try {
+                parsedInts.put(entry.getKey(), Integer.parseInt(entry.getValue()));
+            } catch (NumberFormatException ignored) {
+                // Not a number, getInt falls back to its default
+            }
+        }
+        this.values = Collections.unmodifiableMap(values);
+        this.systemOverrides = Collections.unmodifiableMap(systemOverrides);
+        this.ints = Collections.unmodifiableMap(parsedInts);
+        this.lists = Collections.unmodifiableMap(parsedLists);
+    }
+
+    // The snapshot, loaded and validated on first use
+    public static FrameworkConfig get() {
+        return Holder.INSTANCE;
+    }
+
+    private static FrameworkConfig load() {
+        Properties file = new Properties();
+        try (InputStream input = FrameworkConfig.class.getClassLoader().getResourceAsStream("config.properties")) {
+            if (input == null) {
+                try (FileInputStream fileInput = new FileInputStream("src/test/resources/config.properties")) {
+                    file.load(fileInput);
+                }
+            } else {
+                file.load(input);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load config.properties", e);
+        }
+        return load(file, System.getenv(), System.getProperties());
+    }
+
+    // The file, then BH_ environment variables, then system properties, validated together
+    static FrameworkConfig load(Properties file, Map<String, String> environment, Properties system) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : file.stringPropertyNames()) {
+            values.put(key, file.getProperty(key).trim());
+        }
+        for (Map.Entry<String, String> entry : environment.entrySet()) {
+            if (entry.getKey().startsWith(ENV_PREFIX)) {
+                String key = entry.getKey().substring(ENV_PREFIX.length()).toLowerCase(Locale.ROOT).replace('_', '.');
+                values.put(key, entry.getValue().trim());
+            }
+        }
+        Map<String, String> systemOverrides = new LinkedHashMap<>();
+        for (String key : system.stringPropertyNames()) {
+            if (!isJvmProperty(key)) {
+                systemOverrides.put(key, system.getProperty(key).trim());
+            }
+        }
+        values.putAll(systemOverrides);
+
+        validate(values);
+        return new FrameworkConfig(values, systemOverrides);
+    }
+
+    // Properties the JVM sets itself are not framework settings
+    private static boolean isJvmProperty(String key) {
+        return JVM_PREFIXES.stream().anyMatch(key::startsWith);
+    }
+
+    // Fails with every invalid setting listed, not just the first
+    static void validate(Map<String, String> values) {
+        List<String> problems = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            List<String> choices = CHOICES.get(key);
+            if (choices != null && !choices.contains(value.toLowerCase(Locale.ROOT))) {
+                problems.add(key + "=" + value + " (expected one of " + choices + ")");
+            } else if (INT_SUFFIXES.stream().anyMatch(key::endsWith) && !value.matches("\\d+")) {
+                problems.add(key + "=" + value + " (expected a whole number >= 0)");
+            } else if ((key.endsWith(".enabled") || BOOLEANS.contains(key)) && !value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+                problems.add(key + "=" + value + " (expected true or false)");
+            }
+        }
+        String threshold = values.get("locator.heal.threshold");
+        if (threshold != null && !isFraction(threshold)) {
+            problems.add("locator.heal.threshold=" + threshold + " (expected a number between 0 and 1)");
+        }
+        String quality = values.get("screenshot.jpeg.quality");
+        if (quality != null && !isFraction(quality)) {
+            problems.add("screenshot.jpeg.quality=" + quality + " (expected a number between 0 and 1)");
+        }
+        String jitter = values.get("retry.backoff.jitter");
+        if (jitter != null && !isFraction(jitter)) {
+            problems.add("retry.backoff.jitter=" + jitter + " (expected a number between 0 and 1)");
+        }
+        String policies = values.get("retry.policies");
+        if (policies != null && !policies.trim().isEmpty()
+                && !policies.matches("\\s*\\w+\\s*:\\s*\\d+\\s*(,\\s*\\w+\\s*:\\s*\\d+\\s*)*")) {
+            problems.add("retry.policies=" + policies + " (expected ExceptionName:attempts, comma separated)");
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Invalid configuration:\n  " + String.join("\n  ", problems));
+        }
+    }
+
+    private static boolean isFraction(String value) {
+        try {
+            double number = Double.parseDouble(value);
+            return number >= 0 && number <= 1;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // Settings given as -D system properties, e.g. to pass on to forked JVMs
+    public Map<String, String> getSystemOverrides() {
+        return systemOverrides;
+    }
+
+    // Raw value, or null when the key is not set
+    public String getString(String key) {
+        return values.get(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return ints.getOrDefault(key, defaultValue);
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    // Comma-separated value as trimmed, non-empty items; empty when the key is not set
+    public List<String> getList(String key) {
+        return lists.getOrDefault(key, Collections.emptyList());
+    }
+
+    // Whole seconds, e.g. implicit.wait.seconds
+    public Duration getSeconds(String key, long defaultSeconds) {
+        return Duration.ofSeconds(getInt(key, (int) defaultSeconds));
+    }
+
+    // Whole milliseconds, e.g. wait.absent.quiet.ms
+    public Duration getMillis(String key, long defaultMillis) {
+        return Duration.ofMillis(getInt(key, (int) defaultMillis));
+    }
+
+    /**
+     * Enumerated value, matched against the constant names ignoring case
+     * with dashes as underscores (fast-headless matches FAST_HEADLESS)
+     */
+    public <E extends Enum<E>> E getEnum(String key, Class<E> type, E defaultValue) {
+        String value = values.get(key);
+        return value != null
+                ? Enum.valueOf(type, value.toUpperCase(Locale.ROOT).replace('-', '_'))
+                : defaultValue;
+    }
+}
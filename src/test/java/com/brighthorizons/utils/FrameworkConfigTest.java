@@ -0,0 +1,128 @@
+package com.brighthorizons.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrameworkConfigTest {
+
+    @Test
+    public void laterLayersWin() {
+        Properties file = properties("browser", "chrome", "wait.mode", "event", "default.timeout", "20");
+        Map<String, String> environment = new HashMap<>();
+        environment.put("BH_BROWSER", "firefox");
+        environment.put("BH_WAIT_MODE", "polling");
+        Properties system = properties("browser", "edge");
+
+        FrameworkConfig config = FrameworkConfig.load(file, environment, system);
+
+        assertEquals("edge", config.getString("browser"));
+        assertEquals("polling", config.getString("wait.mode"));
+        assertEquals(20, config.getInt("default.timeout", 0));
+        assertEquals(Collections.singletonMap("browser", "edge"), config.getSystemOverrides());
+    }
+
+    @Test
+    public void ignoresOtherEnvironmentAndJvmProperties() {
+        Map<String, String> environment = Collections.singletonMap("BROWSER", "firefox");
+        Properties system = properties("java.version", "21", "user.dir", "/tmp", "surefire.real.class.path", "x");
+
+        FrameworkConfig config = FrameworkConfig.load(properties("browser", "chrome"), environment, system);
+
+        assertEquals("chrome", config.getString("browser"));
+        assertTrue(config.getSystemOverrides().isEmpty());
+    }
+
+    @Test
+    public void valuesAreTrimmedAndSplit() {
+        FrameworkConfig config = FrameworkConfig.load(
+                properties("matrix.browsers", " chrome, ,firefox ", "parallel.threads", " 4 "),
+                Collections.emptyMap(), new Properties());
+
+        assertEquals(Arrays.asList("chrome", "firefox"), config.getList("matrix.browsers"));
+        assertEquals(4, config.getInt("parallel.threads", 1));
+    }
+
+    @Test
+    public void numericSuffixesNeedWholeNumbers() {
+        for (String key : new String[] { "wait.budget.seconds", "wait.absent.quiet.ms", "log.buffer.size",
+                "driver.pool.max.uses", "fixture.port", "parallel.threads", "default.timeout", "shard.count",
+                "shard.index", "driver.cache.ttl.hours" }) {
+            FrameworkConfig.validate(Collections.singletonMap(key, "0"));
+            assertInvalid(Collections.singletonMap(key, "-1"), key);
+            assertInvalid(Collections.singletonMap(key, "1.5"), key);
+            assertInvalid(Collections.singletonMap(key, "ten"), key);
+        }
+    }
+
+    @Test
+    public void choicesAndSwitches() {
+        FrameworkConfig.validate(Collections.singletonMap("launch.profile", "FAST-HEADLESS"));
+        assertInvalid(Collections.singletonMap("launch.profile", "headless"), "launch.profile");
+
+        FrameworkConfig.validate(Collections.singletonMap("driver.pool.enabled", "TRUE"));
+        assertInvalid(Collections.singletonMap("driver.pool.enabled", "yes"), "driver.pool.enabled");
+        assertInvalid(Collections.singletonMap("report.stream.inline.attachments", "1"),
+                "report.stream.inline.attachments");
+    }
+
+    @Test
+    public void fractionsAndRetryPolicies() {
+        FrameworkConfig.validate(Collections.singletonMap("retry.backoff.jitter", "0.5"));
+        assertInvalid(Collections.singletonMap("retry.backoff.jitter", "1.5"), "retry.backoff.jitter");
+        assertInvalid(Collections.singletonMap("locator.heal.threshold", "high"), "locator.heal.threshold");
+
+        FrameworkConfig.validate(Collections.singletonMap("retry.policies", "StaleElementReferenceException:3, A:1"));
+        FrameworkConfig.validate(Collections.singletonMap("retry.policies", ""));
+        assertInvalid(Collections.singletonMap("retry.policies", "StaleElementReferenceException"), "retry.policies");
+    }
+
+    @Test
+    public void reportsEveryProblemTogether() {
+        Map<String, String> values = new HashMap<>();
+        values.put("browser", "safari");
+        values.put("parallel.threads", "many");
+        values.put("instrumentation.enabled", "maybe");
+        try {
+            FrameworkConfig.validate(values);
+            fail("Expected the configuration to be rejected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("browser=safari"));
+            assertTrue(e.getMessage(), e.getMessage().contains("parallel.threads=many"));
+            assertTrue(e.getMessage(), e.getMessage().contains("instrumentation.enabled=maybe"));
+        }
+    }
+
+    @Test
+    public void unknownKeysAreNotChecked() {
+        FrameworkConfig.validate(Collections.singletonMap("cookie.accept.xpath", "//button"));
+        assertFalse(FrameworkConfig.load(new Properties(), Collections.emptyMap(), new Properties())
+                .getBoolean("anything.enabled", false));
+    }
+
+    private static void assertInvalid(Map<String, String> values, String key) {
+        try {
+            FrameworkConfig.validate(values);
+            fail("Expected " + values + " to be rejected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(key + "="));
+        }
+    }
+
+    private static Properties properties(String... keysAndValues) {
+        Properties properties = new Properties();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            properties.setProperty(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,367 @@
+package com.brighthorizons.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes Cucumber's JSON report (CucumberTestReport.json, read by
+ * ShardPlanner and ReportMerger) from the events.ndjson stream of
+ * {@link StreamingReportPlugin} once the run is over, instead of Cucumber's
+ * json plugin holding every result and screenshot until then.
+ *
+ * Only the parsed features and the pickles and test cases still to finish
+ * are kept while reading. Each finished scenario is appended to a spool
+ * file of its feature right away and forgotten, and the report is put
+ * together from those files. Attachments are
+ * left out, the HTML report has them.
+ */
+public final class JsonReportWriter {
+
+    // Message types the report is built from, the rest of the stream is skipped unparsed
+    private static final String[] READ = { "gherkinDocument", "pickle", "testCase", "hook", "stepDefinition",
+            "testCaseStarted", "testStepFinished", "testCaseFinished" };
+
+    // Gherkin nodes by id: scenarios, backgrounds, steps and Examples rows
+    private final Map<String, JsonNode> nodes = new HashMap<>();
+    // Background of each background step, Examples of each Examples row
+    private final Map<String, JsonNode> backgroundOf = new HashMap<>();
+    private final Map<String, JsonNode> examplesOf = new HashMap<>();
+    // Feature of each document uri, in document order
+    private final Map<String, JsonNode> features = new LinkedHashMap<>();
+    // Pickles and test cases until their scenario has finished for the last time
+    private final Map<String, JsonNode> pickles = new HashMap<>();
+    private final Map<String, JsonNode> testCases = new HashMap<>();
+    // Glue location of each hook and step definition
+    private final Map<String, String> glue = new HashMap<>();
+    // Scenarios in flight by testCaseStarted id: the started message and the step results so far
+    private final Map<String, JsonNode> started = new HashMap<>();
+    private final Map<String, Map<String, JsonNode>> results = new HashMap<>();
+    // Spool file of each feature uri that has a finished scenario
+    private final Map<String, Path> spools = new LinkedHashMap<>();
+    private final Path spoolDirectory;
+
+    private JsonReportWriter(Path spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public static void write(Path events, Path json) throws IOException {
+        Path parent = json.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        JsonReportWriter writer = new JsonReportWriter(Files.createTempDirectory(parent, "json-report"));
+        try {
+            writer.read(events);
+            writer.writeReport(json);
+        } finally {
+            writer.deleteSpools();
+        }
+    }
+
+    private void read(Path events) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(events, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                // Every line is {"<type>":{...}}
+                String type = line.substring(2, line.indexOf('"', 2));
+                if (!isRead(type)) {
+                    continue;
+                }
+                JsonNode message = StreamingReportPlugin.MESSAGE_JSON.readTree(line).get(type);
+                switch (type) {
+                    case "gherkinDocument":
+                        addDocument(message);
+                        break;
+                    case "pickle":
+                        pickles.put(message.path("id").asText(), message);
+                        break;
+                    case "testCase":
+                        testCases.put(message.path("id").asText(), message);
+                        break;
+                    case "hook":
+                    case "stepDefinition":
+                        glue.put(message.path("id").asText(), location(message.path("sourceReference")));
+                        break;
+                    case "testCaseStarted":
+                        started.put(message.path("id").asText(), message);
+                        results.put(message.path("id").asText(), new HashMap<>());
+                        break;
+                    case "testStepFinished":
+                        Map<String, JsonNode> steps = results.get(message.path("testCaseStartedId").asText());
+                        if (steps != null) {
+                            steps.put(message.path("testStepId").asText(), message.path("testStepResult"));
+                        }
+                        break;
+                    default:
+                        finish(message);
+                        break;
+                }
+            }
+        }
+    }
+
+    private static boolean isRead(String type) {
+        for (String read : READ) {
+            if (read.equals(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addDocument(JsonNode document) {
+        JsonNode feature = document.path("feature");
+        if (feature.isMissingNode()) {
+            return;
+        }
+        features.put(document.path("uri").asText(), feature);
+        addChildren(feature.path("children"));
+    }
+
+    private void addChildren(JsonNode children) {
+        for (JsonNode child : children) {
+            JsonNode background = child.path("background");
+            if (!background.isMissingNode()) {
+                nodes.put(background.path("id").asText(), background);
+                for (JsonNode step : background.path("steps")) {
+                    nodes.put(step.path("id").asText(), step);
+                    backgroundOf.put(step.path("id").asText(), background);
+                }
+            }
+            JsonNode scenario = child.path("scenario");
+            if (!scenario.isMissingNode()) {
+                nodes.put(scenario.path("id").asText(), scenario);
+                for (JsonNode step : scenario.path("steps")) {
+                    nodes.put(step.path("id").asText(), step);
+                }
+                for (JsonNode examples : scenario.path("examples")) {
+                    for (JsonNode row : examples.path("tableBody")) {
+                        nodes.put(row.path("id").asText(), row);
+                        examplesOf.put(row.path("id").asText(), examples);
+                    }
+                }
+            }
+            addChildren(child.path("rule").path("children"));
+        }
+    }
+
+    // A finished scenario goes to its feature's spool file, unless it will be run again (with the same test case)
+    private void finish(JsonNode finished) throws IOException {
+        String startedId = finished.path("testCaseStartedId").asText();
+        JsonNode testCaseStarted = started.remove(startedId);
+        Map<String, JsonNode> stepResults = results.remove(startedId);
+        if (testCaseStarted == null || finished.path("willBeRetried").asBoolean()) {
+            return;
+        }
+        JsonNode testCase = testCases.remove(testCaseStarted.path("testCaseId").asText());
+        JsonNode pickle = testCase != null ? pickles.remove(testCase.path("pickleId").asText()) : null;
+        if (pickle == null || !features.containsKey(pickle.path("uri").asText())) {
+            return;
+        }
+        String uri = pickle.path("uri").asText();
+        JsonNode feature = features.get(uri);
+        JsonNode scenario = nodes.get(pickle.path("astNodeIds").path(0).asText());
+        String lastNodeId = pickle.path("astNodeIds").path(pickle.path("astNodeIds").size() - 1).asText();
+        JsonNode lastNode = nodes.get(lastNodeId);
+
+        ObjectNode element = object();
+        element.put("start_timestamp", timestamp(testCaseStarted.path("timestamp")));
+        element.put("id", id(feature.path("name").asText()) + ";" + elementId(pickle, scenario, lastNodeId));
+        element.put("keyword", scenario != null ? scenario.path("keyword").asText() : "Scenario");
+        element.put("name", pickle.path("name").asText());
+        element.put("description", scenario != null ? scenario.path("description").asText() : "");
+        // The Examples row of an outline, like the line a rerun or a shard plan names
+        element.put("line", lastNode != null ? lastNode.path("location").path("line").asLong() : 0);
+        element.put("type", "scenario");
+        ArrayNode tags = element.putArray("tags");
+        for (JsonNode tag : pickle.path("tags")) {
+            tags.addObject().put("name", tag.path("name").asText());
+        }
+
+        Map<String, JsonNode> pickleSteps = new HashMap<>();
+        for (JsonNode step : pickle.path("steps")) {
+            pickleSteps.put(step.path("id").asText(), step);
+        }
+        ObjectNode background = null;
+        ArrayNode before = element.putArray("before");
+        ArrayNode steps = element.putArray("steps");
+        ArrayNode after = element.putArray("after");
+        for (JsonNode testStep : testCase.path("testSteps")) {
+            JsonNode result = stepResults.get(testStep.path("id").asText());
+            JsonNode pickleStep = pickleSteps.get(testStep.path("pickleStepId").asText());
+            if (pickleStep == null) {
+                // Hooks before the first step are before hooks, any later one counts as after
+                ObjectNode hook = (steps.size() == 0 && (background == null || background.path("steps").size() == 0)
+                        ? before : after).addObject();
+                hook.putObject("match").put("location", glue.getOrDefault(testStep.path("hookId").asText(), ""));
+                hook.set("result", result(result));
+                continue;
+            }
+            String astNodeId = pickleStep.path("astNodeIds").path(0).asText();
+            JsonNode gherkinStep = nodes.get(astNodeId);
+            ObjectNode step;
+            if (backgroundOf.containsKey(astNodeId)) {
+                if (background == null) {
+                    background = background(backgroundOf.get(astNodeId));
+                }
+                step = ((ArrayNode) background.get("steps")).addObject();
+            } else {
+                step = steps.addObject();
+            }
+            step.put("keyword", gherkinStep != null ? gherkinStep.path("keyword").asText() : "");
+            step.put("name", pickleStep.path("text").asText());
+            step.put("line", gherkinStep != null ? gherkinStep.path("location").path("line").asLong() : 0);
+            JsonNode definitions = testStep.path("stepDefinitionIds");
+            if (definitions.size() > 0) {
+                step.putObject("match").put("location", glue.getOrDefault(definitions.path(0).asText(), ""));
+            }
+            step.set("result", result(result));
+        }
+
+        StringBuilder lines = new StringBuilder();
+        if (background != null) {
+            lines.append(StreamingReportPlugin.MESSAGE_JSON.writeValueAsString(background)).append('\n');
+        }
+        lines.append(StreamingReportPlugin.MESSAGE_JSON.writeValueAsString(element)).append('\n');
+        Path spool = spools.computeIfAbsent(uri, key -> spoolDirectory.resolve(spools.size() + ".ndjson"));
+        Files.write(spool, lines.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Cucumber's JSON reports the background steps of each scenario as an element of their own
+    private static ObjectNode background(JsonNode gherkin) {
+        ObjectNode background = object();
+        background.put("keyword", gherkin.path("keyword").asText());
+        background.put("name", gherkin.path("name").asText());
+        background.put("description", gherkin.path("description").asText());
+        background.put("line", gherkin.path("location").path("line").asLong());
+        background.put("type", "background");
+        background.putArray("steps");
+        return background;
+    }
+
+    // status in lower case, duration in nanoseconds
+    private static ObjectNode result(JsonNode result) {
+        ObjectNode json = object();
+        if (result == null) {
+            json.put("status", "skipped");
+            return json;
+        }
+        json.put("status", result.path("status").asText("unknown").toLowerCase(Locale.ROOT));
+        long nanos = result.path("duration").path("seconds").asLong() * 1_000_000_000L
+                + result.path("duration").path("nanos").asLong();
+        if (nanos > 0) {
+            json.put("duration", nanos);
+        }
+        if (result.hasNonNull("message")) {
+            json.put("error_message", result.path("message").asText());
+        }
+        return json;
+    }
+
+    // The features with finished scenarios, each with its spooled elements
+    private void writeReport(Path json) throws IOException {
+        try (OutputStream out = Files.newOutputStream(json);
+                JsonGenerator generator = StreamingReportPlugin.MESSAGE_JSON.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (Map.Entry<String, Path> spool : spools.entrySet()) {
+                JsonNode feature = features.get(spool.getKey());
+                generator.writeStartObject();
+                generator.writeStringField("uri", spool.getKey());
+                generator.writeStringField("id", id(feature.path("name").asText()));
+                generator.writeStringField("keyword", feature.path("keyword").asText());
+                generator.writeStringField("name", feature.path("name").asText());
+                generator.writeStringField("description", feature.path("description").asText());
+                generator.writeNumberField("line", feature.path("location").path("line").asLong());
+                generator.writeArrayFieldStart("tags");
+                for (JsonNode tag : feature.path("tags")) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", tag.path("name").asText());
+                    generator.writeStringField("type", "Tag");
+                    generator.writeObjectFieldStart("location");
+                    generator.writeNumberField("line", tag.path("location").path("line").asLong());
+                    generator.writeNumberField("column", tag.path("location").path("column").asLong());
+                    generator.writeEndObject();
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeArrayFieldStart("elements");
+                try (Stream<String> elements = Files.lines(spool.getValue(), StandardCharsets.UTF_8)) {
+                    for (String element : (Iterable<String>) elements::iterator) {
+                        generator.writeRawValue(element);
+                    }
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void deleteSpools() throws IOException {
+        for (Path spool : spools.values()) {
+            Files.deleteIfExists(spool);
+        }
+        Files.deleteIfExists(spoolDirectory);
+    }
+
+    // Hook or step definition location: Class.method(types) or uri:line
+    private static String location(JsonNode source) {
+        JsonNode method = source.path("javaMethod");
+        if (!method.isMissingNode()) {
+            StringBuilder location = new StringBuilder(method.path("className").asText())
+                    .append('.').append(method.path("methodName").asText()).append('(');
+            for (JsonNode type : method.path("methodParameterTypes")) {
+                location.append(location.charAt(location.length() - 1) == '(' ? "" : ",").append(type.asText());
+            }
+            return location.append(')').toString();
+        }
+        return source.path("uri").asText("") + ":" + source.path("location").path("line").asLong();
+    }
+
+    // scenario-name, or outline-name;examples-name;row for an Examples row (the header is row 1)
+    private String elementId(JsonNode pickle, JsonNode scenario, String rowId) {
+        JsonNode examples = examplesOf.get(rowId);
+        if (examples == null || scenario == null) {
+            return id(pickle.path("name").asText());
+        }
+        int row = 2;
+        for (JsonNode body : examples.path("tableBody")) {
+            if (body.path("id").asText().equals(rowId)) {
+                break;
+            }
+            row++;
+        }
+        return id(scenario.path("name").asText()) + ";" + id(examples.path("name").asText()) + ";" + row;
+    }
+
+    // Feature and scenario ids as Cucumber's JSON writes them
+    private static String id(String name) {
+        return name.replaceAll("[\\s'_,!]", "-").toLowerCase(Locale.ROOT);
+    }
+
+    private static String timestamp(JsonNode timestamp) {
+        return Instant.ofEpochSecond(timestamp.path("seconds").asLong(), timestamp.path("nanos").asLong()).toString();
+    }
+
+    private static ObjectNode object() {
+        return StreamingReportPlugin.MESSAGE_JSON.createObjectNode();
+    }
+}
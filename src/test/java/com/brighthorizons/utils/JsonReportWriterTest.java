@@ -0,0 +1,225 @@
+package com.brighthorizons.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class JsonReportWriterTest {
+
+    private static final String URI = "file:src/test/resources/features/report.feature";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> events = new ArrayList<>();
+
+    // Feature: Report (line 1), Background (3) with one step (4), an outline (6) with one step (7) and two
+    // Examples rows (11, 12); a Before and an After hook around every scenario
+    @Before
+    public void describeTheFeature() throws JsonProcessingException {
+        Map<String, Object> background = map("id", "bg", "keyword", "Background", "name", "", "description", "",
+                "location", location(3), "steps", Collections.singletonList(
+                        map("id", "bg-step", "keyword", "Given ", "text", "a background step",
+                                "location", location(4))));
+        Map<String, Object> examples = map("id", "examples", "keyword", "Examples", "name", "values",
+                "location", location(9), "tableBody", Arrays.asList(
+                        map("id", "row-1", "location", location(11)),
+                        map("id", "row-2", "location", location(12))));
+        Map<String, Object> outline = map("id", "outline", "keyword", "Scenario Outline", "name", "outline <n>",
+                "description", "", "location", location(6), "steps", Collections.singletonList(
+                        map("id", "step", "keyword", "When ", "text", "I do \"<n>\"", "location", location(7))),
+                "examples", Collections.singletonList(examples));
+        message("gherkinDocument", "uri", URI, "feature", map("keyword", "Feature", "name", "Report",
+                "description", "", "location", location(1), "tags", Collections.emptyList(),
+                "children", Arrays.asList(map("background", background), map("scenario", outline))));
+
+        message("hook", "id", "before", "sourceReference", javaMethod("before", "io.cucumber.java.Scenario"));
+        message("hook", "id", "after", "sourceReference", javaMethod("after"));
+        message("stepDefinition", "id", "background", "sourceReference", javaMethod("background"));
+        message("stepDefinition", "id", "doIt", "sourceReference", javaMethod("doIt", "java.lang.String"));
+
+        for (int row = 1; row <= 2; row++) {
+            message("pickle", "id", "pickle-" + row, "uri", URI, "name", "outline " + row,
+                    "astNodeIds", Arrays.asList("outline", "row-" + row), "tags", Collections.emptyList(),
+                    "steps", Arrays.asList(
+                            map("id", "pickle-" + row + "-bg", "text", "a background step",
+                                    "astNodeIds", Collections.singletonList("bg-step")),
+                            map("id", "pickle-" + row + "-step", "text", "I do \"" + row + "\"",
+                                    "astNodeIds", Arrays.asList("step", "row-" + row))));
+            message("testCase", "id", "case-" + row, "pickleId", "pickle-" + row, "testSteps", Arrays.asList(
+                    map("id", "case-" + row + "-before", "hookId", "before"),
+                    map("id", "case-" + row + "-bg", "pickleStepId", "pickle-" + row + "-bg",
+                            "stepDefinitionIds", Collections.singletonList("background")),
+                    map("id", "case-" + row + "-step", "pickleStepId", "pickle-" + row + "-step",
+                            "stepDefinitionIds", Collections.singletonList("doIt")),
+                    map("id", "case-" + row + "-after", "hookId", "after")));
+        }
+    }
+
+    @Test
+    public void writesOutlineRowsWithTheirBackgroundAndHooks() throws IOException {
+        run("run-1", "case-1", false, "PASSED", "PASSED");
+        run("run-2", "case-2", false, "PASSED", "PASSED");
+
+        JsonNode feature = single(write());
+        assertEquals(URI, feature.path("uri").asText());
+        assertEquals("report", feature.path("id").asText());
+
+        JsonNode elements = feature.path("elements");
+        assertEquals(4, elements.size());
+        for (int row = 1; row <= 2; row++) {
+            JsonNode background = elements.path(2 * row - 2);
+            assertEquals("background", background.path("type").asText());
+            assertEquals(3, background.path("line").asInt());
+            assertEquals(1, background.path("steps").size());
+            assertEquals("a background step", background.path("steps").path(0).path("name").asText());
+            assertEquals(4, background.path("steps").path(0).path("line").asInt());
+
+            JsonNode scenario = elements.path(2 * row - 1);
+            assertEquals("scenario", scenario.path("type").asText());
+            // Examples header is row 1, so the first body row is 2
+            assertEquals("report;outline-<n>;values;" + (row + 1), scenario.path("id").asText());
+            assertEquals(10 + row, scenario.path("line").asInt());
+            assertEquals("outline " + row, scenario.path("name").asText());
+        }
+    }
+
+    @Test
+    public void hooksGoBeforeAndAfterTheSteps() throws IOException {
+        run("run-1", "case-1", false, "PASSED", "PASSED");
+
+        JsonNode scenario = single(write()).path("elements").path(1);
+        assertEquals(1, scenario.path("before").size());
+        assertEquals("glue.Steps.before(io.cucumber.java.Scenario)",
+                scenario.path("before").path(0).path("match").path("location").asText());
+        assertEquals(1, scenario.path("after").size());
+        assertEquals("glue.Steps.after()", scenario.path("after").path(0).path("match").path("location").asText());
+
+        // The background step is in the background element, not among the scenario's steps
+        assertEquals(1, scenario.path("steps").size());
+        JsonNode step = scenario.path("steps").path(0);
+        assertEquals("When ", step.path("keyword").asText());
+        assertEquals("I do \"1\"", step.path("name").asText());
+        assertEquals(7, step.path("line").asInt());
+        assertEquals("glue.Steps.doIt(java.lang.String)", step.path("match").path("location").asText());
+        assertEquals("passed", step.path("result").path("status").asText());
+        assertEquals(2_000_000_500L, step.path("result").path("duration").asLong());
+    }
+
+    @Test
+    public void onlyTheLastAttemptOfARetriedScenarioIsReported() throws IOException {
+        run("run-1", "case-1", true, "PASSED", "FAILED");
+        run("run-2", "case-1", false, "PASSED", "PASSED");
+
+        JsonNode elements = single(write()).path("elements");
+        assertEquals(2, elements.size());
+        JsonNode step = elements.path(1).path("steps").path(0);
+        assertEquals("passed", step.path("result").path("status").asText());
+        assertFalse(step.path("result").has("error_message"));
+    }
+
+    @Test
+    public void failuresKeepTheirMessageAndStepsWithoutResultAreSkipped() throws IOException {
+        message("testCaseStarted", "id", "run-1", "testCaseId", "case-1", "timestamp", timestamp());
+        stepFinished("run-1", "case-1-before", "PASSED");
+        stepFinished("run-1", "case-1-bg", "FAILED");
+        message("testCaseFinished", "testCaseStartedId", "run-1", "willBeRetried", false);
+
+        JsonNode elements = single(write()).path("elements");
+        JsonNode failed = elements.path(0).path("steps").path(0).path("result");
+        assertEquals("failed", failed.path("status").asText());
+        assertEquals("boom", failed.path("error_message").asText());
+        assertEquals("skipped", elements.path(1).path("steps").path(0).path("result").path("status").asText());
+        assertEquals("skipped", elements.path(1).path("after").path(0).path("result").path("status").asText());
+    }
+
+    @Test
+    public void unfinishedScenariosAreLeftOut() throws IOException {
+        message("testCaseStarted", "id", "run-1", "testCaseId", "case-1", "timestamp", timestamp());
+        stepFinished("run-1", "case-1-before", "PASSED");
+
+        assertEquals(0, write().size());
+    }
+
+    // One attempt of a test case: before hook, background step with backgroundStatus, step with stepStatus, after
+    private void run(String id, String testCase, boolean willBeRetried, String backgroundStatus, String stepStatus)
+            throws JsonProcessingException {
+        message("testCaseStarted", "id", id, "testCaseId", testCase, "timestamp", timestamp());
+        stepFinished(id, testCase + "-before", "PASSED");
+        stepFinished(id, testCase + "-bg", backgroundStatus);
+        stepFinished(id, testCase + "-step", stepStatus);
+        stepFinished(id, testCase + "-after", "PASSED");
+        message("testCaseFinished", "testCaseStartedId", id, "willBeRetried", willBeRetried);
+    }
+
+    private void stepFinished(String started, String step, String status) throws JsonProcessingException {
+        Map<String, Object> result = map("status", status, "duration", map("seconds", 2, "nanos", 500));
+        if ("FAILED".equals(status)) {
+            result.put("message", "boom");
+        }
+        message("testStepFinished", "testCaseStartedId", started, "testStepId", step, "testStepResult", result);
+    }
+
+    private JsonNode write() throws IOException {
+        Path stream = folder.newFile("events.ndjson").toPath();
+        Files.write(stream, events, StandardCharsets.UTF_8);
+        Path json = folder.getRoot().toPath().resolve("report").resolve(ReportMerger.JSON_REPORT);
+
+        JsonReportWriter.write(stream, json);
+
+        // Only the report is left, no spool files
+        try (Stream<Path> files = Files.list(json.getParent())) {
+            assertEquals(1, files.count());
+        }
+        return StreamingReportPlugin.MESSAGE_JSON.readTree(json.toFile());
+    }
+
+    private static JsonNode single(JsonNode report) {
+        assertEquals(1, report.size());
+        return report.path(0);
+    }
+
+    private void message(String type, Object... keysAndValues) throws JsonProcessingException {
+        events.add(StreamingReportPlugin.MESSAGE_JSON.writeValueAsString(
+                Collections.singletonMap(type, map(keysAndValues))));
+    }
+
+    private static Map<String, Object> javaMethod(String method, String... parameterTypes) {
+        return map("javaMethod", map("className", "glue.Steps", "methodName", method,
+                "methodParameterTypes", Arrays.asList(parameterTypes)));
+    }
+
+    private static Map<String, Object> location(int line) {
+        return map("line", line, "column", 3);
+    }
+
+    private static Map<String, Object> timestamp() {
+        return map("seconds", 1_700_000_000L, "nanos", 0);
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
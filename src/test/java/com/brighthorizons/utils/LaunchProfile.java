@@ -0,0 +1,174 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Named browser launch settings, selected with launch.profile. The options
+ * in config.properties are applied first; the profile adds headless mode,
+ * image loading, window size, profile directory and page load strategy.
+ *
+ * fast-headless: tuned for launch time and memory, pages count as loaded
+ * once the DOM is ready (EAGER).
+ * debug-headed: a visible, maximized browser that loads everything, opt in
+ * with -Dlaunch.profile=debug-headed to watch a run.
+ * ci: headless like fast-headless but keeps the NORMAL page load strategy,
+ * so runs on shared agents wait for the full page.
+ */
+public enum LaunchProfile {
+
+    FAST_HEADLESS("fast-headless", true, false, "1920,1080", true, PageLoadStrategy.EAGER),
+    DEBUG_HEADED("debug-headed", false, true, null, false, PageLoadStrategy.NORMAL),
+    CI("ci", true, false, "1920,1080", true, PageLoadStrategy.NORMAL);
+
+    // Browser profile directories created for this JVM, removed on exit
+    private static final List<Path> profileDirectories = Collections.synchronizedList(new ArrayList<>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LaunchProfile::deleteProfileDirectories));
+    }
+
+    private final String name;
+    private final boolean headless;
+    private final boolean loadImages;
+    private final String windowSize;
+    private final boolean tmpfsProfile;
+    private final PageLoadStrategy pageLoadStrategy;
+
+    LaunchProfile(String name, boolean headless, boolean loadImages, String windowSize, boolean tmpfsProfile,
+            PageLoadStrategy pageLoadStrategy) {
+        this.name = name;
+        this.headless = headless;
+        this.loadImages = loadImages;
+        this.windowSize = windowSize;
+        this.tmpfsProfile = tmpfsProfile;
+        this.pageLoadStrategy = pageLoadStrategy;
+    }
+
+    // Profile configured by launch.profile; when unset ci on a CI agent (CI variable set), fast-headless elsewhere
+    public static LaunchProfile current() {
+        return FrameworkConfig.get().getEnum("launch.profile", LaunchProfile.class,
+                defaultProfile(System.getenv("CI")));
+    }
+
+    // Profile used when launch.profile is unset, given the value of the CI environment variable
+    static LaunchProfile defaultProfile(String ci) {
+        return ci == null || ci.trim().isEmpty() || "false".equalsIgnoreCase(ci.trim()) ? FAST_HEADLESS : CI;
+    }
+
+    public static LaunchProfile fromName(String name) {
+        for (LaunchProfile profile : values()) {
+            if (profile.name.equalsIgnoreCase(name.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown launch.profile '" + name
+                + "', expected fast-headless, debug-headed or ci");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // page.load.strategy (normal, eager or none) when set, otherwise the profile's own strategy
+    public PageLoadStrategy getPageLoadStrategy() {
+        String configured = ConfigReader.getProperty("page.load.strategy", "profile").trim();
+        if ("profile".equalsIgnoreCase(configured) || configured.isEmpty()) {
+            return pageLoadStrategy;
+        }
+        PageLoadStrategy strategy = PageLoadStrategy.fromString(configured.toLowerCase());
+        if (strategy == null) {
+            throw new IllegalArgumentException("Unknown page.load.strategy '" + configured
+                    + "', expected normal, eager, none or profile");
+        }
+        return strategy;
+    }
+
+    // Chrome and Edge
+    public void applyTo(ChromiumOptions<?> options) {
+        if (headless) {
+            // Background services only cost launch time in an unattended browser
+            options.addArguments("--headless=new", "--no-first-run", "--no-default-browser-check",
+                    "--disable-background-networking", "--disable-component-update", "--mute-audio");
+        }
+        if (!loadImages) {
+            options.addArguments("--blink-settings=imagesEnabled=false");
+        }
+        if (windowSize != null) {
+            options.addArguments("--window-size=" + windowSize);
+        }
+        if (tmpfsProfile) {
+            options.addArguments("--user-data-dir=" + createProfileDirectory());
+        }
+        options.setPageLoadStrategy(getPageLoadStrategy());
+    }
+
+    public void applyTo(FirefoxOptions options) {
+        if (headless) {
+            options.addArguments("-headless");
+        }
+        if (!loadImages) {
+            options.addPreference("permissions.default.image", 2);
+        }
+        if (windowSize != null) {
+            String[] size = windowSize.split(",");
+            options.addArguments("--width=" + size[0], "--height=" + size[1]);
+        }
+        if (tmpfsProfile) {
+            options.addArguments("-profile", createProfileDirectory().toString());
+        }
+        options.setPageLoadStrategy(getPageLoadStrategy());
+    }
+
+    // Profiles with a fixed window size already got it as a launch argument
+    public void applyWindow(WebDriver webDriver) {
+        if (windowSize == null) {
+            webDriver.manage().window().maximize();
+        }
+    }
+
+    // Fresh profile directory on tmpfs (/dev/shm) where available, so the browser never writes its profile to disk
+    private static Path createProfileDirectory() {
+        File shm = new File("/dev/shm");
+        Path base = shm.isDirectory() && shm.canWrite()
+                ? shm.toPath()
+                : Paths.get(System.getProperty("java.io.tmpdir"));
+        try {
+            Path directory = Files.createTempDirectory(base, "bh-browser-profile-");
+            profileDirectories.add(directory);
+            return directory;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create browser profile directory in " + base, e);
+        }
+    }
+
+    private static void deleteProfileDirectories() {
+        synchronized (profileDirectories) {
+            for (Path directory : profileDirectories) {
+                try (Stream<Path> paths = Files.walk(directory)) {
+                    paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+                } catch (IOException ignored) {
+                    // Left for the OS to clean up
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,243 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Candidate locators for one logical element, raced against each other
+ * instead of tried one timeout after another. Every poll checks all
+ * candidates and returns the first visible match; the candidate that won
+ * is remembered per URL path and checked first next time.
+ *
+ * With locator.repository.enabled the candidates are ordered by
+ * {@link LocatorRepository}, which promotes proven fast CSS selectors, and
+ * a lookup in which nothing matches falls back to the element with the most
+ * similar attributes to the one found last time.
+ */
+public class LocatorChain {
+
+    private static final Logger log = LoggerFactory.getLogger(LocatorChain.class);
+
+    private static final boolean REPOSITORY_ENABLED =
+            ConfigReader.getBooleanProperty("locator.repository.enabled", true);
+    private static final double HEAL_THRESHOLD =
+            Double.parseDouble(ConfigReader.getProperty("locator.heal.threshold", "0.6"));
+
+    // arguments: fingerprint, threshold, clickable; returns the most similar visible element of the same tag
+    private static final String HEAL_SCRIPT =
+            "var fp = arguments[0], threshold = arguments[1], clickable = arguments[2];"
+            + ScriptLocator.VISIBLE_FUNCTION
+            + ScriptLocator.DESCRIBE_FUNCTION
+            + "var weights = { id: 3, name: 2, 'aria-label': 2, placeholder: 1.5, title: 1, type: 1, role: 1,"
+            + "    text: 2, classes: 2 };"
+            + "function score(el) {"
+            + "  var total = 0, matched = 0;"
+            + "  for (var key in weights) {"
+            + "    var expected = fp[key];"
+            + "    if (expected == null || expected === '' || (key === 'classes' && !expected.length)) { continue; }"
+            + "    total += weights[key];"
+            + "    if (key === 'classes') {"
+            + "      var shared = expected.filter(function (c) { return el.classList.contains(c); }).length;"
+            + "      matched += weights.classes * shared / (expected.length + el.classList.length - shared);"
+            + "    } else if (key === 'text') {"
+            + "      var text = (el.innerText || el.textContent || '').trim().slice(0, 80);"
+            + "      if (text === expected) { matched += weights.text; }"
+            + "      else if (text && (text.indexOf(expected) >= 0 || expected.indexOf(text) >= 0)) {"
+            + "        matched += weights.text / 2;"
+            + "      }"
+            + "    } else if (el.getAttribute(key) === expected) {"
+            + "      matched += weights[key];"
+            + "    }"
+            + "  }"
+            + "  return total > 0 ? matched / total : 0;"
+            + "}"
+            + "var best = null, bestScore = threshold, els = document.getElementsByTagName(fp.tag);"
+            + "for (var i = 0; i < els.length; i++) {"
+            + "  if (!isVisible(els[i]) || (clickable && els[i].disabled)) { continue; }"
+            + "  var s = score(els[i]);"
+            + "  if (s >= bestScore) { best = els[i]; bestScore = s; }"
+            + "}"
+            + "return best ? { element: best, score: bestScore, description: describe(best) } : null;";
+
+    // Winning candidate per chain name and URL path
+    private static final Map<String, Map<String, String>> winners = new ConcurrentHashMap<>();
+
+    static {
+        PageCache.registerReadOnlyScript(HEAL_SCRIPT);
+    }
+
+    private final String name;
+    private final List<By> candidates;
+
+    /**
+     * @param name       Logical element name, e.g. HomePage.searchIcon
+     * @param candidates Locators in order of preference
+     */
+    public LocatorChain(String name, By... candidates) {
+        if (candidates.length == 0) {
+            throw new IllegalArgumentException("LocatorChain " + name + " needs at least one locator");
+        }
+        this.name = name;
+        this.candidates = Collections.unmodifiableList(Arrays.asList(candidates));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<By> getCandidates() {
+        return candidates;
+    }
+
+    // First visible match of any candidate, or null when none shows up in time
+    public WebElement waitForVisible(WebDriver driver, int timeoutSeconds) {
+        return resolve(driver, false, timeoutSeconds);
+    }
+
+    // First clickable match of any candidate, or null when none shows up in time
+    public WebElement waitForClickable(WebDriver driver, int timeoutSeconds) {
+        return resolve(driver, true, timeoutSeconds);
+    }
+
+    private WebElement resolve(WebDriver driver, boolean clickable, int timeoutSeconds) {
+        List<By> ordered = REPOSITORY_ENABLED
+                ? LocatorRepository.getInstance().order(name, candidates)
+                : candidates;
+
+        WebElement element = WaitBudget.within(timeoutSeconds * 1000L, () -> {
+            try {
+                if (WaitUtility.isEventMode() && ordered.stream().allMatch(ScriptLocator::supports)) {
+                    return raceInPage(driver, ordered, clickable, timeoutSeconds);
+                }
+                return raceByPolling(driver, ordered, clickable, timeoutSeconds);
+            } catch (Exception e) {
+                log.debug("No candidate of {} matched: {}", name, e.getMessage());
+                return null;
+            }
+        });
+
+        if (element == null && REPOSITORY_ENABLED) {
+            LocatorRepository.getInstance().recordFailure(name, ordered);
+            element = heal(driver, clickable);
+        }
+        return element;
+    }
+
+    // One async script checks every candidate on each DOM change
+    @SuppressWarnings("unchecked")
+    private WebElement raceInPage(WebDriver driver, List<By> ordered, boolean clickable, int timeoutSeconds) {
+        List<Object> result = EventDrivenWait.race(driver, ordered, clickable, preferredByPath(ordered),
+                WaitUtility.absentAfterMillis(), WaitBudget.clamp(timeoutSeconds * 1000L));
+        if (result == null) {
+            return null;
+        }
+        int index = ((Number) result.get(0)).intValue();
+        remember(String.valueOf(result.get(2)), ordered, index);
+        if (REPOSITORY_ENABLED) {
+            LocatorRepository.getInstance().recordSuccess(name, ordered, (List<?>) result.get(3), index,
+                    (Map<String, Object>) result.get(4));
+        }
+        return (WebElement) result.get(1);
+    }
+
+    // Each poll runs findElements for every candidate, the last winner on this path first
+    private WebElement raceByPolling(WebDriver driver, List<By> ordered, boolean clickable, int timeoutSeconds) {
+        String path = NetworkShaper.path(driver.getCurrentUrl());
+        List<Integer> order = new ArrayList<>();
+        Integer preferred = preferredByPath(ordered).get(path);
+        if (preferred != null) {
+            order.add(preferred);
+        }
+        for (int i = 0; i < ordered.size(); i++) {
+            if (preferred == null || i != preferred) {
+                order.add(i);
+            }
+        }
+
+        WebDriverWait wait = WaitUtility.waitFor(driver, timeoutSeconds);
+        return wait.until((ExpectedCondition<WebElement>) ddriver -> {
+            List<Double> timings = new ArrayList<>(Collections.nCopies(ordered.size(), (Double) null));
+            for (int index : order) {
+                long started = System.nanoTime();
+                List<WebElement> found = ddriver.findElements(ordered.get(index));
+                timings.set(index, (System.nanoTime() - started) / 1e6);
+                for (WebElement element : found) {
+                    if (element.isDisplayed() && (!clickable || element.isEnabled())) {
+                        remember(path, ordered, index);
+                        if (REPOSITORY_ENABLED) {
+                            LocatorRepository.getInstance().recordSuccess(name, ordered, timings, index, null);
+                        }
+                        return element;
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // No candidate matched: look for the element whose attributes are closest to the one found last time
+    @SuppressWarnings("unchecked")
+    private WebElement heal(WebDriver driver, boolean clickable) {
+        Map<String, Object> fingerprint = LocatorRepository.getInstance().getFingerprint(name);
+        if (fingerprint == null || fingerprint.get("tag") == null) {
+            return null;
+        }
+        try {
+            Map<String, Object> result = (Map<String, Object>) ((JavascriptExecutor) driver)
+                    .executeScript(HEAL_SCRIPT, fingerprint, HEAL_THRESHOLD, clickable);
+            if (result == null) {
+                return null;
+            }
+            Map<String, Object> description = (Map<String, Object>) result.get("description");
+            LocatorRepository.getInstance().recordHealed(name, description);
+            log.info("{}: healed by attribute similarity (score {}), now {}", name,
+                    String.format("%.2f", ((Number) result.get("score")).doubleValue()),
+                    description.get("selector"));
+            return (WebElement) result.get("element");
+        } catch (Exception e) {
+            log.warn("{}: healing failed: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    // Index of the last winner per URL path, within the current candidate order
+    private Map<String, Integer> preferredByPath(List<By> ordered) {
+        Map<String, Integer> preferred = new HashMap<>();
+        for (Map.Entry<String, String> entry : winners.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .entrySet()) {
+            for (int i = 0; i < ordered.size(); i++) {
+                if (ordered.get(i).toString().equals(entry.getValue())) {
+                    preferred.put(entry.getKey(), i);
+                }
+            }
+        }
+        return preferred;
+    }
+
+    private void remember(String path, List<By> ordered, int index) {
+        String winner = ordered.get(index).toString();
+        String previous = winners.computeIfAbsent(name, k -> new ConcurrentHashMap<>()).put(path, winner);
+        if (!winner.equals(candidates.get(0).toString()) && !winner.equals(previous)) {
+            log.info("{}: {} matched on {}, trying it first from now on", name, winner, path);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + candidates;
+    }
+}
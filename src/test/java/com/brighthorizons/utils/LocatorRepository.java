@@ -0,0 +1,363 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-backed store of what is known about each logical element: every
+ * candidate selector with its in-page resolution time and success rate,
+ * and an attribute fingerprint of the element last found.
+ *
+ * Candidates are ordered so that CSS selectors that proved fast and
+ * reliable over at least MIN_ATTEMPTS lookups are tried before the declared
+ * XPath ones. Unique CSS selectors are learned from the elements found, and
+ * the fingerprint lets {@link LocatorChain} heal a lookup when no candidate
+ * matches any more; healed selectors are only ever tried after the declared
+ * ones, so a wrong similarity match cannot take over.
+ *
+ * The store is written back to locator.repository.file when the JVM exits,
+ * merged under a file lock with what other JVMs (shards, matrix browsers)
+ * wrote in the meantime.
+ */
+public final class LocatorRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(LocatorRepository.class);
+
+    private static final String CSS = "css selector";
+
+    // A candidate counts as reliable from this success rate on
+    private static final double RELIABLE_RATE = 0.8;
+    // Lookups a candidate needs before it is promoted, or before a declared one that never matched is tried last
+    private static final int MIN_ATTEMPTS = 3;
+
+    private static final LocatorRepository instance = new LocatorRepository(
+            Paths.get(ConfigReader.getProperty("locator.repository.file", ".locators/locator-repository.json")));
+
+    private final Path file;
+    private final Map<String, Element> elements = new LinkedHashMap<>();
+    private boolean dirty;
+
+    private LocatorRepository(Path file) {
+        this.file = file;
+        load();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::save));
+    }
+
+    public static LocatorRepository getInstance() {
+        return instance;
+    }
+
+    /**
+     * Candidates of an element in the order they should be tried: proven
+     * fast CSS selectors first (fastest first), then the declared
+     * locators, with declared ones that keep failing moved to the end
+     */
+    public synchronized List<By> order(String name, List<By> declared) {
+        Element element = element(name);
+        for (By locator : declared) {
+            if (ScriptLocator.supports(locator)) {
+                element.candidate(ScriptLocator.using(locator), ScriptLocator.value(locator), "declared");
+            }
+        }
+
+        List<Candidate> promoted = new ArrayList<>();
+        List<Candidate> failing = new ArrayList<>();
+        for (Candidate candidate : element.candidates.values()) {
+            if (CSS.equals(candidate.using) && !"healed".equals(candidate.source)
+                    && candidate.attempts >= MIN_ATTEMPTS && candidate.successRate() >= RELIABLE_RATE) {
+                promoted.add(candidate);
+            } else if (candidate.attempts >= MIN_ATTEMPTS && candidate.successes == 0) {
+                failing.add(candidate);
+            }
+        }
+        promoted.sort(Comparator.comparingDouble(Candidate::meanMillis));
+
+        List<By> ordered = new ArrayList<>();
+        for (Candidate candidate : promoted) {
+            ordered.add(candidate.toBy());
+        }
+        for (By locator : declared) {
+            Candidate candidate = ScriptLocator.supports(locator)
+                    ? element.candidates.get(key(ScriptLocator.using(locator), ScriptLocator.value(locator)))
+                    : null;
+            if (candidate == null || (!promoted.contains(candidate) && !failing.contains(candidate))) {
+                ordered.add(locator);
+            }
+        }
+        for (Candidate candidate : element.candidates.values()) {
+            // Learned and healed selectors that are not proven yet still take part in the race, after the declared
+            // ones; those that stop matching drop out
+            if (!"declared".equals(candidate.source) && !promoted.contains(candidate)
+                    && !failing.contains(candidate) && candidate.successRate() >= RELIABLE_RATE) {
+                ordered.add(candidate.toBy());
+            }
+        }
+        for (Candidate candidate : failing) {
+            if ("declared".equals(candidate.source)) {
+                ordered.add(candidate.toBy());
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Record a successful lookup
+     *
+     * @param candidates  Locators in the order they were tried
+     * @param timings     In-page find time per locator in ms, null when it was not evaluated
+     * @param winner      Index of the locator that matched
+     * @param fingerprint Attributes of the element found, including a unique "selector" when there is one
+     */
+    public synchronized void recordSuccess(String name, List<By> candidates, List<?> timings, int winner,
+            Map<String, Object> fingerprint) {
+        Element element = element(name);
+        List<Candidate> evaluated = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            Object timing = timings != null && i < timings.size() ? timings.get(i) : null;
+            if (!(timing instanceof Number) || !ScriptLocator.supports(candidates.get(i))) {
+                continue;
+            }
+            Candidate candidate = element.candidate(ScriptLocator.using(candidates.get(i)),
+                    ScriptLocator.value(candidates.get(i)), "declared");
+            candidate.attempts++;
+            candidate.totalMillis += ((Number) timing).doubleValue();
+            if (i == winner) {
+                candidate.successes++;
+            }
+            evaluated.add(candidate);
+        }
+
+        if (fingerprint != null) {
+            element.setFingerprint(fingerprint);
+            Object selector = fingerprint.get("selector");
+            Object selectorMillis = fingerprint.get("selectorMillis");
+            if (selector != null) {
+                // The unique selector resolved to the same element, which counts as a success of its own
+                Candidate learned = element.candidate(CSS, selector.toString(), "learned");
+                if (!evaluated.contains(learned) && selectorMillis instanceof Number) {
+                    learned.attempts++;
+                    learned.successes++;
+                    learned.totalMillis += ((Number) selectorMillis).doubleValue();
+                }
+            }
+        }
+        dirty = true;
+    }
+
+    // Record a lookup in which no candidate matched
+    public synchronized void recordFailure(String name, List<By> candidates) {
+        Element element = element(name);
+        for (By locator : candidates) {
+            if (ScriptLocator.supports(locator)) {
+                element.candidate(ScriptLocator.using(locator), ScriptLocator.value(locator), "declared").attempts++;
+            }
+        }
+        dirty = true;
+    }
+
+    // Store the selector found by attribute-similarity matching as a new candidate
+    public synchronized void recordHealed(String name, Map<String, Object> fingerprint) {
+        Element element = element(name);
+        element.setFingerprint(fingerprint);
+        Object selector = fingerprint.get("selector");
+        if (selector != null) {
+            Candidate candidate = element.candidate(CSS, selector.toString(), "healed");
+            candidate.attempts++;
+            candidate.successes++;
+        }
+        dirty = true;
+    }
+
+    // Attributes of the element last found, or null when it was never found
+    public synchronized Map<String, Object> getFingerprint(String name) {
+        Element element = elements.get(name);
+        return element != null ? element.fingerprint : null;
+    }
+
+    private Element element(String name) {
+        return elements.computeIfAbsent(name, k -> new Element());
+    }
+
+    private static String key(String using, String value) {
+        return using + ":" + value;
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            elements.putAll(read(file));
+            for (Element element : elements.values()) {
+                for (Candidate candidate : element.candidates.values()) {
+                    candidate.markLoaded();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable locator repository {}: {}", file, e.getMessage());
+            elements.clear();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Element> read(Path file) throws IOException {
+        Map<String, Element> read = new LinkedHashMap<>();
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return read;
+        }
+        Map<String, Object> stored = new Json().toType(
+                new String(Files.readAllBytes(file), StandardCharsets.UTF_8), Json.MAP_TYPE);
+        for (Map.Entry<String, Object> entry : stored.entrySet()) {
+            Map<String, Object> data = (Map<String, Object>) entry.getValue();
+            Element element = read.computeIfAbsent(entry.getKey(), k -> new Element());
+            element.fingerprint = (Map<String, Object>) data.get("fingerprint");
+            for (Object item : (List<Object>) data.getOrDefault("candidates", new ArrayList<>())) {
+                Map<String, Object> stats = (Map<String, Object>) item;
+                Candidate candidate = element.candidate(String.valueOf(stats.get("using")),
+                        String.valueOf(stats.get("value")), String.valueOf(stats.get("source")));
+                candidate.attempts = ((Number) stats.get("attempts")).intValue();
+                candidate.successes = ((Number) stats.get("successes")).intValue();
+                candidate.totalMillis = ((Number) stats.get("totalMillis")).doubleValue();
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Adds what this JVM recorded on top of the file as it is now, so
+     * parallel JVMs add up instead of overwriting each other. The lock
+     * file serializes writers across processes.
+     */
+    private synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Held until the channel closes
+                channel.lock();
+                Map<String, Element> merged;
+                try {
+                    merged = read(file);
+                } catch (Exception e) {
+                    log.warn("Replacing unreadable locator repository {}: {}", file, e.getMessage());
+                    merged = new LinkedHashMap<>();
+                }
+                for (Map.Entry<String, Element> entry : elements.entrySet()) {
+                    Element mine = entry.getValue();
+                    Element target = merged.computeIfAbsent(entry.getKey(), k -> new Element());
+                    if (mine.fingerprintChanged || target.fingerprint == null) {
+                        target.fingerprint = mine.fingerprint;
+                    }
+                    for (Candidate candidate : mine.candidates.values()) {
+                        target.candidate(candidate.using, candidate.value, candidate.source).add(candidate);
+                    }
+                }
+                Files.write(file, new Json().toJson(toJson(merged)).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write locator repository {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> toJson(Map<String, Element> elements) {
+        Map<String, Object> stored = new LinkedHashMap<>();
+        for (Map.Entry<String, Element> entry : elements.entrySet()) {
+            List<Map<String, Object>> candidates = new ArrayList<>();
+            for (Candidate candidate : entry.getValue().candidates.values()) {
+                Map<String, Object> stats = new LinkedHashMap<>();
+                stats.put("using", candidate.using);
+                stats.put("value", candidate.value);
+                stats.put("source", candidate.source);
+                stats.put("attempts", candidate.attempts);
+                stats.put("successes", candidate.successes);
+                stats.put("totalMillis", candidate.totalMillis);
+                candidates.add(stats);
+            }
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("candidates", candidates);
+            data.put("fingerprint", entry.getValue().fingerprint);
+            stored.put(entry.getKey(), data);
+        }
+        return stored;
+    }
+
+    private static final class Element {
+        private final Map<String, Candidate> candidates = new LinkedHashMap<>();
+        private Map<String, Object> fingerprint;
+        // Set when this JVM found the element, its fingerprint then replaces the stored one
+        private boolean fingerprintChanged;
+
+        private void setFingerprint(Map<String, Object> fingerprint) {
+            this.fingerprint = new LinkedHashMap<>(fingerprint);
+            this.fingerprintChanged = true;
+        }
+
+        private Candidate candidate(String using, String value, String source) {
+            return candidates.computeIfAbsent(key(using, value), k -> new Candidate(using, value, source));
+        }
+    }
+
+    private static final class Candidate {
+        private final String using;
+        private final String value;
+        private final String source;
+        private int attempts;
+        private int successes;
+        private double totalMillis;
+        // Counts as read from the file, the rest was recorded by this JVM
+        private int loadedAttempts;
+        private int loadedSuccesses;
+        private double loadedMillis;
+
+        private Candidate(String using, String value, String source) {
+            this.using = using;
+            this.value = value;
+            this.source = source;
+        }
+
+        private void markLoaded() {
+            loadedAttempts = attempts;
+            loadedSuccesses = successes;
+            loadedMillis = totalMillis;
+        }
+
+        // Adds what another instance recorded since it was loaded
+        private void add(Candidate recorded) {
+            attempts += recorded.attempts - recorded.loadedAttempts;
+            successes += recorded.successes - recorded.loadedSuccesses;
+            totalMillis += recorded.totalMillis - recorded.loadedMillis;
+        }
+
+        private double successRate() {
+            return attempts == 0 ? 0 : successes / (double) attempts;
+        }
+
+        private double meanMillis() {
+            return attempts == 0 ? Double.MAX_VALUE : totalMillis / attempts;
+        }
+
+        private By toBy() {
+            return CSS.equals(using) ? By.cssSelector(value) : By.xpath(value);
+        }
+    }
+}
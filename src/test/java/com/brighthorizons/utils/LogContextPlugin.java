@@ -0,0 +1,53 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.TestCase;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestStepStarted;
+import org.slf4j.MDC;
+
+/**
+ * Cucumber plugin that puts the running scenario into the MDC of its
+ * thread (scenario, step, thread, browser), and decides what happens to
+ * the scenario's buffered debug lines: written when it failed, dropped
+ * when it passed.
+ */
+public class LogContextPlugin implements ConcurrentEventListener {
+
+    private static final String BROWSER = ConfigReader.getProperty("browser", "chrome");
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        // Concurrent listeners get events on the thread running the scenario
+        publisher.registerHandlerFor(TestCaseStarted.class, event -> {
+            LogPipeline.discardBuffer();
+            MDC.put("thread", Thread.currentThread().getName());
+            MDC.put("scenario", scenarioName(event.getTestCase()));
+            MDC.put("browser", BROWSER);
+        });
+        publisher.registerHandlerFor(TestStepStarted.class, event -> {
+            if (event.getTestStep() instanceof PickleStepTestStep) {
+                PickleStepTestStep step = (PickleStepTestStep) event.getTestStep();
+                MDC.put("step", step.getStep().getKeyword() + step.getStep().getText());
+            }
+        });
+        publisher.registerHandlerFor(TestCaseFinished.class, event -> {
+            if (event.getResult().getStatus().isOk()) {
+                LogPipeline.discardBuffer();
+            } else {
+                LogPipeline.flushBuffer(event.getResult().getStatus() + ": " + scenarioName(event.getTestCase()));
+            }
+            MDC.clear();
+        });
+    }
+
+    // Name and location, scenario outlines repeat the name for every row
+    private static String scenarioName(TestCase testCase) {
+        String uri = testCase.getUri().toString();
+        return testCase.getName() + " (" + uri.substring(uri.lastIndexOf('/') + 1) + ":"
+                + testCase.getLocation().getLine() + ")";
+    }
+}
@@ -0,0 +1,422 @@
+package com.brighthorizons.utils;
+
+import org.slf4j.Marker;
+import org.slf4j.event.Level;
+import org.slf4j.helpers.AbstractLogger;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where every SLF4J logger of the framework writes to (see
+ * {@link LogServiceProvider}). Logging threads never touch stdout:
+ *
+ * - events at log.console.level and above are queued for one writer
+ *   thread, which formats them and writes them out in batches
+ * - events from log.level up to the console level go to a ring buffer of
+ *   the logging thread (log.buffer.size events) and are only written when
+ *   the scenario running there fails, otherwise they are dropped unformatted
+ *
+ * Messages are formatted on the writer thread, so a debug line that is
+ * never written costs an array and no string building. Arguments other
+ * than strings, boxed primitives and enums are turned into strings at the
+ * call, so a line shows them as they were then and their toString() runs
+ * on the logging thread. Each line carries
+ * the MDC of the logging thread (scenario, step, thread, browser, set by
+ * {@link LogContextPlugin}), so lines of parallel scenarios stay apart.
+ * When the queue is full new events are dropped and counted rather than
+ * blocking the scenario.
+ */
+public final class LogPipeline {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS")
+            .withZone(ZoneId.systemDefault());
+
+    private static final Level LEVEL;
+    private static final Level CONSOLE_LEVEL;
+    private static final int BUFFER_SIZE;
+    private static final BlockingQueue<Object> queue;
+    private static final String FILE;
+
+    static {
+        // Defaults when the configuration itself is invalid; FrameworkConfig reports that when the framework first uses it
+        Level level = Level.DEBUG;
+        Level consoleLevel = Level.INFO;
+        int bufferSize = 256;
+        int queueSize = 8192;
+        String file = "";
+        try {
+            FrameworkConfig config = FrameworkConfig.get();
+            level = parse(config.getString("log.level", "debug"));
+            consoleLevel = parse(config.getString("log.console.level", "info"));
+            bufferSize = config.getInt("log.buffer.size", bufferSize);
+            queueSize = config.getInt("log.queue.size", queueSize);
+            file = config.getString("log.file", file).trim();
+        } catch (RuntimeException | LinkageError e) {
+            // Invalid configuration fails FrameworkConfig's initialization, an ExceptionInInitializerError
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Logging with default settings: " + cause.getMessage());
+        }
+        // Nothing is buffered below the console level unless log.level asks for it
+        LEVEL = level.toInt() < consoleLevel.toInt() ? level : consoleLevel;
+        CONSOLE_LEVEL = consoleLevel;
+        BUFFER_SIZE = bufferSize;
+        queue = new ArrayBlockingQueue<>(Math.max(16, queueSize));
+        FILE = file;
+    }
+
+    private static final ThreadLocal<RingBuffer> buffers = new ThreadLocal<>();
+    private static final AtomicLong dropped = new AtomicLong();
+    // Queued items not written yet, counted before they are queued so shutdown cannot miss one in the writer's hands
+    private static final AtomicLong pending = new AtomicLong();
+    private static final Thread writer = new Thread(LogPipeline::drain, "log-writer");
+
+    static {
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(LogPipeline::shutdown, "log-flush"));
+    }
+
+    // Private constructor prevents creating instances
+    private LogPipeline() {
+    }
+
+    /**
+     * Writes the buffered debug lines of the scenario on this thread, e.g.
+     * when it failed, under a header naming the reason
+     */
+    public static void flushBuffer(String reason) {
+        RingBuffer buffer = buffers.get();
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
+        List<Object> batch = new ArrayList<>();
+        batch.add(reason);
+        batch.addAll(buffer.drain());
+        enqueue(batch);
+    }
+
+    // Drops the buffered lines of this thread, e.g. when its scenario passed
+    public static void discardBuffer() {
+        RingBuffer buffer = buffers.get();
+        if (buffer != null) {
+            buffer.clear();
+        }
+    }
+
+    static boolean isEnabled(Level level) {
+        return level.toInt() >= LEVEL.toInt();
+    }
+
+    static void log(String logger, Level level, String pattern, Object[] args, Throwable throwable) {
+        Event event = new Event(System.currentTimeMillis(), level, logger, Thread.currentThread().getName(),
+                LogServiceProvider.mdcSnapshot(), pattern, snapshot(args), throwable);
+        if (level.toInt() >= CONSOLE_LEVEL.toInt()) {
+            enqueue(event);
+            return;
+        }
+        RingBuffer buffer = buffers.get();
+        if (buffer == null) {
+            buffer = new RingBuffer(Math.max(1, BUFFER_SIZE));
+            buffers.set(buffer);
+        }
+        buffer.add(event);
+    }
+
+    private static void enqueue(Object item) {
+        pending.incrementAndGet();
+        if (!queue.offer(item)) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    // Arguments as they are now: anything that could change or is not safe to print from another thread becomes a string
+    private static Object[] snapshot(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] copy = args.clone();
+        for (int i = 0; i < copy.length; i++) {
+            Object arg = copy[i];
+            if (arg == null || arg instanceof String || arg instanceof Boolean || arg instanceof Character
+                    || arg instanceof Enum || arg instanceof Integer || arg instanceof Long || arg instanceof Double
+                    || arg instanceof Float || arg instanceof Short || arg instanceof Byte) {
+                continue;
+            }
+            try {
+                // Arrays print their elements, as the formatter would
+                copy[i] = arg.getClass().isArray()
+                        ? MessageFormatter.arrayFormat("{}", new Object[] {arg}, null).getMessage()
+                        : String.valueOf(arg);
+            } catch (RuntimeException e) {
+                copy[i] = "[toString() failed: " + e + "]";
+            }
+        }
+        return copy;
+    }
+
+    private static Level parse(String level) {
+        return Level.valueOf(level.trim().toUpperCase(Locale.ROOT));
+    }
+
+    // Writer thread: takes whatever is queued, writes it, flushes once the queue is empty
+    private static void drain() {
+        PrintStream out = openOutput();
+        StringBuilder line = new StringBuilder(256);
+        List<Object> items = new ArrayList<>();
+        while (true) {
+            try {
+                items.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(items);
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                out.println("[log] " + lost + " events dropped, the log queue was full (log.queue.size)");
+            }
+            for (Object item : items) {
+                write(out, line, item);
+            }
+            out.flush();
+            pending.addAndGet(-items.size());
+            items.clear();
+        }
+    }
+
+    // log.file when set, otherwise the console
+    private static PrintStream openOutput() {
+        if (FILE.isEmpty()) {
+            return System.out;
+        }
+        try {
+            Path path = Paths.get(FILE);
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            return new PrintStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                    false, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("Logging to the console, cannot open " + FILE + ": " + e.getMessage());
+            return System.out;
+        }
+    }
+
+    private static void write(PrintStream out, StringBuilder line, Object item) {
+        if (item instanceof Event) {
+            line.setLength(0);
+            ((Event) item).format(line);
+            out.println(line);
+            return;
+        }
+        List<?> batch = (List<?>) item;
+        out.println("---- " + batch.get(0) + " (" + (batch.size() - 1) + " buffered lines) ----");
+        for (Object event : batch.subList(1, batch.size())) {
+            write(out, line, event);
+        }
+        out.println("---- end of buffered lines ----");
+    }
+
+    // Lets the writer finish what is queued before the JVM exits
+    private static void shutdown() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * One logging call, formatted only when it is written
+     */
+    private static final class Event {
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String thread;
+        private final Map<String, String> mdc;
+        private final String pattern;
+        private final Object[] args;
+        private final Throwable throwable;
+
+        private Event(long timestamp, Level level, String logger, String thread, Map<String, String> mdc,
+                String pattern, Object[] args, Throwable throwable) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.mdc = mdc;
+            this.pattern = pattern;
+            this.args = args;
+            this.throwable = throwable;
+        }
+
+        // 12:00:01.123 WARN  [thread=scenario-3 scenario=... step=... browser=chrome] HomePage - message
+        private void format(StringBuilder line) {
+            TIME.formatTo(Instant.ofEpochMilli(timestamp), line);
+            line.append(' ').append(level);
+            for (int i = level.toString().length(); i < 5; i++) {
+                line.append(' ');
+            }
+            line.append(" [");
+            if (!mdc.containsKey("thread")) {
+                line.append("thread=").append(thread);
+                if (!mdc.isEmpty()) {
+                    line.append(' ');
+                }
+            }
+            boolean first = true;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                if (!first) {
+                    line.append(' ');
+                }
+                line.append(entry.getKey()).append('=').append(entry.getValue());
+                first = false;
+            }
+            line.append("] ").append(logger.substring(logger.lastIndexOf('.') + 1)).append(" - ")
+                    .append(MessageFormatter.arrayFormat(pattern, args, null).getMessage());
+            if (throwable != null) {
+                StringWriter trace = new StringWriter();
+                throwable.printStackTrace(new PrintWriter(trace));
+                line.append(System.lineSeparator()).append(trace.toString().trim());
+            }
+        }
+    }
+
+    /**
+     * The last events of one thread, oldest overwritten first
+     */
+    private static final class RingBuffer {
+        private final Event[] events;
+        private int next;
+        private int size;
+
+        private RingBuffer(int capacity) {
+            this.events = new Event[capacity];
+        }
+
+        private void add(Event event) {
+            events[next] = event;
+            next = (next + 1) % events.length;
+            size = Math.min(size + 1, events.length);
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        // Oldest first, and empties the buffer
+        private List<Event> drain() {
+            List<Event> drained = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                drained.add(events[(next - size + i + events.length) % events.length]);
+            }
+            clear();
+            return Collections.unmodifiableList(drained);
+        }
+
+        private void clear() {
+            Arrays.fill(events, null);
+            next = 0;
+            size = 0;
+        }
+    }
+
+    /**
+     * SLF4J logger handing every enabled call to the pipeline unformatted
+     */
+    static final class PipelineLogger extends AbstractLogger {
+
+        private static final long serialVersionUID = 1L;
+
+        PipelineLogger(String name) {
+            this.name = name;
+        }
+
+        @Override
+        protected String getFullyQualifiedCallerName() {
+            return null;
+        }
+
+        @Override
+        protected void handleNormalizedLoggingCall(Level level, Marker marker, String messagePattern,
+                Object[] arguments, Throwable throwable) {
+            log(name, level, messagePattern, arguments, throwable);
+        }
+
+        @Override
+        public boolean isTraceEnabled() {
+            return isEnabled(Level.TRACE);
+        }
+
+        @Override
+        public boolean isTraceEnabled(Marker marker) {
+            return isEnabled(Level.TRACE);
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return isEnabled(Level.DEBUG);
+        }
+
+        @Override
+        public boolean isDebugEnabled(Marker marker) {
+            return isEnabled(Level.DEBUG);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return isEnabled(Level.INFO);
+        }
+
+        @Override
+        public boolean isInfoEnabled(Marker marker) {
+            return isEnabled(Level.INFO);
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return isEnabled(Level.WARN);
+        }
+
+        @Override
+        public boolean isWarnEnabled(Marker marker) {
+            return isEnabled(Level.WARN);
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return isEnabled(Level.ERROR);
+        }
+
+        @Override
+        public boolean isErrorEnabled(Marker marker) {
+            return isEnabled(Level.ERROR);
+        }
+    }
+}
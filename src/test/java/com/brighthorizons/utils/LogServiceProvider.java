@@ -0,0 +1,132 @@
+package com.brighthorizons.utils;
+
+import org.slf4j.ILoggerFactory;
+import org.slf4j.IMarkerFactory;
+import org.slf4j.Logger;
+import org.slf4j.helpers.BasicMarkerFactory;
+import org.slf4j.spi.MDCAdapter;
+import org.slf4j.spi.SLF4JServiceProvider;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SLF4J 2 binding of the framework, found through
+ * META-INF/services/org.slf4j.spi.SLF4JServiceProvider. Every logger,
+ * including those of WebDriverManager, writes through {@link LogPipeline}.
+ *
+ * The MDC keeps an immutable map per thread and replaces it on every put,
+ * so a log event takes the current map as it is instead of copying it.
+ */
+public class LogServiceProvider implements SLF4JServiceProvider {
+
+    private static final ThreadLocal<Map<String, String>> context =
+            ThreadLocal.withInitial(Collections::emptyMap);
+
+    private final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private final ILoggerFactory loggerFactory =
+            name -> loggers.computeIfAbsent(name, LogPipeline.PipelineLogger::new);
+    private final IMarkerFactory markerFactory = new BasicMarkerFactory();
+    private final MDCAdapter mdcAdapter = new SnapshotMdcAdapter();
+
+    // MDC of the current thread, safe to keep: it is never changed in place
+    static Map<String, String> mdcSnapshot() {
+        return context.get();
+    }
+
+    @Override
+    public ILoggerFactory getLoggerFactory() {
+        return loggerFactory;
+    }
+
+    @Override
+    public IMarkerFactory getMarkerFactory() {
+        return markerFactory;
+    }
+
+    @Override
+    public MDCAdapter getMDCAdapter() {
+        return mdcAdapter;
+    }
+
+    @Override
+    public String getRequestedApiVersion() {
+        return "2.0.99";
+    }
+
+    @Override
+    public void initialize() {
+        // Nothing to set up, the pipeline starts with its first logger
+    }
+
+    private static final class SnapshotMdcAdapter implements MDCAdapter {
+
+        private final ThreadLocal<Map<String, Deque<String>>> deques = ThreadLocal.withInitial(HashMap::new);
+
+        @Override
+        public void put(String key, String value) {
+            Map<String, String> next = new LinkedHashMap<>(context.get());
+            next.put(key, value);
+            context.set(Collections.unmodifiableMap(next));
+        }
+
+        @Override
+        public String get(String key) {
+            return context.get().get(key);
+        }
+
+        @Override
+        public void remove(String key) {
+            if (context.get().containsKey(key)) {
+                Map<String, String> next = new LinkedHashMap<>(context.get());
+                next.remove(key);
+                context.set(Collections.unmodifiableMap(next));
+            }
+        }
+
+        @Override
+        public void clear() {
+            context.remove();
+        }
+
+        @Override
+        public Map<String, String> getCopyOfContextMap() {
+            return new HashMap<>(context.get());
+        }
+
+        @Override
+        public void setContextMap(Map<String, String> contextMap) {
+            context.set(Collections.unmodifiableMap(new LinkedHashMap<>(contextMap)));
+        }
+
+        @Override
+        public void pushByKey(String key, String value) {
+            deques.get().computeIfAbsent(key, k -> new ArrayDeque<>()).push(value);
+        }
+
+        @Override
+        public String popByKey(String key) {
+            Deque<String> deque = deques.get().get(key);
+            return deque != null ? deque.poll() : null;
+        }
+
+        @Override
+        public Deque<String> getCopyOfDequeByKey(String key) {
+            Deque<String> deque = deques.get().get(key);
+            return deque != null ? new ArrayDeque<>(deque) : null;
+        }
+
+        @Override
+        public void clearDequeByKey(String key) {
+            Deque<String> deque = deques.get().get(key);
+            if (deque != null) {
+                deque.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.HasCdp;
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.ConverterFunctions;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.devtools.HasDevTools;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Strips third-party payloads from Chromium sessions through the DevTools
+ * Network domain. URLs matching network.block.patterns (analytics, ads,
+ * chat widgets) are blocked, and network.emulate.* optionally throttles
+ * the connection.
+ *
+ * network.block.mode=observe loads everything but records, per URL path,
+ * the load time and the bytes the deny-list would have blocked. Block mode
+ * compares every page against that baseline to report bytes and load time
+ * saved. Per-page numbers go to target/cucumber-reports/network-stats.json.
+ *
+ * Firefox sessions are left unshaped.
+ */
+public final class NetworkShaper {
+
+    private static final String MODE = ConfigReader.getProperty("network.block.mode", "block").trim().toLowerCase();
+    private static final List<String> PATTERNS = Arrays.stream(ConfigReader.getArrayProperty("network.block.patterns"))
+            .map(String::trim)
+            .filter(pattern -> !pattern.isEmpty())
+            .collect(Collectors.toList());
+    private static final Path BASELINE_FILE = Paths.get(
+            ConfigReader.getProperty("network.baseline.file", ".network/network-baseline.json"));
+    private static final Path STATS_FILE = Paths.get(
+            ConfigReader.getProperty("report.dir", "target/cucumber-reports"), "network-stats.json");
+
+    private static final List<PageLoad> pages = new ArrayList<>();
+    // Per URL path: [loads, total load ms, total bytes the deny-list matched]
+    private static final Map<String, double[]> baseline = new LinkedHashMap<>();
+
+    static {
+        if (!"off".equals(MODE)) {
+            loadBaseline();
+            Runtime.getRuntime().addShutdownHook(new Thread(NetworkShaper::export));
+        }
+    }
+
+    private final Pattern denied;
+    private final Map<String, Request> requests = new HashMap<>();
+    // Top-level document per loaderId, and the page each child frame (ads, chat widgets) belongs to
+    private final Map<String, PageLoad> pagesByLoader = new HashMap<>();
+    private final Map<String, PageLoad> childFrames = new HashMap<>();
+    private String mainFrameId;
+    private PageLoad page;
+
+    private NetworkShaper() {
+        this.denied = Pattern.compile(PATTERNS.stream()
+                .map(pattern -> Arrays.stream(pattern.split("\\*", -1))
+                        .map(Pattern::quote)
+                        .collect(Collectors.joining(".*")))
+                .collect(Collectors.joining("|")));
+    }
+
+    /**
+     * Applies blocking and emulation to a newly launched session. Does
+     * nothing for browsers without the DevTools protocol.
+     */
+    public static void attach(WebDriver driver) {
+        if ("off".equals(MODE) || !(driver instanceof HasCdp)) {
+            return;
+        }
+        NetworkShaper shaper = new NetworkShaper();
+        try {
+            if (driver instanceof HasDevTools && ((HasDevTools) driver).maybeGetDevTools().isPresent()) {
+                shaper.listen(((HasDevTools) driver).getDevTools());
+            } else {
+                // No event stream, so no statistics, but blocking and emulation still apply
+                shaper.configure(((HasCdp) driver)::executeCdpCommand);
+            }
+        } catch (Exception e) {
+            System.out.println("Network shaping unavailable: " + e.getMessage());
+        }
+    }
+
+    private void listen(DevTools devTools) {
+        devTools.createSessionIfThereIsNotOne();
+        devTools.addListener(event("Network.requestWillBeSent"), this::onRequestWillBeSent);
+        devTools.addListener(event("Network.loadingFinished"), this::onLoadingFinished);
+        devTools.addListener(event("Network.loadingFailed"), this::onLoadingFailed);
+        devTools.addListener(event("Page.loadEventFired"), this::onLoadEventFired);
+        devTools.addListener(event("Page.frameNavigated"), this::onFrameNavigated);
+        devTools.send(new Command<>("Page.enable", new HashMap<>()));
+        Map<String, Object> frameTree = devTools.send(new Command<Map<String, Object>>("Page.getFrameTree",
+                new HashMap<>(), ConverterFunctions.map("frameTree", Json.MAP_TYPE)));
+        onMainFrame((Map<?, ?>) frameTree.get("frame"));
+        configure((method, params) -> {
+            devTools.send(new Command<>(method, params));
+            return null;
+        });
+    }
+
+    private void configure(CdpCommand cdp) {
+        cdp.execute("Network.enable", new HashMap<>());
+        if ("block".equals(MODE) && !PATTERNS.isEmpty()) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("urls", PATTERNS);
+            cdp.execute("Network.setBlockedURLs", params);
+        }
+        if (ConfigReader.getBooleanProperty("network.emulate.enabled", false)) {
+            Map<String, Object> params = new HashMap<>();
+            params.put("offline", false);
+            params.put("latency", ConfigReader.getIntProperty("network.emulate.latency.ms", 40));
+            // kbit/s in config, bytes/s in the protocol
+            params.put("downloadThroughput", ConfigReader.getIntProperty("network.emulate.download.kbps", 10240) * 128);
+            params.put("uploadThroughput", ConfigReader.getIntProperty("network.emulate.upload.kbps", 5120) * 128);
+            cdp.execute("Network.emulateNetworkConditions", params);
+        }
+    }
+
+    private static Event<Map<String, Object>> event(String method) {
+        return new Event<>(method, input -> input.read(Json.MAP_TYPE));
+    }
+
+    // DevTools events arrive on the connection thread
+    private synchronized void onFrameNavigated(Map<String, Object> event) {
+        Map<?, ?> frame = (Map<?, ?>) event.get("frame");
+        if (frame != null && frame.get("parentId") == null) {
+            onMainFrame(frame);
+        }
+    }
+
+    // The top frame keeps its id across navigations
+    private synchronized void onMainFrame(Map<?, ?> frame) {
+        if (frame != null && frame.get("id") != null) {
+            mainFrameId = String.valueOf(frame.get("id"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void onRequestWillBeSent(Map<String, Object> event) {
+        Map<String, Object> request = (Map<String, Object>) event.get("request");
+        String url = String.valueOf(request.get("url"));
+        String frameId = String.valueOf(event.get("frameId"));
+        String loaderId = String.valueOf(event.get("loaderId"));
+        PageLoad owner;
+        if (frameId.equals(mainFrameId) || (mainFrameId == null && "Document".equals(event.get("type")))) {
+            // A navigation request of the top frame has its loaderId as requestId
+            if ("Document".equals(event.get("type")) && loaderId.equals(event.get("requestId"))) {
+                startPage(loaderId, url, number(event.get("timestamp")));
+            }
+            owner = pagesByLoader.getOrDefault(loaderId, page);
+        } else {
+            // Iframes load within the current top page, blocked ones included
+            owner = childFrames.computeIfAbsent(frameId, k -> page);
+        }
+        requests.put(String.valueOf(event.get("requestId")), new Request(owner, denied.matcher(url).matches()));
+    }
+
+    private void startPage(String loaderId, String url, double timestamp) {
+        PageLoad existing = pagesByLoader.get(loaderId);
+        if (existing != null) {
+            // Redirect of the same navigation, the page is where it ends up
+            existing.path = path(url);
+            return;
+        }
+        page = new PageLoad(path(url), timestamp);
+        pagesByLoader.clear();
+        pagesByLoader.put(loaderId, page);
+        // The frames of the previous document went away with it
+        childFrames.clear();
+        synchronized (pages) {
+            pages.add(page);
+        }
+    }
+
+    private synchronized void onLoadingFinished(Map<String, Object> event) {
+        Request request = requests.remove(String.valueOf(event.get("requestId")));
+        if (request != null && request.page != null) {
+            long bytes = (long) number(event.get("encodedDataLength"));
+            request.page.requests++;
+            request.page.bytes += bytes;
+            if (request.denied) {
+                request.page.deniedBytes += bytes;
+            }
+        }
+    }
+
+    private synchronized void onLoadingFailed(Map<String, Object> event) {
+        Request request = requests.remove(String.valueOf(event.get("requestId")));
+        if (request != null && request.page != null && event.get("blockedReason") != null) {
+            request.page.blocked++;
+        }
+    }
+
+    private synchronized void onLoadEventFired(Map<String, Object> event) {
+        if (page != null && page.loadMillis < 0) {
+            page.loadMillis = (number(event.get("timestamp")) - page.started) * 1000;
+        }
+    }
+
+    // Path of a URL, "/" for about:blank or data: URLs, the URL itself when it does not parse
+    static String path(String url) {
+        if (url == null) {
+            return "/";
+        }
+        try {
+            String path = URI.create(url).getPath();
+            return path == null || path.isEmpty() ? "/" : path;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    // Totals over all page loads, e.g. for the shutdown summary
+    public static String getStats() {
+        if ("off".equals(MODE)) {
+            return "off";
+        }
+        int loads = 0;
+        int blocked = 0;
+        long bytes = 0;
+        double bytesSaved = 0;
+        double millisSaved = 0;
+        synchronized (pages) {
+            for (PageLoad load : pages) {
+                loads++;
+                blocked += load.blocked;
+                bytes += load.bytes;
+                bytesSaved += load.bytesSaved();
+                millisSaved += load.millisSaved();
+            }
+        }
+        return String.format("mode=%s, page loads=%d, requests blocked=%d, transferred=%d KB, "
+                + "saved vs baseline: %.0f KB, %.0f ms load time", MODE, loads, blocked, bytes / 1024,
+                bytesSaved / 1024, millisSaved);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void loadBaseline() {
+        if (!Files.exists(BASELINE_FILE)) {
+            return;
+        }
+        try {
+            Map<String, Object> stored = new Json().toType(
+                    new String(Files.readAllBytes(BASELINE_FILE), StandardCharsets.UTF_8), Json.MAP_TYPE);
+            for (Map.Entry<String, Object> entry : stored.entrySet()) {
+                Map<String, Object> data = (Map<String, Object>) entry.getValue();
+                baseline.put(entry.getKey(), new double[] {
+                        number(data.get("loads")), number(data.get("totalLoadMillis")),
+                        number(data.get("totalDeniedBytes")) });
+            }
+        } catch (Exception e) {
+            System.out.println("Ignoring unreadable network baseline " + BASELINE_FILE + ": " + e.getMessage());
+        }
+    }
+
+    private static void export() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        synchronized (pages) {
+            if (pages.isEmpty()) {
+                return;
+            }
+            for (PageLoad load : pages) {
+                if ("observe".equals(MODE) && load.loadMillis >= 0) {
+                    double[] totals = baseline.computeIfAbsent(load.path, k -> new double[3]);
+                    totals[0]++;
+                    totals[1] += load.loadMillis;
+                    totals[2] += load.deniedBytes;
+                }
+                report.add(load.toMap());
+            }
+        }
+        try {
+            Files.createDirectories(STATS_FILE.getParent());
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("mode", MODE);
+            stats.put("patterns", PATTERNS);
+            stats.put("pages", report);
+            Files.write(STATS_FILE, new Json().toJson(stats).getBytes(StandardCharsets.UTF_8));
+
+            if ("observe".equals(MODE)) {
+                Map<String, Object> stored = new LinkedHashMap<>();
+                for (Map.Entry<String, double[]> entry : baseline.entrySet()) {
+                    Map<String, Object> data = new LinkedHashMap<>();
+                    data.put("loads", entry.getValue()[0]);
+                    data.put("totalLoadMillis", entry.getValue()[1]);
+                    data.put("totalDeniedBytes", entry.getValue()[2]);
+                    stored.put(entry.getKey(), data);
+                }
+                if (BASELINE_FILE.getParent() != null) {
+                    Files.createDirectories(BASELINE_FILE.getParent());
+                }
+                Files.write(BASELINE_FILE, new Json().toJson(stored).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            System.out.println("Failed to write network stats: " + e.getMessage());
+        }
+        System.out.println("Network: " + getStats());
+    }
+
+    // executeCdpCommand or a DevTools session
+    private interface CdpCommand {
+        Object execute(String method, Map<String, Object> params);
+    }
+
+    private static final class Request {
+        private final PageLoad page;
+        private final boolean denied;
+
+        private Request(PageLoad page, boolean denied) {
+            this.page = page;
+            this.denied = denied;
+        }
+    }
+
+    private static final class PageLoad {
+        private String path;
+        private final double started;
+        private int requests;
+        private int blocked;
+        private long bytes;
+        private long deniedBytes;
+        private double loadMillis = -1;
+
+        private PageLoad(String path, double started) {
+            this.path = path;
+            this.started = started;
+        }
+
+        // Bytes the deny-list matched on this path in observe mode that were not transferred now
+        private double bytesSaved() {
+            double[] totals = baseline.get(path);
+            return "block".equals(MODE) && totals != null && totals[0] > 0
+                    ? Math.max(0, totals[2] / totals[0] - deniedBytes)
+                    : 0;
+        }
+
+        private double millisSaved() {
+            double[] totals = baseline.get(path);
+            return "block".equals(MODE) && totals != null && totals[0] > 0 && loadMillis >= 0
+                    ? totals[1] / totals[0] - loadMillis
+                    : 0;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("path", path);
+            map.put("requests", requests);
+            map.put("blocked", blocked);
+            map.put("bytes", bytes);
+            map.put("deniedBytes", deniedBytes);
+            map.put("loadMillis", loadMillis < 0 ? null : Math.round(loadMillis));
+            map.put("bytesSaved", Math.round(bytesSaved()));
+            map.put("millisSaved", Math.round(millisSaved()));
+            return map;
+        }
+    }
+}
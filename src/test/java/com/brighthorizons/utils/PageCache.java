@@ -0,0 +1,167 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.events.WebDriverListener;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Query cache for the page currently open in one browser session, so
+ * repeated reads of an unchanged page cost no WebDriver round-trips.
+ *
+ * The cache listens to the session's commands and drops everything on
+ * navigation, clicks, typing, frame/window switches and scripts not
+ * registered as read-only. With page.cache.mode=mutations every lookup
+ * also checks an in-page DOM mutation counter (one cheap script call), which
+ * catches changes the page makes on its own. page.cache.mode=off disables it.
+ */
+public final class PageCache implements WebDriverListener {
+
+    private static final String MODE = ConfigReader.getProperty("page.cache.mode", "epoch").trim().toLowerCase();
+
+    // Document id plus the number of DOM mutations observed since the counter was installed
+    private static final String MUTATION_TOKEN_SCRIPT =
+            "var state = window.__pageCacheState;"
+            + "if (!state) {"
+            + "  state = window.__pageCacheState = { id: Math.random().toString(36).slice(2), count: 0 };"
+            + "  new MutationObserver(function (records) { state.count += records.length; })"
+            + "      .observe(document.documentElement || document,"
+            + "          { childList: true, subtree: true, attributes: true, characterData: true });"
+            + "}"
+            + "return state.id + ':' + state.count;";
+
+    // Commands that can change what the page shows
+    private static final Set<String> MUTATING_COMMANDS = Set.of(
+            "get", "to", "back", "forward", "refresh",
+            "click", "sendKeys", "clear", "submit", "perform", "resetInputState",
+            "frame", "parentFrame", "defaultContent", "window", "newWindow", "close");
+
+    private static final Set<String> readOnlyScripts = ConcurrentHashMap.newKeySet();
+    private static final Map<WebDriver, PageCache> caches = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+
+    private final AtomicLong epoch = new AtomicLong();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    static {
+        registerReadOnlyScript(MUTATION_TOKEN_SCRIPT);
+    }
+
+    // False when page.cache.mode=off
+    public static boolean isEnabled() {
+        return !"off".equals(MODE);
+    }
+
+    // Associate a decorated session with the cache listening to it
+    public static void register(WebDriver driver, PageCache cache) {
+        caches.put(driver, cache);
+    }
+
+    // Cache for the given session, or null when it is not tracked
+    public static PageCache forDriver(WebDriver driver) {
+        return caches.get(driver);
+    }
+
+    // Scripts that only read the page and must not invalidate the cache
+    public static void registerReadOnlyScript(String script) {
+        readOnlyScripts.add(script);
+    }
+
+    // Hit/miss counters for reporting
+    public static String getStats() {
+        return String.format("mode=%s, hits=%d, misses=%d", MODE, hits.get(), misses.get());
+    }
+
+    /**
+     * Cached result of the query for the current page, running it on a miss.
+     * Null, empty collections and empty strings are not cached, so "not
+     * rendered yet" is always re-checked.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(WebDriver driver, String key, Supplier<T> query) {
+        long currentEpoch = epoch.get();
+        String token = "mutations".equals(MODE) ? mutationToken(driver) : null;
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.epoch == currentEpoch && Objects.equals(entry.token, token)) {
+            hits.incrementAndGet();
+            return (T) entry.value;
+        }
+
+        misses.incrementAndGet();
+        T value = query.get();
+        // A query that changed the page itself leaves a stale epoch behind and is never reused
+        if (!isEmpty(value)) {
+            entries.put(key, new Entry(currentEpoch, token, value));
+        }
+        return value;
+    }
+
+    private static boolean isEmpty(Object value) {
+        return value == null
+                || value instanceof Collection && ((Collection<?>) value).isEmpty()
+                || value instanceof CharSequence && ((CharSequence) value).length() == 0;
+    }
+
+    // Drop everything cached for this page
+    public void invalidate() {
+        epoch.incrementAndGet();
+        entries.clear();
+    }
+
+    @Override
+    public void beforeAnyCall(Object target, Method method, Object[] args) {
+        if (isMutating(method, args)) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void onError(Object target, Method method, Object[] args, InvocationTargetException e) {
+        // A failed command may still have changed the page halfway
+        if (isMutating(method, args)) {
+            invalidate();
+        }
+    }
+
+    private static boolean isMutating(Method method, Object[] args) {
+        if ("executeScript".equals(method.getName())) {
+            return args == null || args.length == 0 || !readOnlyScripts.contains(String.valueOf(args[0]));
+        }
+        return MUTATING_COMMANDS.contains(method.getName());
+    }
+
+    private static String mutationToken(WebDriver driver) {
+        try {
+            return String.valueOf(((JavascriptExecutor) driver).executeScript(MUTATION_TOKEN_SCRIPT));
+        } catch (Exception e) {
+            // No token means no reuse
+            return String.valueOf(System.nanoTime());
+        }
+    }
+
+    private static final class Entry {
+        private final long epoch;
+        private final String token;
+        private final Object value;
+
+        private Entry(long epoch, String token, Object value) {
+            this.epoch = epoch;
+            this.token = token;
+            this.value = value;
+        }
+    }
+}
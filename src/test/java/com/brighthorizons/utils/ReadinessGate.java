@@ -0,0 +1,88 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A condition a page object needs before it can be used, such as the
+ * search field being interactive or the footer being in the DOM. With the
+ * EAGER or NONE page load strategy, page objects wait for their gates
+ * instead of for every image and third-party script to finish loading.
+ *
+ * A gate is met when any of its locators has a match in the required state.
+ */
+public final class ReadinessGate {
+
+    public enum State {
+        // In the DOM
+        PRESENT,
+        // Displayed
+        VISIBLE,
+        // Displayed and enabled
+        INTERACTIVE
+    }
+
+    private final State state;
+    private final List<By> locators;
+
+    private ReadinessGate(State state, List<By> locators) {
+        if (locators.isEmpty()) {
+            throw new IllegalArgumentException("ReadinessGate needs at least one locator");
+        }
+        this.state = state;
+        this.locators = Collections.unmodifiableList(locators);
+    }
+
+    public static ReadinessGate present(By... locators) {
+        return new ReadinessGate(State.PRESENT, Arrays.asList(locators));
+    }
+
+    public static ReadinessGate visible(By... locators) {
+        return new ReadinessGate(State.VISIBLE, Arrays.asList(locators));
+    }
+
+    public static ReadinessGate interactive(By... locators) {
+        return new ReadinessGate(State.INTERACTIVE, Arrays.asList(locators));
+    }
+
+    // Any candidate of the chain
+    public static ReadinessGate visible(LocatorChain chain) {
+        return new ReadinessGate(State.VISIBLE, chain.getCandidates());
+    }
+
+    // Any candidate of the chain
+    public static ReadinessGate interactive(LocatorChain chain) {
+        return new ReadinessGate(State.INTERACTIVE, chain.getCandidates());
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public List<By> getLocators() {
+        return locators;
+    }
+
+    // Checked with findElements, for locators a script cannot evaluate or wait.mode=polling
+    boolean isMet(WebDriver driver) {
+        for (By locator : locators) {
+            for (WebElement element : driver.findElements(locator)) {
+                if (state == State.PRESENT
+                        || (element.isDisplayed() && (state == State.VISIBLE || element.isEnabled()))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return state.name().toLowerCase() + locators;
+    }
+}
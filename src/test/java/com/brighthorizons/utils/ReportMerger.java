@@ -0,0 +1,412 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the report directories of runs in separate JVMs into one report
+ * set in their parent directory, for a browser matrix or for shards:
+ *
+ * - CucumberTestReport.json; matrix scenarios are tagged @chrome, @firefox
+ *   or @edge and their features named and filed under the browser, shard
+ *   scenarios are put back together per feature file
+ * - events.ndjson and cucumber-pretty.html; each browser's features under
+ *   a browser/ path, shards' features once, with the scenarios of every
+ *   shard
+ * - matrix-summary.json or shard-summary.json with per-run totals and
+ *   per-scenario timings
+ */
+public final class ReportMerger {
+
+    public static final String JSON_REPORT = "CucumberTestReport.json";
+
+    // Message types that carry a run boundary, a document uri, a file link or a pickle id; the rest refer to these by id
+    private static final List<String> REWRITTEN = Arrays.asList(
+            "meta", "testRunStarted", "testRunFinished", "source", "gherkinDocument", "pickle", "attachment",
+            "testCase");
+
+    // Private constructor prevents creating instances
+    private ReportMerger() {
+    }
+
+    /**
+     * @param root        parent report directory, each browser's reports are in root/browser
+     * @param wallMillis  wall-clock time of each browser's run, in matrix order
+     * @param exitCodes   exit code of each browser's run
+     */
+    public static void mergeBrowsers(Path root, Map<String, Long> wallMillis, Map<String, Integer> exitCodes)
+            throws IOException {
+        merge(root, wallMillis, exitCodes, true);
+    }
+
+    /**
+     * @param root        parent report directory, each shard's reports are in root/shard-N
+     * @param wallMillis  wall-clock time of each shard's run, by shard directory name
+     * @param exitCodes   exit code of each shard's run
+     */
+    public static void mergeShards(Path root, Map<String, Long> wallMillis, Map<String, Integer> exitCodes)
+            throws IOException {
+        merge(root, wallMillis, exitCodes, false);
+    }
+
+    private static void merge(Path root, Map<String, Long> wallMillis, Map<String, Integer> exitCodes,
+            boolean byBrowser) throws IOException {
+        List<Map<String, Object>> features = new ArrayList<>();
+        Map<String, Map<String, Object>> runs = new LinkedHashMap<>();
+        // scenario -> run -> ms
+        Map<String, Map<String, Long>> scenarios = new LinkedHashMap<>();
+
+        for (String run : wallMillis.keySet()) {
+            Map<String, Object> totals = new LinkedHashMap<>();
+            totals.put("exitCode", exitCodes.get(run));
+            totals.put("wallMillis", wallMillis.get(run));
+            runs.put(run, totals);
+
+            Path report = root.resolve(run).resolve(JSON_REPORT);
+            if (!Files.exists(report)) {
+                totals.put("scenarios", 0);
+                continue;
+            }
+            List<Map<String, Object>> runFeatures = new Json().toType(
+                    new String(Files.readAllBytes(report), StandardCharsets.UTF_8), Json.LIST_OF_MAPS_TYPE);
+            addScenarios(run, runFeatures, byBrowser, totals, scenarios);
+            features.addAll(runFeatures);
+        }
+
+        Files.createDirectories(root);
+        Files.write(root.resolve(JSON_REPORT), new Json().toJson(byBrowser ? features : joinFeatures(features))
+                .getBytes(StandardCharsets.UTF_8));
+        mergeEvents(root, wallMillis.keySet(), byBrowser);
+
+        String kind = byBrowser ? "matrix" : "shard";
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put(byBrowser ? "browsers" : "shards", runs);
+        summary.put("scenarios", scenarios);
+        Files.write(root.resolve(kind + "-summary.json"), new Json().toJson(summary).getBytes(StandardCharsets.UTF_8));
+        printSummary(kind, runs, scenarios);
+    }
+
+    // One feature per file again, with the scenarios of all shards in file order
+    @SuppressWarnings("unchecked")
+    static List<Map<String, Object>> joinFeatures(List<Map<String, Object>> features) {
+        Map<Object, Map<String, Object>> byUri = new LinkedHashMap<>();
+        for (Map<String, Object> feature : features) {
+            Map<String, Object> joined = byUri.get(feature.get("uri"));
+            if (joined == null) {
+                byUri.put(feature.get("uri"), feature);
+                continue;
+            }
+            List<Object> elements = new ArrayList<>((List<Object>) joined.getOrDefault("elements", new ArrayList<>()));
+            elements.addAll((List<Object>) feature.getOrDefault("elements", new ArrayList<>()));
+            elements.sort(Comparator.comparingLong(element -> line((Map<String, Object>) element)));
+            joined.put("elements", elements);
+        }
+        return new ArrayList<>(byUri.values());
+    }
+
+    private static long line(Map<String, Object> element) {
+        Object line = element.get("line");
+        return line instanceof Number ? ((Number) line).longValue() : 0;
+    }
+
+    /**
+     * Adds up each scenario's step durations; in a matrix also tags the
+     * scenario with its browser and files the feature under it
+     */
+    @SuppressWarnings("unchecked")
+    private static void addScenarios(String run, List<Map<String, Object>> features, boolean byBrowser,
+            Map<String, Object> totals, Map<String, Map<String, Long>> scenarios) {
+        int count = 0;
+        int passed = 0;
+        long totalMillis = 0;
+        for (Map<String, Object> feature : features) {
+            String featureName = String.valueOf(feature.get("name"));
+            if (byBrowser) {
+                feature.put("name", featureName + " [" + run + "]");
+                feature.put("uri", underRun(run, String.valueOf(feature.get("uri"))));
+                feature.put("id", run + ";" + feature.get("id"));
+            }
+
+            for (Object elementObject : (List<Object>) feature.getOrDefault("elements", new ArrayList<>())) {
+                Map<String, Object> element = (Map<String, Object>) elementObject;
+                if (!"scenario".equals(element.get("type"))) {
+                    continue;
+                }
+                if (byBrowser) {
+                    List<Object> tags = new ArrayList<>((List<Object>) element.getOrDefault("tags", new ArrayList<>()));
+                    Map<String, Object> tag = new LinkedHashMap<>();
+                    tag.put("name", "@" + run);
+                    tags.add(tag);
+                    element.put("tags", tags);
+                }
+
+                long nanos = 0;
+                boolean ok = true;
+                for (String section : new String[] { "before", "steps", "after" }) {
+                    for (Object stepObject : (List<Object>) element.getOrDefault(section, new ArrayList<>())) {
+                        Map<String, Object> result = (Map<String, Object>) ((Map<String, Object>) stepObject)
+                                .getOrDefault("result", new LinkedHashMap<>());
+                        Object duration = result.get("duration");
+                        nanos += duration instanceof Number ? ((Number) duration).longValue() : 0;
+                        ok &= "passed".equals(result.get("status"));
+                    }
+                }
+                long millis = nanos / 1_000_000;
+                count++;
+                passed += ok ? 1 : 0;
+                totalMillis += millis;
+                String key = featureName + ": " + element.get("name") + " (line " + element.get("line") + ")";
+                scenarios.computeIfAbsent(key, k -> new LinkedHashMap<>()).put(run, millis);
+            }
+        }
+        totals.put("scenarios", count);
+        totals.put("passed", passed);
+        totals.put("failed", count - passed);
+        totals.put("scenarioMillis", totalMillis);
+        totals.put("meanScenarioMillis", count == 0 ? 0 : totalMillis / count);
+    }
+
+    /**
+     * Concatenates the runs' message streams into one, keeping a single run
+     * start and finish, then renders the HTML report from it. Each browser's
+     * documents are moved under browser/; shards ran the same documents, so
+     * only the first shard's are kept (see {@link SharedFeatures}). Message
+     * ids are UUIDs, so streams of separate runs do not collide.
+     */
+    @SuppressWarnings("unchecked")
+    private static void mergeEvents(Path root, Iterable<String> runs, boolean byBrowser) throws IOException {
+        Path merged = root.resolve(StreamingReportPlugin.EVENTS_FILE);
+        SharedFeatures shared = new SharedFeatures();
+        boolean meta = false;
+        boolean started = false;
+        boolean success = true;
+        Object finishedAt = null;
+
+        try (Writer out = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+            for (String run : runs) {
+                Path events = root.resolve(run).resolve(StreamingReportPlugin.EVENTS_FILE);
+                if (!Files.exists(events)) {
+                    continue;
+                }
+                shared.startRun();
+                try (BufferedReader reader = Files.newBufferedReader(events, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isEmpty()) {
+                            continue;
+                        }
+                        // Every line is {"<type>":{...}}, only a few types need rewriting
+                        String type = line.substring(2, line.indexOf('"', 2));
+                        if (!REWRITTEN.contains(type)) {
+                            out.write(line);
+                            out.write('\n');
+                            continue;
+                        }
+                        Map<String, Object> envelope = new Json().toType(line, Json.MAP_TYPE);
+                        Map<String, Object> message = (Map<String, Object>) envelope.get(type);
+                        switch (type) {
+                            case "meta":
+                                if (meta) {
+                                    continue;
+                                }
+                                meta = true;
+                                break;
+                            case "testRunStarted":
+                                if (started) {
+                                    continue;
+                                }
+                                started = true;
+                                break;
+                            case "testRunFinished":
+                                success &= Boolean.TRUE.equals(message.get("success"));
+                                finishedAt = message.get("timestamp");
+                                continue;
+                            case "source":
+                            case "gherkinDocument":
+                            case "pickle":
+                                if (byBrowser) {
+                                    message.put("uri", underRun(run, String.valueOf(message.get("uri"))));
+                                } else if (!shared.keep(type, message)) {
+                                    continue;
+                                }
+                                break;
+                            case "testCase":
+                                shared.relinkTestCase(message);
+                                break;
+                            default:
+                                relinkAttachment(run, message);
+                                break;
+                        }
+                        StreamingReportPlugin.MESSAGE_JSON.writeValue(out, envelope);
+                        out.write('\n');
+                    }
+                }
+            }
+            if (finishedAt != null) {
+                Map<String, Object> finished = new LinkedHashMap<>();
+                finished.put("success", success);
+                finished.put("timestamp", finishedAt);
+                Map<String, Object> envelope = new LinkedHashMap<>();
+                envelope.put("testRunFinished", finished);
+                StreamingReportPlugin.MESSAGE_JSON.writeValue(out, envelope);
+                out.write('\n');
+            }
+        }
+        StreamingReportRenderer.render(merged, root.resolve(StreamingReportPlugin.HTML_FILE));
+    }
+
+    // file:src/test/resources/features/x.feature -> file:chrome/src/test/resources/features/x.feature
+    static String underRun(String run, String uri) {
+        int scheme = uri.indexOf(':');
+        if (scheme < 0) {
+            return run + "/" + uri;
+        }
+        return uri.substring(0, scheme + 1) + run + "/" + uri.substring(scheme + 1).replaceFirst("^/+", "");
+    }
+
+    // Attachment files and screenshot links are relative to the run's own report directory
+    private static void relinkAttachment(String run, Map<String, Object> attachment) {
+        if (attachment.get("url") != null) {
+            attachment.put("url", run + "/" + attachment.get("url"));
+        }
+        if ("text/uri-list".equals(attachment.get("mediaType"))) {
+            attachment.put("body", run + "/" + attachment.get("body"));
+        }
+    }
+
+    /**
+     * The features shards share. Every shard parses the same files and
+     * sends their source, document and pickles with ids of its own; the
+     * first shard's are kept, and the document, pickle and pickle step ids
+     * of later shards are mapped onto them, so their test cases point at
+     * the kept pickles.
+     */
+    private static final class SharedFeatures {
+
+        private final Set<Object> sources = new HashSet<>();
+        // First document of each uri, first pickle of each scenario or Examples row
+        private final Map<Object, Map<String, Object>> documents = new HashMap<>();
+        private final Map<String, Map<String, Object>> pickles = new HashMap<>();
+        // The current run's ids -> the kept ones
+        private Map<String, String> ids = new HashMap<>();
+
+        void startRun() {
+            ids = new HashMap<>();
+        }
+
+        // false when the same message was kept from an earlier shard
+        @SuppressWarnings("unchecked")
+        boolean keep(String type, Map<String, Object> message) {
+            switch (type) {
+                case "source":
+                    return sources.add(message.get("uri"));
+                case "gherkinDocument":
+                    Map<String, Object> document = documents.putIfAbsent(message.get("uri"), message);
+                    if (document == null) {
+                        return true;
+                    }
+                    mapIds(message, document);
+                    return false;
+                default:
+                    message.put("astNodeIds", relink((List<Object>) message.get("astNodeIds")));
+                    for (Object step : (List<Object>) message.getOrDefault("steps", new ArrayList<>())) {
+                        Map<String, Object> pickleStep = (Map<String, Object>) step;
+                        pickleStep.put("astNodeIds", relink((List<Object>) pickleStep.get("astNodeIds")));
+                    }
+                    for (Object tag : (List<Object>) message.getOrDefault("tags", new ArrayList<>())) {
+                        Map<String, Object> pickleTag = (Map<String, Object>) tag;
+                        pickleTag.put("astNodeId", id(pickleTag.get("astNodeId")));
+                    }
+                    // Scenario and Examples row, unique within a document
+                    Map<String, Object> pickle = pickles.putIfAbsent(
+                            message.get("uri") + " " + message.get("astNodeIds"), message);
+                    if (pickle == null) {
+                        return true;
+                    }
+                    mapIds(message, pickle);
+                    return false;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void relinkTestCase(Map<String, Object> testCase) {
+            testCase.put("pickleId", id(testCase.get("pickleId")));
+            for (Object step : (List<Object>) testCase.getOrDefault("testSteps", new ArrayList<>())) {
+                Map<String, Object> testStep = (Map<String, Object>) step;
+                if (testStep.get("pickleStepId") != null) {
+                    testStep.put("pickleStepId", id(testStep.get("pickleStepId")));
+                }
+            }
+        }
+
+        // Both are the same message parsed twice, so every id has its counterpart at the same place
+        private void mapIds(Object duplicate, Object kept) {
+            if (duplicate instanceof Map && kept instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) duplicate).entrySet()) {
+                    Object keptValue = ((Map<?, ?>) kept).get(entry.getKey());
+                    if ("id".equals(entry.getKey()) && keptValue != null) {
+                        ids.put(String.valueOf(entry.getValue()), String.valueOf(keptValue));
+                    } else {
+                        mapIds(entry.getValue(), keptValue);
+                    }
+                }
+            } else if (duplicate instanceof List && kept instanceof List) {
+                List<?> duplicates = (List<?>) duplicate;
+                List<?> keptValues = (List<?>) kept;
+                for (int i = 0; i < Math.min(duplicates.size(), keptValues.size()); i++) {
+                    mapIds(duplicates.get(i), keptValues.get(i));
+                }
+            }
+        }
+
+        private List<Object> relink(List<Object> nodeIds) {
+            List<Object> relinked = new ArrayList<>();
+            if (nodeIds != null) {
+                for (Object nodeId : nodeIds) {
+                    relinked.add(id(nodeId));
+                }
+            }
+            return relinked;
+        }
+
+        private Object id(Object id) {
+            return id == null ? null : ids.getOrDefault(String.valueOf(id), String.valueOf(id));
+        }
+    }
+
+    private static void printSummary(String kind, Map<String, Map<String, Object>> runs,
+            Map<String, Map<String, Long>> scenarios) {
+        long fastest = Long.MAX_VALUE;
+        for (Map<String, Object> totals : runs.values()) {
+            fastest = Math.min(fastest, ((Number) totals.get("wallMillis")).longValue());
+        }
+        System.out.println(Character.toUpperCase(kind.charAt(0)) + kind.substring(1) + " results:");
+        for (Map.Entry<String, Map<String, Object>> entry : runs.entrySet()) {
+            Map<String, Object> totals = entry.getValue();
+            long wall = ((Number) totals.get("wallMillis")).longValue();
+            System.out.println(String.format("  %-8s scenarios=%s passed=%s failed=%s wall=%d ms (%+.0f%% vs fastest)"
+                    + " mean scenario=%s ms exit=%s", entry.getKey(), totals.get("scenarios"),
+                    totals.getOrDefault("passed", 0), totals.getOrDefault("failed", 0), wall,
+                    fastest > 0 ? (wall - fastest) * 100.0 / fastest : 0.0,
+                    totals.getOrDefault("meanScenarioMillis", 0), totals.get("exitCode")));
+        }
+        for (Map.Entry<String, Map<String, Long>> scenario : scenarios.entrySet()) {
+            System.out.println("  " + scenario.getKey() + " " + scenario.getValue());
+        }
+    }
+}
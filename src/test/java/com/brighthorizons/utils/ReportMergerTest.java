@@ -0,0 +1,231 @@
+package com.brighthorizons.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ReportMergerTest {
+
+    private static final String URI = "file:features/a.feature";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void movesUrisUnderTheRun() {
+        assertEquals("file:chrome/src/test/resources/features/a.feature",
+                ReportMerger.underRun("chrome", "file:src/test/resources/features/a.feature"));
+        assertEquals("file:edge/home/ci/features/a.feature",
+                ReportMerger.underRun("edge", "file:///home/ci/features/a.feature"));
+        assertEquals("classpath:firefox/features/a.feature",
+                ReportMerger.underRun("firefox", "classpath:features/a.feature"));
+        assertEquals("chrome/features/a.feature", ReportMerger.underRun("chrome", "features/a.feature"));
+    }
+
+    @Test
+    public void joinsShardsOfTheSameFeatureInLineOrder() {
+        List<Map<String, Object>> features = new ArrayList<>();
+        features.add(feature("file:a.feature", 12, 40));
+        features.add(feature("file:b.feature", 3));
+        features.add(feature("file:a.feature", 25, 5));
+
+        List<Map<String, Object>> joined = ReportMerger.joinFeatures(features);
+
+        assertEquals(2, joined.size());
+        assertEquals("file:a.feature", joined.get(0).get("uri"));
+        assertEquals(Arrays.asList(5L, 12L, 25L, 40L), lines(joined.get(0)));
+        assertEquals("file:b.feature", joined.get(1).get("uri"));
+        assertEquals(Arrays.asList(3L), lines(joined.get(1)));
+    }
+
+    @Test
+    public void keepsFeaturesWithoutElements() {
+        List<Map<String, Object>> features = new ArrayList<>();
+        Map<String, Object> empty = new LinkedHashMap<>();
+        empty.put("uri", "file:a.feature");
+        features.add(empty);
+        features.add(feature("file:a.feature", 7));
+
+        List<Map<String, Object>> joined = ReportMerger.joinFeatures(features);
+
+        assertEquals(1, joined.size());
+        assertEquals(Arrays.asList(7L), lines(joined.get(0)));
+    }
+
+    @Test
+    public void shardsShareOneCopyOfEachFeature() throws IOException {
+        Path root = folder.getRoot().toPath();
+        // shard-0 ran scenario A; shard-1 ran B and A again, every message with ids of its own
+        writeEvents(root, "shard-0", true, "A");
+        writeEvents(root, "shard-1", false, "B", "A");
+
+        ReportMerger.mergeShards(root, runs("shard-0", "shard-1"), exitCodes("shard-0", "shard-1"));
+
+        Map<String, List<JsonNode>> merged = readEvents(root);
+        assertEquals(1, merged.get("source").size());
+        assertEquals(1, merged.get("gherkinDocument").size());
+        assertEquals(1, merged.get("testRunStarted").size());
+        assertEquals(1, merged.get("testRunFinished").size());
+        assertFalse(merged.get("testRunFinished").get(0).path("success").asBoolean());
+
+        // Later shards' pickles point at the kept document, their duplicate of A is dropped
+        List<JsonNode> pickles = merged.get("pickle");
+        assertEquals(Arrays.asList("shard-0-pickle-A", "shard-1-pickle-B"), ids(pickles));
+        assertEquals("shard-0-B", pickles.get(1).path("astNodeIds").path(0).asText());
+        assertEquals("shard-0-B-step", pickles.get(1).path("steps").path(0).path("astNodeIds").path(0).asText());
+        assertEquals("shard-0-tag", pickles.get(1).path("tags").path(0).path("astNodeId").asText());
+
+        // and their test cases at the kept pickles and pickle steps
+        List<JsonNode> testCases = merged.get("testCase");
+        assertEquals(3, testCases.size());
+        assertEquals("shard-1-pickle-B", testCases.get(1).path("pickleId").asText());
+        assertEquals("shard-1-pickle-B-step", testCases.get(1).path("testSteps").path(0).path("pickleStepId").asText());
+        assertEquals("shard-0-pickle-A", testCases.get(2).path("pickleId").asText());
+        assertEquals("shard-0-pickle-A-step", testCases.get(2).path("testSteps").path(0).path("pickleStepId").asText());
+        assertFalse(testCases.get(2).path("testSteps").path(1).has("pickleStepId"));
+
+        // Attachment files stay in the shard's own directory
+        assertEquals("shard-1/attachments/1.png", merged.get("attachment").get(1).path("url").asText());
+        assertFalse(Files.readAllLines(root.resolve(StreamingReportPlugin.HTML_FILE)).isEmpty());
+    }
+
+    @Test
+    public void browsersKeepTheirOwnFeaturesUnderTheirName() throws IOException {
+        Path root = folder.getRoot().toPath();
+        writeEvents(root, "chrome", true, "A");
+        writeEvents(root, "edge", true, "A");
+
+        ReportMerger.mergeBrowsers(root, runs("chrome", "edge"), exitCodes("chrome", "edge"));
+
+        Map<String, List<JsonNode>> merged = readEvents(root);
+        assertEquals(2, merged.get("gherkinDocument").size());
+        assertEquals("file:chrome/features/a.feature", merged.get("source").get(0).path("uri").asText());
+        assertEquals("file:edge/features/a.feature", merged.get("gherkinDocument").get(1).path("uri").asText());
+        assertEquals(Arrays.asList("chrome-pickle-A", "edge-pickle-A"), ids(merged.get("pickle")));
+        assertEquals("edge-pickle-A", merged.get("testCase").get(1).path("pickleId").asText());
+        assertEquals(1, merged.get("testRunFinished").size());
+        assertEquals(true, merged.get("testRunFinished").get(0).path("success").asBoolean());
+    }
+
+    // The run's events.ndjson: one feature with scenarios A and B, of which the given ones ran
+    private static void writeEvents(Path root, String run, boolean success, String... scenarios) throws IOException {
+        List<Object> children = new ArrayList<>();
+        for (String scenario : new String[] { "A", "B" }) {
+            children.add(map("scenario", map("id", run + "-" + scenario, "name", scenario,
+                    "tags", Collections.singletonList(map("id", run + "-tag", "name", "@smoke")),
+                    "steps", Collections.singletonList(map("id", run + "-" + scenario + "-step", "text", "a step")))));
+        }
+        List<String> lines = new ArrayList<>();
+        lines.add(message("meta", "protocolVersion", "22.0.0"));
+        lines.add(message("source", "uri", URI, "data", "Feature: a", "mediaType", "text/x.cucumber.gherkin+plain"));
+        lines.add(message("gherkinDocument", "uri", URI, "feature", map("name", "a", "children", children)));
+        for (String scenario : scenarios) {
+            String pickle = run + "-pickle-" + scenario;
+            lines.add(message("pickle", "id", pickle, "uri", URI, "name", scenario,
+                    "astNodeIds", Collections.singletonList(run + "-" + scenario),
+                    "tags", Collections.singletonList(map("name", "@smoke", "astNodeId", run + "-tag")),
+                    "steps", Collections.singletonList(map("id", pickle + "-step", "text", "a step",
+                            "astNodeIds", Collections.singletonList(run + "-" + scenario + "-step")))));
+        }
+        lines.add(message("testRunStarted", "timestamp", map("seconds", 1, "nanos", 0)));
+        for (String scenario : scenarios) {
+            String pickle = run + "-pickle-" + scenario;
+            lines.add(message("testCase", "id", run + "-case-" + scenario, "pickleId", pickle, "testSteps",
+                    Arrays.asList(map("id", run + "-case-" + scenario + "-step", "pickleStepId", pickle + "-step"),
+                            map("id", run + "-case-" + scenario + "-hook", "hookId", "hook"))));
+        }
+        lines.add(message("attachment", "body", "", "contentEncoding", "BASE64", "mediaType", "image/png",
+                "url", "attachments/1.png"));
+        lines.add(message("testRunFinished", "success", success, "timestamp", map("seconds", 2, "nanos", 0)));
+
+        Files.createDirectories(root.resolve(run));
+        Files.write(root.resolve(run).resolve(StreamingReportPlugin.EVENTS_FILE), lines, StandardCharsets.UTF_8);
+    }
+
+    // Messages of the merged stream by type, in stream order
+    private static Map<String, List<JsonNode>> readEvents(Path root) throws IOException {
+        Map<String, List<JsonNode>> messages = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(root.resolve(StreamingReportPlugin.EVENTS_FILE))) {
+            JsonNode envelope = StreamingReportPlugin.MESSAGE_JSON.readTree(line);
+            String type = envelope.fieldNames().next();
+            messages.computeIfAbsent(type, k -> new ArrayList<>()).add(envelope.get(type));
+        }
+        return messages;
+    }
+
+    private static List<String> ids(List<JsonNode> messages) {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode message : messages) {
+            ids.add(message.path("id").asText());
+        }
+        return ids;
+    }
+
+    private static Map<String, Long> runs(String... names) {
+        Map<String, Long> runs = new LinkedHashMap<>();
+        for (String name : names) {
+            runs.put(name, 1000L);
+        }
+        return runs;
+    }
+
+    private static Map<String, Integer> exitCodes(String... names) {
+        Map<String, Integer> exitCodes = new LinkedHashMap<>();
+        for (String name : names) {
+            exitCodes.put(name, 0);
+        }
+        return exitCodes;
+    }
+
+    private static String message(String type, Object... keysAndValues) throws JsonProcessingException {
+        return StreamingReportPlugin.MESSAGE_JSON.writeValueAsString(
+                Collections.singletonMap(type, map(keysAndValues)));
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static Map<String, Object> feature(String uri, long... lines) {
+        List<Object> elements = new ArrayList<>();
+        for (long line : lines) {
+            Map<String, Object> element = new LinkedHashMap<>();
+            element.put("type", "scenario");
+            element.put("line", line);
+            elements.add(element);
+        }
+        Map<String, Object> feature = new LinkedHashMap<>();
+        feature.put("uri", uri);
+        feature.put("elements", elements);
+        return feature;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> lines(Map<String, Object> feature) {
+        List<Long> lines = new ArrayList<>();
+        for (Object element : (List<Object>) feature.get("elements")) {
+            lines.add(((Number) ((Map<String, Object>) element).get("line")).longValue());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,160 @@
+package com.brighthorizons.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Retries page actions that failed with a transient WebDriver exception.
+ *
+ * - retry.policies lists the retryable exceptions with their attempts
+ *   (first try included), e.g. StaleElementReferenceException:3; an
+ *   exception matches its own name or the name of a superclass, anything
+ *   not listed fails at once
+ * - between attempts the thread backs off exponentially from
+ *   retry.backoff.initial.ms up to retry.backoff.max.ms, with
+ *   retry.backoff.jitter of every delay randomized so scenarios failing
+ *   together do not retry in lockstep; a delay never runs past the step's
+ *   wait budget
+ * - a step gets at most retry.budget.step.count retries and the whole run
+ *   retry.budget.run.count, so a broken page fails fast instead of
+ *   retrying every action
+ */
+public final class RetryPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(RetryPolicy.class);
+
+    private static final FrameworkConfig CONFIG = FrameworkConfig.get();
+    private static final long INITIAL_MILLIS = CONFIG.getInt("retry.backoff.initial.ms", 200);
+    private static final long MAX_MILLIS = Math.max(INITIAL_MILLIS, CONFIG.getInt("retry.backoff.max.ms", 2000));
+    private static final double JITTER = CONFIG.getDouble("retry.backoff.jitter", 0.5);
+    private static final int STEP_BUDGET = CONFIG.getInt("retry.budget.step.count", 3);
+
+    // Attempts by exception simple name, first try included
+    private static final Map<String, Integer> ATTEMPTS = parsePolicies();
+
+    private static final AtomicInteger runBudget = new AtomicInteger(CONFIG.getInt("retry.budget.run.count", 50));
+    private static final AtomicInteger retries = new AtomicInteger();
+    private static final AtomicInteger recovered = new AtomicInteger();
+
+    // Retries left in the step running on this thread, absent between steps
+    private static final ThreadLocal<Integer> stepBudget = new ThreadLocal<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (retries.get() > 0) {
+                System.out.println("Retries: " + getStats());
+            }
+        }));
+    }
+
+    // Private constructor prevents creating instances
+    private RetryPolicy() {
+    }
+
+    // Start the retry budget of a new step on this thread
+    public static void startStep() {
+        stepBudget.set(STEP_BUDGET);
+    }
+
+    // Actions outside a step only draw on the run budget
+    public static void endStep() {
+        stepBudget.remove();
+    }
+
+    public static void run(String action, Runnable attempt) {
+        call(action, () -> {
+            attempt.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs the attempt, and again after a backoff for as long as its
+     * exception's policy and the budgets allow
+     *
+     * @param action Named in the log when a retry happens
+     * @return The result of the first attempt that did not throw
+     */
+    public static <T> T call(String action, Supplier<T> attempt) {
+        for (int tries = 1;; tries++) {
+            try {
+                T result = attempt.get();
+                if (tries > 1) {
+                    recovered.incrementAndGet();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                long delay = backoff(tries);
+                if (tries >= attemptsFor(e) || WaitBudget.clamp(delay) < delay || !takeBudget()) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                log.debug("Retrying {} in {} ms (attempt {} failed: {})", action, delay, tries,
+                        e.getClass().getSimpleName());
+                sleep(delay);
+            }
+        }
+    }
+
+    public static String getStats() {
+        return String.format("retries=%d, recovered=%d, run budget left=%d", retries.get(), recovered.get(),
+                Math.max(0, runBudget.get()));
+    }
+
+    // Attempts allowed for this exception: its own policy or its closest superclass's, otherwise 1
+    static int attemptsFor(Throwable failure) {
+        for (Class<?> type = failure.getClass(); type != null; type = type.getSuperclass()) {
+            Integer attempts = ATTEMPTS.get(type.getSimpleName());
+            if (attempts != null) {
+                return attempts;
+            }
+        }
+        return 1;
+    }
+
+    // Exponential delay before retry number tries, part of it randomized
+    static long backoff(int tries) {
+        long delay = Math.min(MAX_MILLIS, INITIAL_MILLIS << Math.min(tries - 1, 20));
+        long jitter = (long) (delay * JITTER);
+        return delay - jitter + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+    }
+
+    // Takes one retry from the step budget, if any, and from the run budget
+    private static boolean takeBudget() {
+        Integer step = stepBudget.get();
+        if (step != null && step <= 0) {
+            return false;
+        }
+        if (runBudget.getAndDecrement() <= 0) {
+            return false;
+        }
+        if (step != null) {
+            stepBudget.set(step - 1);
+        }
+        return true;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    private static Map<String, Integer> parsePolicies() {
+        Map<String, Integer> attempts = new LinkedHashMap<>();
+        for (String policy : CONFIG.getList("retry.policies")) {
+            int colon = policy.indexOf(':');
+            attempts.put(policy.substring(0, colon).trim(), Integer.parseInt(policy.substring(colon + 1).trim()));
+        }
+        return attempts;
+    }
+}
@@ -0,0 +1,178 @@
+package com.brighthorizons.utils;
+
+import org.junit.Test;
+import org.openqa.selenium.ElementClickInterceptedException;
+import org.openqa.selenium.ElementNotInteractableException;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RetryPolicyTest {
+
+    private static final FrameworkConfig CONFIG = FrameworkConfig.get();
+
+    // retry.policies in config.properties: StaleElementReferenceException:3, ElementClickInterceptedException:2,
+    // ElementNotInteractableException:3
+    @Test
+    public void attemptsOfTheExceptionsOwnPolicy() {
+        assertEquals(3, RetryPolicy.attemptsFor(new StaleElementReferenceException("stale")));
+        assertEquals(2, RetryPolicy.attemptsFor(new ElementClickInterceptedException("intercepted")));
+        assertEquals(3, RetryPolicy.attemptsFor(new ElementNotInteractableException("not interactable")));
+    }
+
+    @Test
+    public void subclassesUseTheClosestSuperclassPolicy() {
+        assertEquals(3, RetryPolicy.attemptsFor(new StaleElementReferenceException("stale") {
+        }));
+        // ElementClickInterceptedException is an ElementNotInteractableException with a policy of its own
+        assertEquals(3, RetryPolicy.attemptsFor(new ElementNotInteractableException("not interactable") {
+        }));
+        assertEquals(2, RetryPolicy.attemptsFor(new ElementClickInterceptedException("intercepted") {
+        }));
+    }
+
+    @Test
+    public void otherExceptionsAreTriedOnce() {
+        assertEquals(1, RetryPolicy.attemptsFor(new IllegalArgumentException()));
+        assertEquals(1, RetryPolicy.attemptsFor(new AssertionError("failed")));
+    }
+
+    @Test
+    public void backoffDoublesUpToTheMaximumWithJitter() {
+        long initial = CONFIG.getInt("retry.backoff.initial.ms", 200);
+        long max = Math.max(initial, CONFIG.getInt("retry.backoff.max.ms", 2000));
+        double jitter = CONFIG.getDouble("retry.backoff.jitter", 0.5);
+
+        for (int tries = 1; tries <= 12; tries++) {
+            long delay = Math.min(max, initial << (tries - 1));
+            long lowest = delay - (long) (delay * jitter);
+            for (int sample = 0; sample < 200; sample++) {
+                long backoff = RetryPolicy.backoff(tries);
+                assertTrue("retry " + tries + ": " + backoff, backoff >= lowest && backoff <= delay);
+            }
+        }
+    }
+
+    @Test
+    public void backoffDoesNotOverflow() {
+        long max = Math.max(CONFIG.getInt("retry.backoff.initial.ms", 200),
+                CONFIG.getInt("retry.backoff.max.ms", 2000));
+        for (int tries : new int[] { 21, 64, 1000, Integer.MAX_VALUE }) {
+            long backoff = RetryPolicy.backoff(tries);
+            assertTrue("retry " + tries + ": " + backoff, backoff >= 0 && backoff <= max);
+        }
+    }
+
+    @Test
+    public void retriesUpToThePolicyThenRethrows() {
+        StaleElementReferenceException stale = new StaleElementReferenceException("stale");
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            RetryPolicy.run("click", () -> {
+                attempts.incrementAndGet();
+                throw stale;
+            });
+            fail("Expected the last failure to be thrown");
+        } catch (StaleElementReferenceException e) {
+            assertSame(stale, e);
+        }
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void exceptionsWithoutPolicyAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            RetryPolicy.call("getText", () -> {
+                attempts.incrementAndGet();
+                throw new NoSuchElementException("missing");
+            });
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void recoveredCountsActionsThatSucceededOnARetry() {
+        int recoveredBefore = recovered();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String text = RetryPolicy.call("getText", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new StaleElementReferenceException("stale");
+            }
+            return "text";
+        });
+
+        assertEquals("text", text);
+        assertEquals(2, attempts.get());
+        assertEquals(recoveredBefore + 1, recovered());
+
+        // Success on the first try is not a recovery
+        RetryPolicy.call("getText", () -> "text");
+        assertEquals(recoveredBefore + 1, recovered());
+    }
+
+    @Test
+    public void stepBudgetEndsRetriesForTheRestOfTheStep() {
+        // retry.budget.step.count=3: two retries for the first action, one for the second, none for the third
+        RetryPolicy.startStep();
+        try {
+            assertEquals(3, attemptsUntilItGivesUp());
+            assertEquals(2, attemptsUntilItGivesUp());
+            assertEquals(1, attemptsUntilItGivesUp());
+        } finally {
+            RetryPolicy.endStep();
+        }
+        // A new step starts with a full budget
+        RetryPolicy.startStep();
+        try {
+            assertEquals(3, attemptsUntilItGivesUp());
+        } finally {
+            RetryPolicy.endStep();
+        }
+    }
+
+    @Test
+    public void noBackoffPastTheWaitBudget() {
+        long initial = CONFIG.getInt("retry.backoff.initial.ms", 200);
+        long shortest = initial - (long) (initial * CONFIG.getDouble("retry.backoff.jitter", 0.5));
+        assertTrue("wait budget mode is on", WaitBudget.isEnabled());
+
+        // Less time left than the shortest first backoff: the failure is thrown instead of sleeping
+        long started = System.nanoTime();
+        int attempts = WaitBudget.within(shortest / 2, RetryPolicyTest::attemptsUntilItGivesUp);
+
+        assertEquals(1, attempts);
+        assertTrue((System.nanoTime() - started) / 1_000_000L < shortest);
+    }
+
+    // Attempts of an action failing with StaleElementReferenceException every time
+    private static int attemptsUntilItGivesUp() {
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            RetryPolicy.run("click", () -> {
+                attempts.incrementAndGet();
+                throw new StaleElementReferenceException("stale");
+            });
+        } catch (StaleElementReferenceException e) {
+            return attempts.get();
+        }
+        throw new AssertionError("Expected StaleElementReferenceException");
+    }
+
+    private static int recovered() {
+        Matcher matcher = Pattern.compile("recovered=(\\d+)").matcher(RetryPolicy.getStats());
+        assertTrue(RetryPolicy.getStats(), matcher.find());
+        return Integer.parseInt(matcher.group(1));
+    }
+}
@@ -0,0 +1,128 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.core.eventbus.AbstractEventBus;
+import io.cucumber.core.eventbus.EventBus;
+import io.cucumber.core.options.RuntimeOptions;
+import io.cucumber.core.runner.Runner;
+import io.cucumber.core.runtime.BackendServiceLoader;
+import io.cucumber.core.runtime.ObjectFactoryServiceLoader;
+import io.cucumber.core.runtime.RunnerSupplier;
+import io.cucumber.core.runtime.SingletonObjectFactorySupplier;
+
+import java.time.Instant;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Cucumber runners shared by the scenarios of a virtual thread run.
+ * Cucumber keeps one runner per thread, and building one loads the glue (a
+ * classpath scan of the glue packages); with a thread per scenario that
+ * would happen for every scenario. Here a scenario borrows a runner for as
+ * long as it runs and gives it back, so no more runners are ever built than
+ * scenarios were in flight at once.
+ *
+ * A runner is only used by one scenario at a time, and glue instances are
+ * created per scenario by its object factory, so it does not matter which
+ * thread a runner served before.
+ */
+public final class RunnerPool implements RunnerSupplier {
+
+    private final RuntimeOptions options;
+    private final EventBus bus;
+    private final Supplier<ClassLoader> classLoader;
+    private final ObjectFactoryServiceLoader objectFactories;
+    private final Deque<Runner> idle = new ConcurrentLinkedDeque<>();
+    private final ThreadLocal<Runner> borrowed = new ThreadLocal<>();
+    private final AtomicInteger built = new AtomicInteger();
+
+    /**
+     * @param bus The run's event bus, shared by all runners; it must be thread-safe
+     */
+    public RunnerPool(RuntimeOptions options, EventBus bus, Supplier<ClassLoader> classLoader) {
+        this.options = options;
+        this.bus = bus;
+        this.classLoader = classLoader;
+        this.objectFactories = new ObjectFactoryServiceLoader(classLoader, options);
+    }
+
+    /**
+     * Runs the task with a runner borrowed for this thread, which
+     * {@link #get()} hands to Cucumber while the task runs
+     */
+    public void withRunner(Runnable task) {
+        Runner runner = borrow();
+        borrowed.set(runner);
+        try {
+            task.run();
+        } finally {
+            borrowed.remove();
+            idle.push(runner);
+        }
+    }
+
+    /**
+     * The runner borrowed by this thread. Outside a scenario, i.e. for the
+     * before and after all hooks, any idle runner: nothing else runs then.
+     */
+    @Override
+    public Runner get() {
+        Runner runner = borrowed.get();
+        if (runner != null) {
+            return runner;
+        }
+        runner = borrow();
+        idle.push(runner);
+        return runner;
+    }
+
+    // Runners built so far, at most the peak number of scenarios in flight
+    public int getRunnersBuilt() {
+        return built.get();
+    }
+
+    private Runner borrow() {
+        Runner runner = idle.poll();
+        return runner != null ? runner : build();
+    }
+
+    // Same as Cucumber's per-thread runners: own object factory and glue, events forwarded to the shared bus
+    private Runner build() {
+        SingletonObjectFactorySupplier objectFactory = new SingletonObjectFactorySupplier(objectFactories);
+        Runner runner = new Runner(new LocalEventBus(bus),
+                new BackendServiceLoader(classLoader, objectFactory).get(), objectFactory.get(), options);
+        built.incrementAndGet();
+        return runner;
+    }
+
+    /**
+     * Handlers a runner registers stay with that runner, events go to the
+     * shared bus as well
+     */
+    private static final class LocalEventBus extends AbstractEventBus {
+
+        private final EventBus parent;
+
+        private LocalEventBus(EventBus parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public <T> void send(T event) {
+            super.send(event);
+            parent.send(event);
+        }
+
+        @Override
+        public Instant getInstant() {
+            return parent.getInstant();
+        }
+
+        @Override
+        public UUID generateId() {
+            return parent.generateId();
+        }
+    }
+}
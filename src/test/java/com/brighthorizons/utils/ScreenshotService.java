@@ -0,0 +1,239 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.java.Scenario;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Captures screenshots on the test thread and hands encoding and disk
+ * writes to a bounded background queue. The report only gets a link to
+ * the written file, never the inline image.
+ *
+ * screenshot.policy selects what is captured: always, on-failure (only the
+ * failure screenshot in @After) or sampled (every screenshot.sample.rate-th
+ * step screenshot).
+ */
+public final class ScreenshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScreenshotService.class);
+
+    // Screenshot links are relative to the HTML report in target/cucumber-reports
+    private static final String REPORT_DIR = ConfigReader.getProperty("report.dir", "target/cucumber-reports");
+    private static final String SCREENSHOT_DIR = "screenshots";
+
+    private static final String POLICY = ConfigReader.getProperty("screenshot.policy", "always").trim().toLowerCase();
+    private static final int SAMPLE_RATE = Math.max(1, ConfigReader.getIntProperty("screenshot.sample.rate", 3));
+    private static final int MAX_WIDTH = ConfigReader.getIntProperty("screenshot.max.width", 0);
+    private static final float JPEG_QUALITY =
+            Float.parseFloat(ConfigReader.getProperty("screenshot.jpeg.quality", "0.8"));
+    private static final String FORMAT = resolveFormat(ConfigReader.getProperty("screenshot.format", "png"));
+
+    private static final ThreadLocal<ScenarioState> state = new ThreadLocal<>();
+    private static final AtomicInteger skippedDuplicates = new AtomicInteger();
+    private static final ThreadPoolExecutor encoder;
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+
+        // When the queue is full the test thread encodes the frame itself rather than dropping it
+        encoder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, ConfigReader.getIntProperty("screenshot.queue.size", 16))),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "screenshot-encoder");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Runtime.getRuntime().addShutdownHook(new Thread(ScreenshotService::flush));
+    }
+
+    // Private constructor prevents creating instances
+    private ScreenshotService() {
+    }
+
+    // Start tracking captures for the scenario running on this thread
+    public static void startScenario(Scenario scenario) {
+        state.set(new ScenarioState(slug(scenario.getName()) + "-" + Math.abs(scenario.getId().hashCode())));
+    }
+
+    // Stop tracking the scenario on this thread
+    public static void finishScenario() {
+        state.remove();
+    }
+
+    // Step screenshot, subject to the capture policy
+    public static void capture(WebDriver driver, Scenario scenario, String name) {
+        ScenarioState current = currentState(scenario);
+        int index = current.stepCaptures++;
+        if ("on-failure".equals(POLICY) || ("sampled".equals(POLICY) && index % SAMPLE_RATE != 0)) {
+            return;
+        }
+        captureAndAttach(driver, scenario, name, current);
+    }
+
+    // Failure screenshot, taken under every policy
+    public static void captureFailure(WebDriver driver, Scenario scenario) {
+        captureAndAttach(driver, scenario, "Screenshot of failure", currentState(scenario));
+    }
+
+    // Wait for queued screenshots to be written
+    public static void flush() {
+        encoder.shutdown();
+        try {
+            if (!encoder.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.out.println("Screenshot encoder did not finish within 30 seconds");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (skippedDuplicates.get() > 0) {
+            System.out.println("Screenshots skipped as identical to the previous frame: " + skippedDuplicates.get());
+        }
+    }
+
+    private static void captureAndAttach(WebDriver driver, Scenario scenario, String name, ScenarioState current) {
+        byte[] png;
+        try {
+            png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+        } catch (Exception e) {
+            return;
+        }
+
+        // Skip frames identical to the previous capture of this scenario
+        CRC32 crc = new CRC32();
+        crc.update(png);
+        long checksum = crc.getValue() ^ ((long) png.length << 32);
+        if (checksum == current.lastChecksum) {
+            skippedDuplicates.incrementAndGet();
+            scenario.log(name + ": unchanged since " + current.lastLink);
+            return;
+        }
+        current.lastChecksum = checksum;
+
+        String fileName = current.prefix + "-" + (++current.sequence) + "-" + slug(name) + "." + FORMAT;
+        String link = SCREENSHOT_DIR + "/" + fileName;
+        current.lastLink = link;
+
+        Path target = Paths.get(REPORT_DIR, SCREENSHOT_DIR, fileName);
+        encoder.execute(() -> write(png, target));
+        scenario.attach(link, "text/uri-list", name);
+    }
+
+    // Runs on the encoder thread: downscale, re-encode and write to disk
+    private static void write(byte[] png, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            if ("png".equals(FORMAT) && MAX_WIDTH <= 0) {
+                Files.write(target, png);
+                return;
+            }
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+            image = downscale(image);
+            if ("jpeg".equals(FORMAT)) {
+                writeJpeg(image, target);
+            } else {
+                ImageIO.write(image, FORMAT, target.toFile());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write screenshot {}: {}", target, e.getMessage());
+        }
+    }
+
+    private static BufferedImage downscale(BufferedImage image) {
+        if (MAX_WIDTH <= 0 || image.getWidth() <= MAX_WIDTH) {
+            return image;
+        }
+        int height = (int) Math.round(image.getHeight() * (MAX_WIDTH / (double) image.getWidth()));
+        BufferedImage scaled = new BufferedImage(MAX_WIDTH, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, MAX_WIDTH, height, null);
+        graphics.dispose();
+        return scaled;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        // JPEG has no alpha channel
+        BufferedImage rgb = image;
+        if (image.getType() != BufferedImage.TYPE_INT_RGB) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            graphics.drawImage(image, 0, 0, null);
+            graphics.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Falls back to PNG when no ImageIO writer is installed for the format (WebP needs a plugin)
+    private static String resolveFormat(String configured) {
+        String format = configured.trim().toLowerCase();
+        if ("jpg".equals(format)) {
+            format = "jpeg";
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            System.out.println("No image writer for screenshot.format=" + configured + ", using png");
+            return "png";
+        }
+        return format;
+    }
+
+    private static ScenarioState currentState(Scenario scenario) {
+        if (state.get() == null) {
+            startScenario(scenario);
+        }
+        return state.get();
+    }
+
+    private static String slug(String text) {
+        String slug = text.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+        return slug.length() > 40 ? slug.substring(0, 40) : slug;
+    }
+
+    private static final class ScenarioState {
+        private final String prefix;
+        private int stepCaptures;
+        private int sequence;
+        private long lastChecksum = -1;
+        private String lastLink;
+
+        private ScenarioState(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+}
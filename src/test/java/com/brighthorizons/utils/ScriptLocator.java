@@ -0,0 +1,103 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.By;
+
+/**
+ * Translates Selenium locators into arguments an injected script can
+ * resolve in the page, so a whole condition can be evaluated in one
+ * JavaScript call instead of repeated findElement round-trips.
+ */
+public final class ScriptLocator {
+
+    /**
+     * Defines {@code find(using, value)}, returning an array of matching
+     * elements for "xpath" and "css selector" locators
+     */
+    public static final String FIND_FUNCTION =
+            "function find(using, value) {"
+            + "  if (using === 'xpath') {"
+            + "    var snapshot = document.evaluate(value, document, null,"
+            + "        XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);"
+            + "    var nodes = [];"
+            + "    for (var i = 0; i < snapshot.snapshotLength; i++) { nodes.push(snapshot.snapshotItem(i)); }"
+            + "    return nodes;"
+            + "  }"
+            + "  return Array.prototype.slice.call(document.querySelectorAll(value));"
+            + "}";
+
+    /**
+     * Defines {@code isVisible(el)}, a close approximation of WebElement.isDisplayed()
+     */
+    public static final String VISIBLE_FUNCTION =
+            "function isVisible(el) {"
+            + "  if (!el || !el.isConnected) { return false; }"
+            + "  for (var node = el; node && node.nodeType === 1; node = node.parentElement) {"
+            + "    var style = window.getComputedStyle(node);"
+            + "    if (style.display === 'none' || style.opacity === '0') { return false; }"
+            + "  }"
+            + "  if (window.getComputedStyle(el).visibility !== 'visible') { return false; }"
+            + "  var rect = el.getBoundingClientRect();"
+            + "  return rect.width > 0 && rect.height > 0;"
+            + "}";
+
+    /**
+     * Defines {@code describe(el)}, an attribute fingerprint of the element
+     * plus the first unique CSS selector found for it (or null) and how long
+     * that selector took to resolve
+     */
+    public static final String DESCRIBE_FUNCTION =
+            "function describe(el) {"
+            + "  var d = { tag: el.tagName.toLowerCase(),"
+            + "      classes: Array.prototype.slice.call(el.classList || []),"
+            + "      text: (el.innerText || el.textContent || '').trim().slice(0, 80) };"
+            + "  ['id', 'name', 'type', 'placeholder', 'aria-label', 'title', 'role'].forEach(function (a) {"
+            + "    var v = el.getAttribute(a);"
+            + "    if (v) { d[a] = v; }"
+            + "  });"
+            + "  function unique(selector) {"
+            + "    try {"
+            + "      var matches = document.querySelectorAll(selector);"
+            + "      return matches.length === 1 && matches[0] === el;"
+            + "    } catch (e) { return false; }"
+            + "  }"
+            + "  var tries = [];"
+            + "  if (d.id) { tries.push('#' + CSS.escape(d.id)); }"
+            + "  ['name', 'aria-label', 'placeholder', 'title', 'type'].forEach(function (a) {"
+            + "    if (d[a]) { tries.push(d.tag + '[' + a + '=\"' + CSS.escape(d[a]) + '\"]'); }"
+            + "  });"
+            + "  if (d.classes.length) { tries.push(d.tag + '.' + d.classes.map(CSS.escape).join('.')); }"
+            + "  d.selector = null;"
+            + "  for (var i = 0; i < tries.length; i++) {"
+            + "    var started = performance.now();"
+            + "    if (unique(tries[i])) {"
+            + "      d.selector = tries[i];"
+            + "      d.selectorMillis = performance.now() - started;"
+            + "      break;"
+            + "    }"
+            + "  }"
+            + "  return d;"
+            + "}";
+
+    // Private constructor prevents creating instances
+    private ScriptLocator() {
+    }
+
+    // True when the locator can be evaluated by FIND_FUNCTION
+    public static boolean supports(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return false;
+        }
+        String using = ((By.Remotable) locator).getRemoteParameters().using();
+        return "xpath".equals(using) || "css selector".equals(using);
+    }
+
+    // Locator strategy, "xpath" or "css selector"
+    public static String using(By locator) {
+        return ((By.Remotable) locator).getRemoteParameters().using();
+    }
+
+    // Locator expression
+    public static String value(By locator) {
+        return String.valueOf(((By.Remotable) locator).getRemoteParameters().value());
+    }
+}
@@ -0,0 +1,226 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.gherkin.GherkinParser;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.Examples;
+import io.cucumber.messages.types.Feature;
+import io.cucumber.messages.types.FeatureChild;
+import io.cucumber.messages.types.RuleChild;
+import io.cucumber.messages.types.Scenario;
+import io.cucumber.messages.types.TableRow;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits the scenarios of a feature set into shards of about equal run
+ * time. Every scenario (and every Examples row of an outline) is weighted
+ * with its duration in a previous run's CucumberTestReport.json, scenarios
+ * without history with the average of those with one. The longest
+ * scenarios are placed first, each on the shard with the least work so far.
+ *
+ * The plan only depends on the feature files and the history file, so
+ * shards on different machines with the same inputs agree on it without
+ * talking to each other.
+ */
+public final class ShardPlanner {
+
+    // Weight of every scenario when there is no history at all, which makes the split by count
+    private static final long DEFAULT_MILLIS = 1000;
+
+    // Private constructor prevents creating instances
+    private ShardPlanner() {
+    }
+
+    /**
+     * @param features feature files or directories, as given to Cucumber
+     * @param count    number of shards
+     * @param history  CucumberTestReport.json of a previous run, may not exist
+     * @return count shards, each listing its scenarios as path:line in file order
+     */
+    public static List<Shard> plan(List<String> features, int count, Path history) {
+        Map<String, Long> known = durations(history);
+        List<String> scenarios = new ArrayList<>();
+        for (String feature : features) {
+            scenarios.addAll(scenarios(Paths.get(feature)));
+        }
+
+        long fallback = known.isEmpty() ? DEFAULT_MILLIS
+                : Math.max(1, known.values().stream().mapToLong(Long::longValue).sum() / known.size());
+        Map<String, Long> weights = new LinkedHashMap<>();
+        for (String scenario : scenarios) {
+            weights.put(scenario, known.getOrDefault(key(scenario), fallback));
+        }
+
+        // Longest first; equal weights keep discovery order, so every machine computes the same plan
+        List<String> ordered = new ArrayList<>(scenarios);
+        ordered.sort((a, b) -> Long.compare(weights.get(b), weights.get(a)));
+
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, count); i++) {
+            shards.add(new Shard(i));
+        }
+        for (String scenario : ordered) {
+            Shard lightest = shards.get(0);
+            for (Shard shard : shards) {
+                if (shard.estimatedMillis < lightest.estimatedMillis) {
+                    lightest = shard;
+                }
+            }
+            lightest.scenarios.add(scenario);
+            lightest.estimatedMillis += weights.get(scenario);
+        }
+        Map<String, Integer> position = new LinkedHashMap<>();
+        for (String scenario : scenarios) {
+            position.put(scenario, position.size());
+        }
+        for (Shard shard : shards) {
+            shard.scenarios.sort(Comparator.comparing(position::get));
+        }
+        return shards;
+    }
+
+    // Every runnable scenario as path:line, the line of the scenario or of its Examples row
+    private static List<String> scenarios(Path location) {
+        List<String> found = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(location)) {
+            files = walk.filter(path -> path.toString().endsWith(".feature")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read features in " + location, e);
+        }
+
+        GherkinParser parser = GherkinParser.builder()
+                .includeSource(false)
+                .includePickles(false)
+                .build();
+        for (Path file : files) {
+            try (Stream<Envelope> envelopes = parser.parse(file)) {
+                envelopes.forEach(envelope -> envelope.getGherkinDocument()
+                        .flatMap(document -> document.getFeature())
+                        .ifPresent(feature -> addScenarios(file.toString().replace('\\', '/'), feature, found)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot parse " + file, e);
+            }
+        }
+        return found;
+    }
+
+    private static void addScenarios(String file, Feature feature, List<String> found) {
+        for (FeatureChild child : feature.getChildren()) {
+            child.getScenario().ifPresent(scenario -> addScenario(file, scenario, found));
+            child.getRule().ifPresent(rule -> {
+                for (RuleChild ruleChild : rule.getChildren()) {
+                    ruleChild.getScenario().ifPresent(scenario -> addScenario(file, scenario, found));
+                }
+            });
+        }
+    }
+
+    private static void addScenario(String file, Scenario scenario, List<String> found) {
+        if (scenario.getExamples().isEmpty()) {
+            found.add(file + ":" + scenario.getLocation().getLine());
+            return;
+        }
+        for (Examples examples : scenario.getExamples()) {
+            for (TableRow row : examples.getTableBody()) {
+                found.add(file + ":" + row.getLocation().getLine());
+            }
+        }
+    }
+
+    // Scenario durations by absolute path:line, from the step durations of a JSON report
+    @SuppressWarnings("unchecked")
+    private static Map<String, Long> durations(Path history) {
+        if (history == null || !Files.exists(history)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> durations = new LinkedHashMap<>();
+        try {
+            List<Map<String, Object>> features = new Json().toType(
+                    new String(Files.readAllBytes(history), StandardCharsets.UTF_8), Json.LIST_OF_MAPS_TYPE);
+            for (Map<String, Object> feature : features) {
+                String file = path(String.valueOf(feature.get("uri")));
+                for (Object elementObject : (List<Object>) feature.getOrDefault("elements", new ArrayList<>())) {
+                    Map<String, Object> element = (Map<String, Object>) elementObject;
+                    if (!"scenario".equals(element.get("type"))) {
+                        continue;
+                    }
+                    long nanos = 0;
+                    for (String section : new String[] { "before", "steps", "after" }) {
+                        for (Object step : (List<Object>) element.getOrDefault(section, new ArrayList<>())) {
+                            Object result = ((Map<String, Object>) step).get("result");
+                            Object duration = result instanceof Map ? ((Map<String, Object>) result).get("duration")
+                                    : null;
+                            nanos += duration instanceof Number ? ((Number) duration).longValue() : 0;
+                        }
+                    }
+                    durations.put(key(file + ":" + element.get("line")), Math.max(1, nanos / 1_000_000));
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Ignoring unreadable shard history " + history + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+        return durations;
+    }
+
+    // file:src/x.feature, file:///abs/x.feature or a plain path, as a local path
+    private static String path(String uri) {
+        if (uri.startsWith("file:///")) {
+            return Paths.get(URI.create(uri)).toString();
+        }
+        return uri.startsWith("file:") ? uri.substring("file:".length()) : uri;
+    }
+
+    // Relative and absolute spellings of the same scenario compare equal
+    private static String key(String scenario) {
+        int colon = scenario.lastIndexOf(':');
+        return Paths.get(scenario.substring(0, colon)).toAbsolutePath().normalize() + scenario.substring(colon);
+    }
+
+    /**
+     * One shard of a plan: its scenarios as path:line and the estimated
+     * run time from the history
+     */
+    public static final class Shard {
+        private final int index;
+        private final List<String> scenarios = new ArrayList<>();
+        private long estimatedMillis;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<String> getScenarios() {
+            return Collections.unmodifiableList(scenarios);
+        }
+
+        public long getEstimatedMillis() {
+            return estimatedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "shard " + index + ": " + scenarios.size() + " scenarios, ~" + estimatedMillis + " ms";
+        }
+    }
+}
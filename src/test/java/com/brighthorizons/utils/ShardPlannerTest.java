@@ -0,0 +1,167 @@
+package com.brighthorizons.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShardPlannerTest {
+
+    private static final String FEATURE = String.join("\n",
+            "Feature: Sharding",
+            "",
+            "  Scenario: a",
+            "    Given a step",
+            "",
+            "  Scenario: b",
+            "    Given a step",
+            "",
+            "  Scenario: c",
+            "    Given a step",
+            "",
+            "  Scenario Outline: d <n>",
+            "    Given a step",
+            "",
+            "    Examples:",
+            "      | n |",
+            "      | 1 |",
+            "      | 2 |",
+            "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path features;
+    private String file;
+
+    @Before
+    public void writeFeature() throws IOException {
+        features = folder.newFolder("features").toPath();
+        Path feature = features.resolve("sharding.feature");
+        Files.write(feature, FEATURE.getBytes(StandardCharsets.UTF_8));
+        file = feature.toString().replace('\\', '/');
+    }
+
+    @Test
+    public void listsEveryScenarioAndExamplesRow() {
+        List<ShardPlanner.Shard> shards = plan(1, null);
+
+        assertEquals(1, shards.size());
+        assertEquals(Arrays.asList(file + ":3", file + ":6", file + ":9", file + ":17", file + ":18"),
+                shards.get(0).getScenarios());
+    }
+
+    @Test
+    public void withoutHistorySplitsByCount() {
+        List<ShardPlanner.Shard> shards = plan(2, null);
+
+        assertEquals(Arrays.asList(file + ":3", file + ":9", file + ":18"), shards.get(0).getScenarios());
+        assertEquals(Arrays.asList(file + ":6", file + ":17"), shards.get(1).getScenarios());
+    }
+
+    @Test
+    public void balancesByHistoryDurations() throws IOException {
+        Map<Integer, Long> millis = new LinkedHashMap<>();
+        millis.put(3, 5000L);
+        millis.put(6, 3000L);
+        millis.put(9, 2000L);
+        millis.put(17, 1000L);
+        millis.put(18, 1000L);
+
+        List<ShardPlanner.Shard> shards = plan(2, history(millis));
+
+        // 5000 + 1000 against 3000 + 2000 + 1000, each shard in file order
+        assertEquals(Arrays.asList(file + ":3", file + ":17"), shards.get(0).getScenarios());
+        assertEquals(Arrays.asList(file + ":6", file + ":9", file + ":18"), shards.get(1).getScenarios());
+        assertEquals(6000, shards.get(0).getEstimatedMillis());
+        assertEquals(6000, shards.get(1).getEstimatedMillis());
+    }
+
+    @Test
+    public void scenariosWithoutHistoryWeighTheAverage() throws IOException {
+        Map<Integer, Long> millis = new LinkedHashMap<>();
+        millis.put(3, 4000L);
+        millis.put(6, 2000L);
+
+        List<ShardPlanner.Shard> shards = plan(2, history(millis));
+
+        // c and both rows weigh the 3000 average: a + row 2 against c + row 1 + b
+        assertEquals(Arrays.asList(file + ":3", file + ":18"), shards.get(0).getScenarios());
+        assertEquals(Arrays.asList(file + ":6", file + ":9", file + ":17"), shards.get(1).getScenarios());
+        assertEquals(7000, shards.get(0).getEstimatedMillis());
+        assertEquals(8000, shards.get(1).getEstimatedMillis());
+    }
+
+    @Test
+    public void samePlanEveryTime() throws IOException {
+        Map<Integer, Long> millis = new LinkedHashMap<>();
+        millis.put(3, 1000L);
+        millis.put(6, 1000L);
+        millis.put(9, 1000L);
+        Path history = history(millis);
+
+        for (int count = 1; count <= 4; count++) {
+            List<List<String>> first = scenarios(plan(count, history));
+            for (int i = 0; i < 5; i++) {
+                assertEquals(first, scenarios(plan(count, history)));
+            }
+            assertEquals(count, first.size());
+        }
+    }
+
+    @Test
+    public void unreadableHistoryIsIgnored() throws IOException {
+        Path history = folder.newFile("broken.json").toPath();
+        Files.write(history, "{not json".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(scenarios(plan(2, null)), scenarios(plan(2, history)));
+    }
+
+    private List<ShardPlanner.Shard> plan(int count, Path history) {
+        return ShardPlanner.plan(Collections.singletonList(features.toString()), count, history);
+    }
+
+    private static List<List<String>> scenarios(List<ShardPlanner.Shard> shards) {
+        List<List<String>> scenarios = new ArrayList<>();
+        for (ShardPlanner.Shard shard : shards) {
+            scenarios.add(shard.getScenarios());
+        }
+        return scenarios;
+    }
+
+    // A JSON report with one step per scenario line, taking the given milliseconds
+    private Path history(Map<Integer, Long> millis) throws IOException {
+        List<Object> elements = new ArrayList<>();
+        for (Map.Entry<Integer, Long> scenario : millis.entrySet()) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("status", "passed");
+            result.put("duration", scenario.getValue() * 1_000_000);
+            Map<String, Object> element = new LinkedHashMap<>();
+            element.put("type", "scenario");
+            element.put("line", scenario.getKey());
+            element.put("steps", Collections.singletonList(Collections.singletonMap("result", result)));
+            elements.add(element);
+        }
+        Map<String, Object> feature = new LinkedHashMap<>();
+        feature.put("uri", "file:" + file);
+        feature.put("elements", elements);
+
+        Path history = folder.newFile().toPath();
+        Files.write(history, new Json().toJson(Collections.singletonList(feature)).getBytes(StandardCharsets.UTF_8));
+        return history;
+    }
+}
@@ -0,0 +1,197 @@
+package com.brighthorizons.utils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import io.cucumber.messages.MessageToNdjsonWriter;
+import io.cucumber.messages.types.Attachment;
+import io.cucumber.messages.types.AttachmentContentEncoding;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Cucumber plugin that appends every message to events.ndjson as it is
+ * published, instead of keeping the whole run in memory like the html
+ * plugin. Base64 attachments such as screenshots are written to
+ * attachments/ and referenced by url, so the stream only holds text. The
+ * stream is flushed after every scenario, so a crashed run keeps what ran.
+ *
+ * When the run finishes, {@link StreamingReportRenderer} turns the stream
+ * into cucumber-pretty.html one message at a time, and
+ * {@link JsonReportWriter} into CucumberTestReport.json.
+ *
+ * Usage: plugin = "com.brighthorizons.utils.StreamingReportPlugin:target/cucumber-reports"
+ */
+public class StreamingReportPlugin implements ConcurrentEventListener {
+
+    static final String EVENTS_FILE = "events.ndjson";
+    static final String ATTACHMENTS_DIR = "attachments";
+    static final String HTML_FILE = "cucumber-pretty.html";
+
+    /**
+     * Cucumber's message JSON as its own formatter writes it: absent
+     * optionals left out, enums as their protocol value. Fields are in name
+     * order, so a moved attachment starts with its empty body, which is how
+     * the renderer finds it.
+     */
+    static final ObjectMapper MESSAGE_JSON = new ObjectMapper()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .registerModule(new SimpleModule().addSerializer(new OptionalSerializer()))
+            .setDefaultPropertyInclusion(JsonInclude.Value.construct(JsonInclude.Include.CUSTOM,
+                    JsonInclude.Include.NON_NULL, Absent.class, null))
+            .enable(SerializationFeature.WRITE_ENUMS_USING_TO_STRING)
+            .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+    private final Path directory;
+    private ScenarioFlushedStream stream;
+    private MessageToNdjsonWriter events;
+    private int attachmentCount;
+
+    public StreamingReportPlugin() {
+        this("target/cucumber-reports");
+    }
+
+    public StreamingReportPlugin(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        publisher.registerHandlerFor(Envelope.class, this::write);
+    }
+
+    // Messages can be published from several runner threads
+    private synchronized void write(Envelope envelope) {
+        try {
+            if (events == null) {
+                Files.createDirectories(directory.resolve(ATTACHMENTS_DIR));
+                stream = new ScenarioFlushedStream(Files.newOutputStream(directory.resolve(EVENTS_FILE)));
+                events = new MessageToNdjsonWriter(stream, MESSAGE_JSON::writeValue);
+            }
+            if (envelope.getAttachment().isPresent()) {
+                envelope = Envelope.of(externalize(envelope.getAttachment().get()));
+            }
+            events.write(envelope);
+
+            if (envelope.getTestCaseFinished().isPresent()) {
+                stream.flushScenario();
+            }
+            if (envelope.getTestRunFinished().isPresent()) {
+                events.close();
+                events = null;
+                StreamingReportRenderer.render(directory.resolve(EVENTS_FILE), directory.resolve(HTML_FILE));
+                System.out.println("Streaming report written to " + directory.resolve(HTML_FILE));
+                JsonReportWriter.write(directory.resolve(EVENTS_FILE), directory.resolve(ReportMerger.JSON_REPORT));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write streaming report to " + directory, e);
+        }
+    }
+
+    // Base64 bodies go to their own file, the message keeps a relative url instead
+    private Attachment externalize(Attachment attachment) throws IOException {
+        if (attachment.getContentEncoding() != AttachmentContentEncoding.BASE64) {
+            return attachment;
+        }
+        String name = ATTACHMENTS_DIR + "/" + (++attachmentCount) + extension(attachment.getMediaType());
+        Files.write(directory.resolve(name), Base64.getDecoder().decode(attachment.getBody()));
+        return new Attachment("", AttachmentContentEncoding.BASE64, attachment.getFileName().orElse(null),
+                attachment.getMediaType(), attachment.getSource().orElse(null),
+                attachment.getTestCaseStartedId().orElse(null), attachment.getTestStepId().orElse(null), name);
+    }
+
+    private static String extension(String mediaType) {
+        switch (mediaType) {
+            case "image/png":
+                return ".png";
+            case "image/jpeg":
+                return ".jpg";
+            case "image/webp":
+                return ".webp";
+            case "application/json":
+                return ".json";
+            case "text/plain":
+                return ".txt";
+            default:
+                return ".bin";
+        }
+    }
+
+    // Jackson here has no Jdk8Module: an optional is written as its value and left out when empty
+    private static final class OptionalSerializer extends StdSerializer<Optional<?>> {
+
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("unchecked")
+        private OptionalSerializer() {
+            super((Class<Optional<?>>) (Class<?>) Optional.class);
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, Optional<?> value) {
+            return !value.isPresent();
+        }
+
+        @Override
+        public void serialize(Optional<?> value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            provider.defaultSerializeValue(value.orElse(null), generator);
+        }
+    }
+
+    // Property filter of MESSAGE_JSON, equal to the values that are left out
+    private static final class Absent {
+
+        @Override
+        public boolean equals(Object value) {
+            return value == null || (value instanceof Optional && !((Optional<?>) value).isPresent());
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    /**
+     * MessageToNdjsonWriter flushes after every message; the file is only
+     * flushed after each scenario
+     */
+    private static final class ScenarioFlushedStream extends BufferedOutputStream {
+
+        private ScenarioFlushedStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        void flushScenario() throws IOException {
+            super.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flushScenario();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.brighthorizons.utils;
+
+import io.cucumber.htmlformatter.MessagesToHtmlWriter;
+import io.cucumber.messages.types.Envelope;
+import io.cucumber.messages.types.Source;
+import io.cucumber.messages.types.SourceMediaType;
+import org.openqa.selenium.json.Json;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Renders the events.ndjson stream of {@link StreamingReportPlugin} into
+ * Cucumber's HTML report, reading and writing one message at a time.
+ * Externalized attachments are inlined again while rendering
+ * (report.stream.inline.attachments=false keeps them as links instead).
+ *
+ * Also runs on its own, e.g. for the stream of a run that crashed:
+ * java -cp ... com.brighthorizons.utils.StreamingReportRenderer target/cucumber-reports/events.ndjson
+ */
+public final class StreamingReportRenderer {
+
+    // How StreamingReportPlugin writes an attachment whose body was moved to a file
+    private static final String EXTERNAL_ATTACHMENT = "{\"attachment\":{\"body\":\"\"";
+
+    // The HTML writer asks for an envelope, the line already is its JSON
+    private static final Envelope PLACEHOLDER =
+            Envelope.of(new Source("", "", SourceMediaType.TEXT_X_CUCUMBER_GHERKIN_PLAIN));
+
+    // Private constructor prevents creating instances
+    private StreamingReportRenderer() {
+    }
+
+    public static void render(Path events, Path html) throws IOException {
+        boolean inline = ConfigReader.getBooleanProperty("report.stream.inline.attachments", true);
+        Path base = events.toAbsolutePath().getParent();
+        String[] current = new String[1];
+
+        try (BufferedReader reader = Files.newBufferedReader(events, StandardCharsets.UTF_8);
+                OutputStream out = new BufferedOutputStream(Files.newOutputStream(html));
+                MessagesToHtmlWriter writer = new MessagesToHtmlWriter(out,
+                        (target, envelope) -> target.write(current[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                current[0] = inline && line.startsWith(EXTERNAL_ATTACHMENT) ? inlineAttachment(line, base) : line;
+                writer.write(PLACEHOLDER);
+            }
+        }
+    }
+
+    // Puts the file content back into the body, only one attachment is in memory at a time
+    @SuppressWarnings("unchecked")
+    private static String inlineAttachment(String line, Path base) throws IOException {
+        Map<String, Object> envelope = new Json().toType(line, Json.MAP_TYPE);
+        Object url = ((Map<String, Object>) envelope.get("attachment")).get("url");
+        Path file = url != null ? base.resolve(url.toString()) : null;
+        if (file == null || !Files.exists(file)) {
+            return line;
+        }
+        return "{\"attachment\":{\"body\":\"" + Base64.getEncoder().encodeToString(Files.readAllBytes(file)) + "\""
+                + line.substring(EXTERNAL_ATTACHMENT.length());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: StreamingReportRenderer <events.ndjson> [report.html]");
+            return;
+        }
+        Path events = Paths.get(args[0]);
+        Path html = args.length > 1 ? Paths.get(args[1])
+                : events.resolveSibling(StreamingReportPlugin.HTML_FILE);
+        render(events, html);
+        System.out.println("Report written to " + html);
+    }
+}
@@ -0,0 +1,71 @@
+package com.brighthorizons.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.Assert.assertTrue;
+
+public class StreamingReportRendererTest {
+
+    private static final byte[] SCREENSHOT = { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inlinesExternalizedAttachments() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        Files.createDirectories(dir.resolve(StreamingReportPlugin.ATTACHMENTS_DIR));
+        Files.write(dir.resolve("attachments/1.png"), SCREENSHOT);
+
+        String html = render(dir, attachment("attachments/1.png"));
+
+        assertTrue(html.contains("\"body\":\"" + Base64.getEncoder().encodeToString(SCREENSHOT) + "\""));
+        // The rest of the message is kept as written
+        assertTrue(html.contains("\"url\":\"attachments/1.png\""));
+    }
+
+    @Test
+    public void keepsTheLinkWhenTheFileIsGone() throws IOException {
+        String html = render(folder.getRoot().toPath(), attachment("attachments/2.png"));
+
+        assertTrue(html.contains("{\"attachment\":{\"body\":\"\",\"contentEncoding\":\"BASE64\""));
+        assertTrue(html.contains("\"url\":\"attachments/2.png\""));
+    }
+
+    @Test
+    public void passesOtherMessagesThrough() throws IOException {
+        String text = "{\"attachment\":{\"body\":\"log line\",\"contentEncoding\":\"IDENTITY\","
+                + "\"mediaType\":\"text/plain\"}}";
+        String meta = "{\"meta\":{\"protocolVersion\":\"22.0.0\"}}";
+
+        String html = render(folder.getRoot().toPath(), text, meta);
+
+        assertTrue(html.contains(text));
+        assertTrue(html.contains(meta));
+    }
+
+    private String render(Path dir, String... lines) throws IOException {
+        Path events = dir.resolve(StreamingReportPlugin.EVENTS_FILE);
+        Files.write(events, Arrays.asList(lines), StandardCharsets.UTF_8);
+        Path html = dir.resolve(StreamingReportPlugin.HTML_FILE);
+
+        StreamingReportRenderer.render(events, html);
+
+        return new String(Files.readAllBytes(html), StandardCharsets.UTF_8);
+    }
+
+    // An attachment as StreamingReportPlugin writes it once the body went to a file
+    private static String attachment(String url) {
+        return "{\"attachment\":{\"body\":\"\",\"contentEncoding\":\"BASE64\",\"mediaType\":\"image/png\","
+                + "\"testCaseStartedId\":\"run-1\",\"url\":\"" + url + "\"}}";
+    }
+}
@@ -0,0 +1,84 @@
+package com.brighthorizons.utils;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs every scenario on its own virtual thread. A scenario spends nearly
+ * all of its time blocked on WebDriver HTTP calls, and a blocked virtual
+ * thread gives its carrier back, so a handful of carriers serve any number
+ * of scenarios.
+ *
+ * Live browser sessions stay capped by the driver pool (driver.pool.max.size).
+ * A scenario waiting for a session just parks. The scheduler caps the
+ * scenarios in flight (scheduler.max.scenarios), because each one holds
+ * a Cucumber runner ({@link RunnerPool}) and glue instances. Each scenario runs in a
+ * {@link DriverContext} scope, so its session is released and unbound when
+ * it ends.
+ */
+public final class VirtualThreadScheduler extends AbstractExecutorService {
+
+    private final ExecutorService threads =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scenario-", 1).factory());
+    private final Semaphore scenarios;
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    public VirtualThreadScheduler(int maxScenarios) {
+        this.scenarios = new Semaphore(Math.max(1, maxScenarios), true);
+    }
+
+    @Override
+    public void execute(Runnable scenario) {
+        threads.execute(() -> {
+            try {
+                scenarios.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                DriverContext.runScoped(scenario);
+            } finally {
+                running.decrementAndGet();
+                scenarios.release();
+            }
+        });
+    }
+
+    // Most scenarios that were in flight at once
+    public int getPeakScenarios() {
+        return peak.get();
+    }
+
+    @Override
+    public void shutdown() {
+        threads.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return threads.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return threads.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return threads.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return threads.awaitTermination(timeout, unit);
+    }
+}
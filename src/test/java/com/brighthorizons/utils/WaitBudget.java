@@ -0,0 +1,75 @@
+package com.brighthorizons.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * Time budget for all waits of the step running on the current thread.
+ * Nested waits and their fallbacks share one deadline, so a missing
+ * element costs at most wait.budget.seconds per step instead of every
+ * timeout added up. wait.budget.seconds=0 turns budget mode off.
+ *
+ * In budget mode the implicit wait is kept at zero, so explicit waits are
+ * the only thing that waits.
+ */
+public final class WaitBudget {
+
+    private static final long BUDGET_MILLIS = ConfigReader.getIntProperty("wait.budget.seconds", 30) * 1000L;
+
+    // Deadline of the current step in System.nanoTime() terms, absent between steps
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    // Private constructor prevents creating instances
+    private WaitBudget() {
+    }
+
+    public static boolean isEnabled() {
+        return BUDGET_MILLIS > 0;
+    }
+
+    // Start the budget of a new step on this thread
+    public static void startStep() {
+        if (isEnabled()) {
+            deadline.set(System.nanoTime() + BUDGET_MILLIS * 1_000_000L);
+        }
+    }
+
+    // Waits outside a step are not budgeted
+    public static void endStep() {
+        deadline.remove();
+    }
+
+    /**
+     * Timeout to actually use for a wait that asked for requestedMillis:
+     * the request itself, capped by what is left of the step budget
+     */
+    public static long clamp(long requestedMillis) {
+        Long end = deadline.get();
+        if (end == null) {
+            return requestedMillis;
+        }
+        long remaining = (end - System.nanoTime()) / 1_000_000L;
+        return Math.max(0, Math.min(requestedMillis, remaining));
+    }
+
+    /**
+     * Runs a wait together with its fallbacks under one deadline: at most
+     * millis from now, and never past the step's own deadline
+     */
+    public static <T> T within(long millis, Supplier<T> action) {
+        if (!isEnabled()) {
+            return action.get();
+        }
+        Long outer = deadline.get();
+        long inner = System.nanoTime() + millis * 1_000_000L;
+        deadline.set(outer != null && outer - inner < 0 ? outer : inner);
+        try {
+            return action.get();
+        } finally {
+            if (outer != null) {
+                deadline.set(outer);
+            } else {
+                deadline.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.brighthorizons.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waits and timeouts of one browser session.
+ *
+ * - one prebuilt WebDriverWait per timeout tier (short.timeout,
+ *   default.timeout, long.timeout), and one more that is re-timed for
+ *   waits cut short by the step's wait budget, so waits allocate nothing
+ *   per call
+ * - the implicit wait, page load and script timeouts last sent to the
+ *   browser, so setting a timeout it already has costs no command
+ *
+ * A session is only used by the scenario that checked it out, so the
+ * registry is not shared between threads at the same time.
+ */
+public final class WaitRegistry {
+
+    /**
+     * Timeout tiers from config.properties
+     */
+    public enum Tier {
+        SHORT("short.timeout", 5),
+        DEFAULT("default.timeout", 20),
+        LONG("long.timeout", 30);
+
+        private final int seconds;
+
+        Tier(String key, int defaultSeconds) {
+            this.seconds = ConfigReader.getIntProperty(key, defaultSeconds);
+        }
+
+        public int getSeconds() {
+            return seconds;
+        }
+    }
+
+    // The waits hold on to their session, so registries are dropped explicitly when it quits
+    private static final Map<WebDriver, WaitRegistry> registries = new ConcurrentHashMap<>();
+
+    private final WebDriver driver;
+    private final Map<Tier, WebDriverWait> tiers = new EnumMap<>(Tier.class);
+    private final WebDriverWait budgeted;
+    private long budgetedMillis = -1;
+
+    // Last values the browser accepted, null until this registry sent one
+    private Duration implicitWait;
+    private Duration pageLoadTimeout;
+    private Duration scriptTimeout;
+
+    private WaitRegistry(WebDriver driver) {
+        this.driver = driver;
+        for (Tier tier : Tier.values()) {
+            tiers.put(tier, new WebDriverWait(driver, Duration.ofSeconds(tier.getSeconds())));
+        }
+        this.budgeted = new WebDriverWait(driver, Duration.ZERO);
+    }
+
+    // Registry of the given session, created on first use
+    public static WaitRegistry forDriver(WebDriver driver) {
+        return registries.computeIfAbsent(driver, WaitRegistry::new);
+    }
+
+    // Drop the registry of a session that has quit
+    public static void forget(WebDriver driver) {
+        registries.remove(driver);
+    }
+
+    public WebDriverWait waitFor(Tier tier) {
+        return tiers.get(tier);
+    }
+
+    /**
+     * Wait that gives up after timeoutMillis: the tier's own wait when the
+     * timeout is a whole tier, otherwise the shared budgeted wait
+     */
+    public WebDriverWait waitFor(long timeoutMillis) {
+        for (Tier tier : Tier.values()) {
+            if (tier.getSeconds() * 1000L == timeoutMillis) {
+                return tiers.get(tier);
+            }
+        }
+        if (timeoutMillis != budgetedMillis) {
+            budgeted.withTimeout(Duration.ofMillis(timeoutMillis));
+            budgetedMillis = timeoutMillis;
+        }
+        return budgeted;
+    }
+
+    public void implicitlyWait(Duration timeout) {
+        if (!timeout.equals(implicitWait)) {
+            driver.manage().timeouts().implicitlyWait(timeout);
+            implicitWait = timeout;
+        }
+    }
+
+    public void pageLoadTimeout(Duration timeout) {
+        if (!timeout.equals(pageLoadTimeout)) {
+            driver.manage().timeouts().pageLoadTimeout(timeout);
+            pageLoadTimeout = timeout;
+        }
+    }
+
+    public void scriptTimeout(Duration timeout) {
+        if (!timeout.equals(scriptTimeout)) {
+            driver.manage().timeouts().scriptTimeout(timeout);
+            scriptTimeout = timeout;
+        }
+    }
+}
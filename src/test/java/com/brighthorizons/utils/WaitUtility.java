@@ -2,11 +2,15 @@ package com.brighthorizons.utils;
 
 import org.openqa.selenium.By;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.List;
@@ -15,21 +19,75 @@ import java.util.List;
  * Utility class that provides reusable wait methods for Selenium WebDriver.
  * Handles both explicit and implicit waits with fallback strategies for
  * stability.
+ *
+ * With wait.mode=event (the default) conditions are resolved in the page by
+ * {@link EventDrivenWait}; wait.mode=polling keeps the classic WebDriverWait
+ * polling, which is also used for locators a script cannot evaluate.
+ *
+ * With a wait budget ({@link WaitBudget}) every wait is capped by what is
+ * left of the step's budget, a wait and its fallbacks share one deadline, and
+ * locator waits give up early when the loaded page has no matching node.
+ *
+ * Polling waits come from the session's {@link WaitRegistry} instead of
+ * being built per call, and implicit waits the browser already has are
+ * not sent again.
  */
 public class WaitUtility {
 
-    private static final int DEFAULT_TIMEOUT = 20;
-    private static final int SHORT_TIMEOUT = 5;
-    private static final int LONG_TIMEOUT = 30;
+    private static final Logger log = LoggerFactory.getLogger(WaitUtility.class);
+
+    private static final int DEFAULT_TIMEOUT = WaitRegistry.Tier.DEFAULT.getSeconds();
+
+    private static final boolean EVENT_MODE =
+            "event".equalsIgnoreCase(ConfigReader.getProperty("wait.mode", "event").trim());
+
+    // With EAGER or NONE a page counts as loaded once its DOM is parsed, page objects add their readiness gates
+    private static final boolean FULL_LOAD =
+            LaunchProfile.current().getPageLoadStrategy() == PageLoadStrategy.NORMAL;
+
+    private static final String READY_STATE_SCRIPT = "return document.readyState";
+    private static final String JQUERY_IDLE_SCRIPT = "return jQuery.active == 0";
+    private static final String ELEMENT_COUNT_SCRIPT = "return document.getElementsByTagName('*').length";
+
+    // In budget mode, how long a loaded page must be quiet without a match before a locator wait gives up
+    private static final Long ABSENT_AFTER_MILLIS = WaitBudget.isEnabled()
+            ? Long.valueOf(ConfigReader.getIntProperty("wait.absent.quiet.ms", 1000))
+            : null;
+
+    static {
+        // Polling reads must not invalidate the page cache
+        PageCache.registerReadOnlyScript(READY_STATE_SCRIPT);
+        PageCache.registerReadOnlyScript(JQUERY_IDLE_SCRIPT);
+        PageCache.registerReadOnlyScript(ELEMENT_COUNT_SCRIPT);
+    }
 
     // Private constructor to prevent instantiation
     private WaitUtility() {
     }
 
-    // Sets implicit wait for a WebDriver instance
+    // True when the browser runs with the NORMAL page load strategy and page loads wait for every subresource
+    public static boolean waitsForFullLoad() {
+        return FULL_LOAD;
+    }
+
+    // True when waits are resolved in the page (wait.mode=event)
+    static boolean isEventMode() {
+        return EVENT_MODE;
+    }
+
+    // Quiet period after which locator waits give up on a missing element, null outside budget mode
+    static Long absentAfterMillis() {
+        return ABSENT_AFTER_MILLIS;
+    }
+
+    // Sets implicit wait for a WebDriver instance, no command when the browser already has it
 
     public static void setImplicitWait(WebDriver driver, int seconds) {
-        driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(seconds));
+        if (WaitBudget.isEnabled()) {
+            // The implicit wait stays at zero so it never multiplies inside explicit waits
+            return;
+        }
+        WaitRegistry.forDriver(driver).implicitlyWait(Duration.ofSeconds(seconds));
     }
 
     // Resets implicit wait to default timeout
@@ -47,19 +105,21 @@ public class WaitUtility {
     // Waits for an element to be visible with custom timeout
 
     public static WebElement waitForElementVisible(WebDriver driver, By locator, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        try {
-            return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-        } catch (Exception e) {
-            // Try scrolling to the element
+        // The wait and its fallback share one deadline
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
             try {
-                WebElement element = driver.findElement(locator);
-                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
-                return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
-            } catch (Exception ex) {
-                return null;
+                return untilElement(driver, EventDrivenWait.VISIBLE, locator, timeoutSeconds);
+            } catch (Exception e) {
+                // Try scrolling to the element
+                try {
+                    WebElement element = driver.findElement(locator);
+                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+                    return untilElement(driver, EventDrivenWait.VISIBLE, locator, timeoutSeconds);
+                } catch (Exception ex) {
+                    return null;
+                }
             }
-        }
+        });
     }
 
     //Waits for a specific WebElement to be visible
@@ -71,18 +131,19 @@ public class WaitUtility {
     // Waits for a specific WebElement to be visible with custom timeout
 
     public static WebElement waitForElementVisible(WebDriver driver, WebElement element, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        try {
-            return wait.until(ExpectedConditions.visibilityOf(element));
-        } catch (Exception e) {
-            // Try scrolling to element
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
             try {
-                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
-                return wait.until(ExpectedConditions.visibilityOf(element));
-            } catch (Exception ex) {
-                return null;
+                return untilElement(driver, EventDrivenWait.VISIBLE, element, timeoutSeconds);
+            } catch (Exception e) {
+                // Try scrolling to element
+                try {
+                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+                    return untilElement(driver, EventDrivenWait.VISIBLE, element, timeoutSeconds);
+                } catch (Exception ex) {
+                    return null;
+                }
             }
-        }
+        });
     }
 
     //Waits for an element to be clickable
@@ -92,19 +153,20 @@ public class WaitUtility {
 
     //Waits for an element to be clickable with custom timeout
     public static WebElement waitForElementClickable(WebDriver driver, By locator, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        try {
-            return wait.until(ExpectedConditions.elementToBeClickable(locator));
-        } catch (Exception e) {
-            // Try scrolling to element
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
             try {
-                WebElement element = driver.findElement(locator);
-                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
-                return wait.until(ExpectedConditions.elementToBeClickable(locator));
-            } catch (Exception ex) {
-                return null;
+                return untilElement(driver, EventDrivenWait.CLICKABLE, locator, timeoutSeconds);
+            } catch (Exception e) {
+                // Try scrolling to element
+                try {
+                    WebElement element = driver.findElement(locator);
+                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+                    return untilElement(driver, EventDrivenWait.CLICKABLE, locator, timeoutSeconds);
+                } catch (Exception ex) {
+                    return null;
+                }
             }
-        }
+        });
     }
 
     // Waits for a specific WebElement to be clickable
@@ -116,18 +178,19 @@ public class WaitUtility {
     //Waits for a specific WebElement to be clickable with custom timeout
 
     public static WebElement waitForElementClickable(WebDriver driver, WebElement element, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        try {
-            return wait.until(ExpectedConditions.elementToBeClickable(element));
-        } catch (Exception e) {
-            // Try scrolling to element
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
             try {
-                ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
-                return wait.until(ExpectedConditions.elementToBeClickable(element));
-            } catch (Exception ex) {
-                return null;
+                return untilElement(driver, EventDrivenWait.CLICKABLE, element, timeoutSeconds);
+            } catch (Exception e) {
+                // Try scrolling to element
+                try {
+                    ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+                    return untilElement(driver, EventDrivenWait.CLICKABLE, element, timeoutSeconds);
+                } catch (Exception ex) {
+                    return null;
+                }
             }
-        }
+        });
     }
 
     //Waits for all elements matching the locator to be visible
@@ -139,22 +202,23 @@ public class WaitUtility {
     // Waits for all elements matching the locator to be visible with custom timeout
 
     public static List<WebElement> waitForElementsVisible(WebDriver driver, By locator, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
-        try {
-            return wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(locator));
-        } catch (Exception e) {
-            // Try scrolling to the middle of the page to locate elements
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
             try {
-                ((JavascriptExecutor) driver).executeScript("window.scrollTo(0, document.body.scrollHeight/2);");
-                return wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(locator));
-            } catch (Exception ex) {
-                // Just return whatever elements we can find without checking visibility
-                return driver.findElements(locator);
+                return untilAllVisible(driver, locator, timeoutSeconds);
+            } catch (Exception e) {
+                // Try scrolling to the middle of the page to locate elements
+                try {
+                    ((JavascriptExecutor) driver).executeScript("window.scrollTo(0, document.body.scrollHeight/2);");
+                    return untilAllVisible(driver, locator, timeoutSeconds);
+                } catch (Exception ex) {
+                    // Just return whatever elements we can find without checking visibility
+                    return driver.findElements(locator);
+                }
             }
-        }
+        });
     }
 
-    // Waits for page to be fully loaded
+    // Waits for page to be fully loaded, or only for the DOM with the EAGER and NONE page load strategies
 
     public static void waitForPageLoad(WebDriver driver) {
         waitForPageLoad(driver, DEFAULT_TIMEOUT);
@@ -165,16 +229,29 @@ public class WaitUtility {
      *
      */
     public static void waitForPageLoad(WebDriver driver, int timeoutSeconds) {
-        WebDriverWait wait = new WebDriverWait(driver, Duration.ofSeconds(timeoutSeconds));
+        if (!FULL_LOAD) {
+            waitForDomReady(driver, timeoutSeconds);
+            return;
+        }
+        if (EVENT_MODE) {
+            try {
+                EventDrivenWait.pageLoad(driver, WaitBudget.clamp(timeoutSeconds * 1000L));
+                return;
+            } catch (Exception e) {
+                // Fall back to polling if the script could not run
+            }
+        }
+
+        WebDriverWait wait = waitFor(driver, timeoutSeconds);
         try {
             wait.until((ExpectedCondition<Boolean>) ddriver -> {
                 assert ddriver != null;
-                String readyState = ((JavascriptExecutor) ddriver).executeScript("return document.readyState")
+                String readyState = ((JavascriptExecutor) ddriver).executeScript(READY_STATE_SCRIPT)
                         .toString();
                 boolean isJQueryComplete = true;
                 try {
                     isJQueryComplete = (Boolean) ((JavascriptExecutor) ddriver)
-                            .executeScript("return jQuery.active == 0");
+                            .executeScript(JQUERY_IDLE_SCRIPT);
                 } catch (Exception e) {
                     // jQuery might not be present, which is fine
                 }
@@ -185,4 +262,121 @@ public class WaitUtility {
         }
     }
 
+    // Waits until the document has been parsed, images and third-party scripts may still be loading
+    public static void waitForDomReady(WebDriver driver, int timeoutSeconds) {
+        if (EVENT_MODE) {
+            try {
+                EventDrivenWait.domReady(driver, WaitBudget.clamp(timeoutSeconds * 1000L));
+                return;
+            } catch (Exception e) {
+                // Fall back to polling if the script could not run
+            }
+        }
+
+        WebDriverWait wait = waitFor(driver, timeoutSeconds);
+        try {
+            wait.until((ExpectedCondition<Boolean>) ddriver -> !"loading".equals(
+                    String.valueOf(((JavascriptExecutor) ddriver).executeScript(READY_STATE_SCRIPT))));
+        } catch (Exception e) {
+            // Page might still be usable even if not fully parsed
+        }
+    }
+
+    /**
+     * Waits until every readiness gate of a page object is met
+     *
+     * @return false when a gate was not met in time
+     */
+    public static boolean waitForReadiness(WebDriver driver, List<ReadinessGate> gates, int timeoutSeconds) {
+        return WaitBudget.within(timeoutSeconds * 1000L, () -> {
+            boolean scriptable = gates.stream()
+                    .allMatch(gate -> gate.getLocators().stream().allMatch(ScriptLocator::supports));
+            try {
+                if (EVENT_MODE && scriptable) {
+                    return EventDrivenWait.gates(driver, gates, ABSENT_AFTER_MILLIS,
+                            WaitBudget.clamp(timeoutSeconds * 1000L));
+                }
+                WebDriverWait wait = waitFor(driver, timeoutSeconds);
+                return wait.until(ddriver -> gates.stream().allMatch(gate -> gate.isMet(ddriver)));
+            } catch (Exception e) {
+                log.warn("Readiness gates not met: {} ({})", gates, e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    // Waits until the DOM has stopped changing for quietMillis, e.g. once autocomplete suggestions have rendered
+    public static void waitForDomQuiet(WebDriver driver, long quietMillis, int timeoutSeconds) {
+        if (EVENT_MODE) {
+            try {
+                EventDrivenWait.domQuiet(driver, quietMillis, WaitBudget.clamp(timeoutSeconds * 1000L));
+                return;
+            } catch (Exception e) {
+                // Fall back to polling if the script could not run
+            }
+        }
+
+        // Polling fallback: the element count must stay the same across one quiet period. The polling interval
+        // is the quiet period, so this wait is built here rather than taken from the shared ones
+        WebDriverWait wait = new WebDriverWait(driver, Duration.ofMillis(WaitBudget.clamp(timeoutSeconds * 1000L)),
+                Duration.ofMillis(Math.max(50, quietMillis)));
+        Object[] previous = new Object[1];
+        try {
+            wait.until((ExpectedCondition<Boolean>) ddriver -> {
+                Object count = ((JavascriptExecutor) ddriver)
+                        .executeScript(ELEMENT_COUNT_SCRIPT);
+                boolean stable = count != null && count.equals(previous[0]);
+                previous[0] = count;
+                return stable;
+            });
+        } catch (Exception e) {
+            // Continue with whatever has rendered so far
+        }
+    }
+
+    // Resolves a visible/clickable condition for a locator, throwing TimeoutException when it never holds
+    private static WebElement untilElement(WebDriver driver, String kind, By locator, int timeoutSeconds) {
+        if (EVENT_MODE && ScriptLocator.supports(locator)) {
+            return orTimeout(EventDrivenWait.element(driver, kind, locator, ABSENT_AFTER_MILLIS,
+                    WaitBudget.clamp(timeoutSeconds * 1000L)), locator);
+        }
+        WebDriverWait wait = waitFor(driver, timeoutSeconds);
+        return EventDrivenWait.CLICKABLE.equals(kind)
+                ? wait.until(ExpectedConditions.elementToBeClickable(locator))
+                : wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+    }
+
+    // Resolves a visible/clickable condition for an element, throwing TimeoutException when it never holds
+    private static WebElement untilElement(WebDriver driver, String kind, WebElement element, int timeoutSeconds) {
+        if (EVENT_MODE) {
+            return orTimeout(EventDrivenWait.element(driver, kind, element,
+                    WaitBudget.clamp(timeoutSeconds * 1000L)), element);
+        }
+        WebDriverWait wait = waitFor(driver, timeoutSeconds);
+        return EventDrivenWait.CLICKABLE.equals(kind)
+                ? wait.until(ExpectedConditions.elementToBeClickable(element))
+                : wait.until(ExpectedConditions.visibilityOf(element));
+    }
+
+    private static List<WebElement> untilAllVisible(WebDriver driver, By locator, int timeoutSeconds) {
+        if (EVENT_MODE && ScriptLocator.supports(locator)) {
+            return orTimeout(EventDrivenWait.allVisible(driver, locator, ABSENT_AFTER_MILLIS,
+                    WaitBudget.clamp(timeoutSeconds * 1000L)), locator);
+        }
+        WebDriverWait wait = waitFor(driver, timeoutSeconds);
+        return wait.until(ExpectedConditions.visibilityOfAllElementsLocatedBy(locator));
+    }
+
+    // The session's wait for timeoutSeconds, cut short by what is left of the step budget
+    static WebDriverWait waitFor(WebDriver driver, int timeoutSeconds) {
+        return WaitRegistry.forDriver(driver).waitFor(WaitBudget.clamp(timeoutSeconds * 1000L));
+    }
+
+    private static <T> T orTimeout(T result, Object target) {
+        if (result == null) {
+            throw new TimeoutException("Condition not met for " + target);
+        }
+        return result;
+    }
+
 }
\ No newline at end of file